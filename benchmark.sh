@@ -0,0 +1,31 @@
+#!/bin/bash
+# 編譯並執行基準測試，參數為基準名稱的篩選正規表示式，例如 ./benchmark.sh 'compact/.*/getEvents'
+# 事件數量等設定以系統屬性傳入，例如 JAVA_OPTS="-Dbench.sizes=1000,100000" ./benchmark.sh
+
+FX_LIB=lib/javafx-sdk-17.0.15/lib
+
+# 創建輸出目錄
+mkdir -p out/main/resources
+
+# 編譯 Java 文件（包括基準測試）
+javac -d out -cp .:$FX_LIB/javafx.controls.jar:$FX_LIB/javafx.fxml.jar:$FX_LIB/javafx.base.jar:$FX_LIB/javafx.graphics.jar src/main/*.java src/bench/*.java
+
+# 複製資源文件
+cp -r src/main/resources/* out/main/resources/
+
+# 沒有顯示器時，若 lib 中有 Monocle 則使用無頭平台執行 JavaFX 相關基準
+CLASSPATH_EXTRA=""
+FX_OPTS=""
+MONOCLE_JAR=$(ls lib/*monocle*.jar 2>/dev/null | head -n 1)
+if [ -n "$MONOCLE_JAR" ]; then
+    CLASSPATH_EXTRA=":$MONOCLE_JAR"
+    FX_OPTS="-Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw \
+        --add-exports javafx.graphics/com.sun.glass.ui=ALL-UNNAMED \
+        --add-exports javafx.graphics/com.sun.glass.events=ALL-UNNAMED \
+        --add-exports javafx.graphics/com.sun.javafx.util=ALL-UNNAMED \
+        --add-exports javafx.graphics/com.sun.javafx.application=ALL-UNNAMED"
+fi
+
+# 運行基準測試，結果同時寫入 bench_output.txt
+java -Xms2g -Xmx2g $FX_OPTS $JAVA_OPTS --module-path $FX_LIB --add-modules javafx.controls,javafx.fxml \
+    -cp out$CLASSPATH_EXTRA bench.CalendarBenchmarks "$@" | tee bench_output.txt
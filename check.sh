@@ -0,0 +1,13 @@
+#!/bin/bash
+# 編譯並執行回歸檢查，參數為檢查名稱的篩選正規表示式，例如 ./check.sh 'segment/.*'
+
+FX_LIB=lib/javafx-sdk-17.0.15/lib
+
+# 創建輸出目錄
+mkdir -p out
+
+# 編譯 Java 文件（包括回歸檢查）
+javac -d out -cp .:$FX_LIB/javafx.controls.jar:$FX_LIB/javafx.fxml.jar:$FX_LIB/javafx.base.jar:$FX_LIB/javafx.graphics.jar src/main/*.java src/check/*.java || exit 1
+
+# 運行回歸檢查，任何一項失敗時以狀態碼1結束
+java --module-path $FX_LIB --add-modules javafx.controls,javafx.fxml -cp out check.RegressionChecks "$@"
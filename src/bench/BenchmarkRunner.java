@@ -0,0 +1,190 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+/**
+ * 簡單的微基準測試執行器：預熱後按固定時間測量多輪，
+ * 報告吞吐量、每次操作的延遲分佈以及每次操作分配的位元組數
+ *
+ * 每次操作都以nanoTime計時，極短的操作（數十奈秒以下）延遲中包含計時本身的開銷。
+ * 操作的返回值累加到sink，避免JIT把沒有副作用的操作消除。
+ */
+public class BenchmarkRunner {
+    // 每輪最多保留的延遲樣本數
+    private static final int MAX_SAMPLES_PER_ITERATION = 1 << 18;
+    
+    /**
+     * 一次被測量的操作
+     */
+    public interface Operation {
+        long run() throws Exception;
+    }
+    
+    private final Pattern filter;
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // 防止操作被JIT消除
+    private long sink;
+    
+    public BenchmarkRunner(Pattern filter, int warmupIterations, int measureIterations, long iterationMillis) {
+        this.filter = filter;
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+    }
+    
+    /**
+     * 名稱是否符合命令列指定的篩選條件
+     */
+    public boolean isSelected(String name) {
+        return filter.matcher(name).find();
+    }
+    
+    public void printHeader() {
+        System.out.printf("%-48s %14s %8s %10s %10s %10s %10s %10s%n",
+            "benchmark", "ops/s", "± %", "avg ns", "p50 ns", "p99 ns", "p99.9 ns", "B/op");
+    }
+    
+    /**
+     * 在目前執行緒測量操作
+     */
+    public void run(String name, Operation operation) throws Exception {
+        if (isSelected(name)) {
+            print(name, measure(operation));
+        }
+    }
+    
+    /**
+     * 在指定執行緒（例如JavaFX執行緒）上測量操作，整輪在該執行緒內執行，不包含切換執行緒的開銷
+     */
+    public void runOn(Executor executor, String name, Operation operation) throws Exception {
+        if (!isSelected(name)) {
+            return;
+        }
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                result.complete(measure(operation));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        print(name, result.get());
+    }
+    
+    public long getSink() {
+        return sink;
+    }
+    
+    private Result measure(Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation, new long[MAX_SAMPLES_PER_ITERATION]);
+        }
+        Result result = new Result(measureIterations);
+        for (int i = 0; i < measureIterations; i++) {
+            long[] samples = new long[MAX_SAMPLES_PER_ITERATION];
+            long threadId = Thread.currentThread().getId();
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long ops = iteration(operation, samples);
+            long elapsed = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            // 樣本陣列本身的分配不計入
+            allocated -= 16L + 8L * MAX_SAMPLES_PER_ITERATION;
+            result.add(i, ops, elapsed, allocated, samples);
+        }
+        return result;
+    }
+    
+    /**
+     * 執行一輪，返回操作次數；延遲樣本以環狀方式寫入samples
+     */
+    private long iteration(Operation operation, long[] samples) throws Exception {
+        long deadline = System.nanoTime() + iterationNanos;
+        long ops = 0;
+        long now;
+        do {
+            long start = System.nanoTime();
+            sink += operation.run();
+            now = System.nanoTime();
+            samples[(int) (ops & (samples.length - 1))] = now - start;
+            ops++;
+        } while (now < deadline);
+        // 操作數少於樣本數時未使用的位置為-1
+        if (ops < samples.length) {
+            Arrays.fill(samples, (int) ops, samples.length, -1);
+        }
+        return ops;
+    }
+    
+    private static void print(String name, Result result) {
+        System.out.printf("%-48s %14.1f %8.1f %10.1f %10d %10d %10d %10.1f%n",
+            name, result.meanOpsPerSecond(), result.errorPercent(), result.averageNanos(),
+            result.percentile(0.50), result.percentile(0.99), result.percentile(0.999),
+            result.bytesPerOp());
+    }
+    
+    /**
+     * 多輪測量的彙總
+     */
+    private static class Result {
+        private final double[] opsPerSecond;
+        private long totalOps;
+        private long totalNanos;
+        private long totalAllocated;
+        private long[] samples = new long[0];
+        
+        Result(int iterations) {
+            opsPerSecond = new double[iterations];
+        }
+        
+        void add(int iteration, long ops, long nanos, long allocated, long[] iterationSamples) {
+            opsPerSecond[iteration] = ops * 1e9 / nanos;
+            totalOps += ops;
+            totalNanos += nanos;
+            totalAllocated += Math.max(0, allocated);
+            int used = (int) Math.min(ops, iterationSamples.length);
+            long[] merged = Arrays.copyOf(samples, samples.length + used);
+            System.arraycopy(iterationSamples, 0, merged, samples.length, used);
+            samples = merged;
+        }
+        
+        double meanOpsPerSecond() {
+            return Arrays.stream(opsPerSecond).average().orElse(0);
+        }
+        
+        /**
+         * 各輪吞吐量的標準差佔平均值的百分比
+         */
+        double errorPercent() {
+            double mean = meanOpsPerSecond();
+            double variance = Arrays.stream(opsPerSecond).map(x -> (x - mean) * (x - mean)).sum()
+                / Math.max(1, opsPerSecond.length - 1);
+            return mean == 0 ? 0 : Math.sqrt(variance) / mean * 100;
+        }
+        
+        double averageNanos() {
+            return (double) totalNanos / totalOps;
+        }
+        
+        long percentile(double p) {
+            if (samples.length == 0) {
+                return 0;
+            }
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+        }
+        
+        double bytesPerOp() {
+            return (double) totalAllocated / totalOps;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package bench;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.layout.GridPane;
+import javafx.scene.paint.Color;
+
+import main.CalendarCell;
+import main.CanvasMonthView;
+import main.CellGridMonthView;
+import main.CompactEventStore;
+import main.DateNavigator;
+import main.Event;
+import main.EventChip;
+import main.EventManager;
+import main.EventStore;
+import main.IndexedEventStore;
+import main.MonthModel;
+import main.MonthView;
+import main.SearchIndex;
+import main.UIFactory;
+
+/**
+ * 日曆熱點路徑的基準測試：EventManager的增刪與查詢、DateNavigator的月份切換、
+ * 月份版面建立、搜尋，以及UIFactory創建節點和重繪整個月份
+ *
+ * 用法：./benchmark.sh [名稱篩選正規表示式]
+ * 系統屬性：
+ *   bench.sizes       事件數量，以逗號分隔，預設1000,100000,1000000
+ *   bench.warmup      預熱輪數，預設3
+ *   bench.iterations  測量輪數，預設5
+ *   bench.millis      每輪毫秒數，預設1000
+ *   bench.fx          是否執行需要JavaFX執行緒的基準，預設true
+ */
+public class CalendarBenchmarks {
+    // 事件分佈的起始日期和天數（約10年）
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    private static final int DAY_SPAN = 3650;
+    private static final int DISTINCT_WORDS = 1000;
+    private static final Color[] COLORS = {
+        Color.web("#1e90ff"), Color.web("#ff6347"), Color.web("#32cd32"), Color.web("#ffa500"),
+        Color.web("#9370db"), Color.web("#20b2aa"), Color.web("#ff69b4"), Color.web("#808080"),
+        Color.web("#daa520"), Color.web("#4682b4")
+    };
+    // 預先產生的隨機序列長度，操作中以遞增游標取用，避免計入亂數本身的開銷
+    private static final int RANDOM_TABLE_SIZE = 1 << 16;
+    
+    private final BenchmarkRunner runner;
+    private final boolean fxEnabled;
+    private final String[] words = new String[DISTINCT_WORDS];
+    private final int[] randomDays = new int[RANDOM_TABLE_SIZE];
+    private final int[] randomWords = new int[RANDOM_TABLE_SIZE];
+    private int cursor;
+    
+    private CalendarBenchmarks(BenchmarkRunner runner, boolean fxEnabled) {
+        this.runner = runner;
+        this.fxEnabled = fxEnabled;
+        Random random = new Random(42);
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "task" + Integer.toString(i, 36) + (i % 7 == 0 ? " 會議" : " review");
+        }
+        for (int i = 0; i < RANDOM_TABLE_SIZE; i++) {
+            randomDays[i] = random.nextInt(DAY_SPAN);
+            randomWords[i] = random.nextInt(DISTINCT_WORDS);
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Pattern filter = Pattern.compile(args.length > 0 ? args[0] : "");
+        int[] sizes = Arrays.stream(System.getProperty("bench.sizes", "1000,100000,1000000").split(","))
+            .map(String::trim)
+            .mapToInt(Integer::parseInt)
+            .toArray();
+        BenchmarkRunner runner = new BenchmarkRunner(filter,
+            Integer.getInteger("bench.warmup", 3),
+            Integer.getInteger("bench.iterations", 5),
+            Long.getLong("bench.millis", 1000));
+        boolean fxEnabled = Boolean.parseBoolean(System.getProperty("bench.fx", "true")) && startFx();
+        
+        CalendarBenchmarks benchmarks = new CalendarBenchmarks(runner, fxEnabled);
+        runner.printHeader();
+        benchmarks.runDateNavigator();
+        for (int size : sizes) {
+            benchmarks.runEventManager("indexed", IndexedEventStore::new, size);
+            benchmarks.runEventManager("compact", CompactEventStore::new, size);
+        }
+        System.out.println("sink=" + runner.getSink());
+        if (fxEnabled) {
+            Platform.exit();
+        }
+    }
+    
+    /**
+     * 啟動JavaFX執行緒；無法啟動（例如沒有顯示器又沒有Monocle）時返回false並略過相關基準
+     */
+    private static boolean startFx() {
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            Platform.startup(started::countDown);
+            return started.await(10, TimeUnit.SECONDS);
+        } catch (Throwable e) {
+            System.err.println("無法啟動JavaFX，略過節點相關基準: " + e);
+            return false;
+        }
+    }
+    
+    private void runDateNavigator() throws Exception {
+        DateNavigator navigator = new DateNavigator(new EventManager());
+        runner.run("dateNavigator/nextMonth+title", () -> {
+            navigator.goToNextMonth();
+            return navigator.getMonthYearText().length();
+        });
+        runner.run("dateNavigator/goToDate+monthInfo", () -> {
+            navigator.goToDate(nextDay());
+            return navigator.getFirstDayOfMonthWeekday() + navigator.getDaysInMonth();
+        });
+    }
+    
+    /**
+     * 對指定存儲和事件數量執行EventManager、版面、搜尋及界面相關基準
+     */
+    private void runEventManager(String storeName, Supplier<EventStore> stores, int size) throws Exception {
+        String prefix = storeName + "/" + size + "/";
+        if (!isAnySelected(prefix)) {
+            return;
+        }
+        EventManager eventManager = createEventManager(stores.get());
+        eventManager.addAll(generateEvents(size));
+        
+        runner.run("eventManager/" + prefix + "add+remove", () -> {
+            Event event = new Event(nextDay(), LocalTime.NOON, nextWord(), COLORS[cursor % COLORS.length]);
+            eventManager.addEvent(event);
+            eventManager.removeEvent(event);
+            return event.getId();
+        });
+        runner.run("eventManager/" + prefix + "getEventsForDate", () ->
+            eventManager.getEventsForDate(nextDay()).size());
+        runner.run("eventManager/" + prefix + "getEventsForMonth", () ->
+            eventManager.getEventsForMonth(YearMonth.from(nextDay())).size());
+        runner.run("monthModel/" + prefix + "build", () ->
+            MonthModel.build(YearMonth.from(nextDay()), eventManager).getRowCount());
+        runSearch(prefix, stores, size);
+        
+        if (fxEnabled) {
+            runFx(prefix, eventManager);
+        }
+    }
+    
+    /**
+     * 在另一個註冊了搜尋索引的EventManager上搜尋，其他基準的EventManager不帶索引，增刪的測量不受影響
+     */
+    private void runSearch(String prefix, Supplier<EventStore> stores, int size) throws Exception {
+        String name = "searchIndex/" + prefix + "search";
+        if (!runner.isSelected(name)) {
+            return;
+        }
+        SearchIndex searchIndex = new SearchIndex();
+        EventManager eventManager = createEventManager(stores.get());
+        eventManager.addMutationListener(searchIndex);
+        eventManager.addAll(generateEvents(size));
+        runner.run(name, () -> {
+            String word = nextWord();
+            // 去掉最後幾個字元，模擬逐字輸入時最後一個詞只輸入了前綴
+            return searchIndex.search(word.substring(0, word.length() - 3), 50).size();
+        });
+    }
+    
+    /**
+     * 在建立EventManager的執行緒上修改，變更直接在此執行緒通知，不需要JavaFX
+     */
+    private static EventManager createEventManager(EventStore store) {
+        EventManager eventManager = new EventManager(store);
+        eventManager.setUiExecutor(Runnable::run);
+        return eventManager;
+    }
+    
+    /**
+     * 需要在JavaFX執行緒上執行的節點創建和月份重繪基準
+     */
+    private void runFx(String prefix, EventManager eventManager) throws Exception {
+        UIFactory uiFactory = new UIFactory(eventManager, null);
+        Event sample = new Event(FIRST_DAY, LocalTime.NOON, words[0], COLORS[0]);
+        List<Event> dayEvents = eventManager.getEventsForDate(FIRST_DAY.plusDays(DAY_SPAN / 2));
+        // 預先建立12個月份的版面，只測量重繪本身
+        MonthModel[] models = new MonthModel[12];
+        for (int i = 0; i < models.length; i++) {
+            models[i] = MonthModel.build(YearMonth.from(FIRST_DAY).plusMonths(i * 7L), eventManager);
+        }
+        
+        runner.runOn(Platform::runLater, "uiFactory/" + prefix + "createEventLabel", () ->
+            uiFactory.createEventLabel(sample).getChildren().size());
+        runner.runOn(Platform::runLater, "uiFactory/" + prefix + "acquire+releaseEventChip", () -> {
+            EventChip chip = uiFactory.acquireEventChip(sample);
+            uiFactory.releaseEventChip(chip);
+            return chip.getChildren().size();
+        });
+        runner.runOn(Platform::runLater, "uiFactory/" + prefix + "createCalendarCell+bind", () -> {
+            CalendarCell cell = uiFactory.createCalendarCell();
+            cell.bind(FIRST_DAY, false, dayEvents);
+            return cell.getChildren().size();
+        });
+        
+        runRender("monthView/cellGrid/" + prefix + "render", new CellGridMonthView(uiFactory), models);
+        runRender("monthView/canvas/" + prefix + "render", new CanvasMonthView(null), models);
+    }
+    
+    /**
+     * 重繪整個月份並完成CSS和排版，相當於切換月份時updateCalendar和下一個pulse的工作
+     */
+    private void runRender(String name, MonthView view, MonthModel[] models) throws Exception {
+        if (!runner.isSelected(name)) {
+            return;
+        }
+        GridPane grid = new GridPane();
+        grid.setHgap(5);
+        grid.setVgap(5);
+        runOnFx(() -> {
+            new Scene(grid, 760, 560).getStylesheets().add(
+                CalendarBenchmarks.class.getResource("/main/resources/styles.css").toExternalForm());
+            view.attach(grid);
+        });
+        int[] index = new int[1];
+        runner.runOn(Platform::runLater, name, () -> {
+            view.render(models[index[0]++ % models.length]);
+            grid.applyCss();
+            grid.layout();
+            return grid.getChildren().size();
+        });
+    }
+    
+    private boolean isAnySelected(String prefix) {
+        for (String group : new String[] {"eventManager/", "monthModel/", "searchIndex/",
+                "uiFactory/", "monthView/cellGrid/", "monthView/canvas/"}) {
+            if (runner.isSelected(group + prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private List<Event> generateEvents(int size) {
+        Random random = new Random(size);
+        List<Event> events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            events.add(new Event(
+                FIRST_DAY.plusDays(random.nextInt(DAY_SPAN)),
+                LocalTime.of(random.nextInt(24), random.nextInt(4) * 15),
+                words[random.nextInt(DISTINCT_WORDS)],
+                COLORS[random.nextInt(COLORS.length)]
+            ));
+        }
+        return events;
+    }
+    
+    private LocalDate nextDay() {
+        return FIRST_DAY.plusDays(randomDays[cursor++ & (RANDOM_TABLE_SIZE - 1)]);
+    }
+    
+    private String nextWord() {
+        return words[randomWords[cursor++ & (RANDOM_TABLE_SIZE - 1)]];
+    }
+    
+    private static void runOnFx(Runnable action) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                action.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+}
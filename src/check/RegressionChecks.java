@@ -0,0 +1,533 @@
+package check;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javafx.scene.paint.Color;
+
+import main.Event;
+import main.EventHistory;
+import main.EventJournal;
+import main.EventManager;
+import main.EventStore;
+import main.IndexedEventStore;
+import main.LongIntMap;
+import main.PersistentEventMap;
+import main.RecurrenceRule;
+import main.RecurringEvent;
+import main.ReminderScheduler;
+import main.SegmentedEventStore;
+
+/**
+ * 不需要JavaFX執行緒的回歸檢查：每項檢查以公開API重現一個曾經出錯或容易出錯的情境
+ *
+ * 用法：./check.sh [名稱篩選正規表示式]
+ * 任何一項失敗時以狀態碼1結束。
+ */
+public class RegressionChecks {
+    // 小到只容納少數事件的分段記憶體預算，使月份很快被淘汰
+    private static final long TINY_BUDGET_BYTES = 2000;
+    
+    /**
+     * 一項檢查，失敗時拋出例外
+     */
+    private interface Check {
+        void run() throws Exception;
+    }
+    
+    private final Pattern filter;
+    private final List<String> failures = new ArrayList<>();
+    private int passed;
+    
+    private RegressionChecks(Pattern filter) {
+        this.filter = filter;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        RegressionChecks checks = new RegressionChecks(Pattern.compile(args.length > 0 ? args[0] : ""));
+        checks.runLongIntMapChecks();
+        checks.runPersistentMapChecks();
+        checks.runHistoryChecks();
+        checks.runJournalChecks();
+        checks.runSegmentChecks();
+        checks.runReminderChecks();
+        
+        System.out.println(checks.passed + " 項通過，" + checks.failures.size() + " 項失敗");
+        for (String failure : checks.failures) {
+            System.out.println("  失敗: " + failure);
+        }
+        System.exit(checks.failures.isEmpty() ? 0 : 1);
+    }
+    
+    private void check(String name, Check check) {
+        if (!filter.matcher(name).find()) {
+            return;
+        }
+        try {
+            check.run();
+            passed++;
+            System.out.println("通過  " + name);
+        } catch (Throwable e) {
+            failures.add(name + " - " + e);
+            System.out.println("失敗  " + name + " - " + e);
+        }
+    }
+    
+    static void expect(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+    
+    static void expectEquals(Object expected, Object actual, String what) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(what + ": 預期 " + expected + "，實際 " + actual);
+        }
+    }
+    
+    /**
+     * LongIntMap：隨機的增刪查與HashMap比對，鍵集中在小範圍內使探測鏈和刪除後的回填經常發生
+     */
+    private void runLongIntMapChecks() {
+        check("longIntMap/matchesHashMap", () -> {
+            Random random = new Random(1);
+            LongIntMap map = new LongIntMap(4);
+            Map<Long, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 200_000; i++) {
+                long key = random.nextInt(4000) - 2000;
+                if (random.nextInt(3) == 0) {
+                    map.remove(key);
+                    expected.remove(key);
+                } else {
+                    int value = random.nextInt(1000);
+                    map.put(key, value);
+                    expected.put(key, value);
+                }
+            }
+            expectEquals(expected.size(), map.size(), "項目數");
+            for (long key = -2000; key < 2000; key++) {
+                expectEquals(expected.getOrDefault(key, LongIntMap.MISSING), map.get(key), "鍵 " + key);
+            }
+        });
+    }
+    
+    /**
+     * PersistentEventMap：舊版本不受之後的修改影響，diff只列出兩個版本的差異
+     */
+    private void runPersistentMapChecks() {
+        check("persistentMap/versionsStayIntact", () -> {
+            Random random = new Random(2);
+            List<Event> pool = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                pool.add(new Event(LocalDate.of(2024, 1, 1), LocalTime.NOON, "e" + i, Color.RED));
+            }
+            List<PersistentEventMap> versions = new ArrayList<>();
+            List<Map<Long, Event>> expectedVersions = new ArrayList<>();
+            PersistentEventMap map = PersistentEventMap.EMPTY;
+            Map<Long, Event> expected = new HashMap<>();
+            for (int i = 0; i < 30_000; i++) {
+                Event event = pool.get(random.nextInt(pool.size()));
+                if (random.nextInt(3) == 0) {
+                    map = map.without(event.getId());
+                    expected.remove(event.getId());
+                } else {
+                    map = map.with(event);
+                    expected.put(event.getId(), event);
+                }
+                if (i % 1000 == 0) {
+                    versions.add(map);
+                    expectedVersions.add(new HashMap<>(expected));
+                }
+            }
+            for (int v = 0; v < versions.size(); v++) {
+                expectSameContents(expectedVersions.get(v), versions.get(v), "版本 " + v);
+            }
+            for (int v = 1; v < versions.size(); v++) {
+                expectDiff(expectedVersions.get(v - 1), expectedVersions.get(v), versions.get(v - 1), versions.get(v));
+            }
+        });
+        check("persistentMap/editorSnapshots", () -> {
+            Random random = new Random(3);
+            PersistentEventMap.Editor editor = new PersistentEventMap.Editor(PersistentEventMap.EMPTY);
+            Map<Long, Event> expected = new HashMap<>();
+            List<Event> added = new ArrayList<>();
+            PersistentEventMap earlier = null;
+            Map<Long, Event> expectedEarlier = null;
+            for (int i = 0; i < 10_000; i++) {
+                if (!added.isEmpty() && random.nextInt(4) == 0) {
+                    Event event = added.get(random.nextInt(added.size()));
+                    editor.remove(event.getId());
+                    expected.remove(event.getId());
+                } else {
+                    Event event = new Event(LocalDate.of(2024, 1, 1), LocalTime.NOON, "e" + i, Color.RED);
+                    added.add(event);
+                    editor.put(event);
+                    expected.put(event.getId(), event);
+                }
+                if (i == 5000) {
+                    earlier = editor.snapshot();
+                    expectedEarlier = new HashMap<>(expected);
+                }
+            }
+            expect(editor.snapshot() == editor.snapshot(), "沒有修改時應返回同一版本");
+            expectSameContents(expected, editor.snapshot(), "最新版本");
+            // 快照之後編輯器原地修改的節點都是新複製的，舊快照不變
+            expectSameContents(expectedEarlier, earlier, "較早的快照");
+        });
+    }
+    
+    /**
+     * EventHistory：復原和重做回到各步驟的內容，跨越多次通知的步驟只算一步，步驟數有上限
+     */
+    private void runHistoryChecks() {
+        check("history/undoRedo", () -> {
+            EventManager eventManager = managerFor(new IndexedEventStore());
+            EventHistory history = new EventHistory(eventManager);
+            LocalDate date = LocalDate.of(2024, 5, 1);
+            Event event = new Event(date, LocalTime.NOON, "first", Color.RED);
+            eventManager.addEvent(event);
+            eventManager.updateEvent(event, edited -> edited.setDescription("second"));
+            eventManager.removeEvent(event);
+            expectEquals("", describe(eventManager.getEventsForDate(date)), "刪除後");
+            expect(history.undo(), "復原刪除");
+            expectEquals("second", describe(eventManager.getEventsForDate(date)), "復原刪除後");
+            expect(history.undo(), "復原修改");
+            expectEquals("first", describe(eventManager.getEventsForDate(date)), "復原修改後");
+            expect(history.undo(), "復原新增");
+            expectEquals("", describe(eventManager.getEventsForDate(date)), "復原新增後");
+            expect(!history.undo(), "沒有更多步驟");
+            expect(history.redo(), "重做新增");
+            expect(history.redo(), "重做修改");
+            expectEquals("second", describe(eventManager.getEventsForDate(date)), "重做後");
+        });
+        check("history/openStepIsOneStep", () -> {
+            EventManager eventManager = managerFor(new IndexedEventStore());
+            EventHistory history = new EventHistory(eventManager);
+            eventManager.addEvent(new Event(LocalDate.of(2024, 5, 1), LocalTime.NOON, "before", Color.RED));
+            history.beginStep();
+            for (int chunk = 0; chunk < 300; chunk++) {
+                List<Event> events = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    events.add(new Event(LocalDate.of(2024, 6, 1 + i), LocalTime.NOON, "imported", Color.BLUE));
+                }
+                eventManager.addAll(events);
+            }
+            expect(!history.canUndo(), "步驟結束前不能復原");
+            history.endStep();
+            expect(history.undo(), "復原匯入");
+            expectEquals(1, eventManager.getEventCount(), "復原匯入後的事件數");
+            expect(history.undo(), "復原匯入之前的新增");
+            expectEquals(0, eventManager.getEventCount(), "全部復原後的事件數");
+        });
+        check("history/stepLimit", () -> {
+            EventManager eventManager = managerFor(new IndexedEventStore());
+            EventHistory history = new EventHistory(eventManager);
+            for (int i = 0; i < 120; i++) {
+                eventManager.addEvent(new Event(LocalDate.of(2024, 5, 1), LocalTime.NOON, "e" + i, Color.RED));
+            }
+            int undone = 0;
+            while (history.undo()) {
+                undone++;
+            }
+            expectEquals(100, undone, "可復原的步驟數");
+            expectEquals(20, eventManager.getEventCount(), "復原後剩下的事件數");
+        });
+    }
+    
+    /**
+     * EventJournal：關閉後重新開啟恢復最後的內容，崩潰留下的不完整尾端記錄被截斷
+     */
+    private void runJournalChecks() {
+        check("journal/recover", () -> {
+            Path directory = Files.createTempDirectory("journal");
+            writeJournal(directory);
+            EventJournal reopened = EventJournal.open(directory);
+            List<Event> recovered = reopened.takeRecoveredEvents();
+            reopened.close();
+            expectEquals("edited,kept,weekly", describeSorted(recovered), "恢復的事件");
+            for (Event event : recovered) {
+                expectEquals(event.getDescription().equals("weekly"), event instanceof RecurringEvent,
+                    event.getDescription() + " 是否為重複事件");
+            }
+        });
+        check("journal/truncatedTail", () -> {
+            Path directory = Files.createTempDirectory("journal");
+            writeJournal(directory);
+            // 模擬寫到一半時崩潰：尾端只有一筆記錄的長度和部分內容
+            Files.write(directory.resolve("events.journal"), new byte[] {0, 0, 0, 40, 1, 2, 3},
+                StandardOpenOption.APPEND);
+            EventJournal journal = EventJournal.open(directory);
+            expectEquals("edited,kept,weekly", describeSorted(journal.takeRecoveredEvents()), "截斷後恢復的事件");
+            EventManager eventManager = managerFor(new IndexedEventStore());
+            eventManager.addMutationListener(journal);
+            eventManager.addEvent(new Event(LocalDate.of(2024, 3, 4), LocalTime.NOON, "later", Color.RED));
+            journal.close();
+            EventJournal reopened = EventJournal.open(directory);
+            expectEquals("edited,kept,later,weekly", describeSorted(reopened.takeRecoveredEvents()),
+                "截斷後追加的事件");
+            reopened.close();
+        });
+    }
+    
+    /**
+     * 寫入一段包含新增、修改、刪除和重複事件的日誌後關閉
+     */
+    private static void writeJournal(Path directory) throws Exception {
+        EventJournal journal = EventJournal.open(directory);
+        EventManager eventManager = managerFor(new IndexedEventStore());
+        eventManager.addMutationListener(journal);
+        LocalDate date = LocalDate.of(2024, 3, 1);
+        Event edited = new Event(date, LocalTime.NOON, "original", Color.RED);
+        Event removed = new Event(date, LocalTime.NOON, "removed", Color.RED);
+        eventManager.addEvent(edited);
+        eventManager.addEvent(removed);
+        eventManager.addEvent(new Event(date.plusDays(1), LocalTime.NOON, "kept", Color.BLUE));
+        eventManager.addEvent(new RecurringEvent(date, LocalTime.of(9, 0), "weekly", Color.GREEN,
+            RecurrenceRule.of(RecurrenceRule.Frequency.WEEKLY)));
+        eventManager.updateEvent(edited, event -> {
+            event.setDescription("edited");
+            event.setDate(date.plusDays(2));
+        });
+        eventManager.removeEvent(removed);
+        journal.close();
+    }
+    
+    /**
+     * 按月分段存儲：月份被淘汰、重新載入後對原本的事件物件所做的修改都要寫回
+     */
+    private void runSegmentChecks() {
+        check("segment/editAfterReload", () -> {
+            Path directory = Files.createTempDirectory("segments");
+            LocalDate date = LocalDate.of(2024, 1, 5);
+            SegmentedEventStore store = new SegmentedEventStore(directory, TINY_BUDGET_BYTES);
+            EventManager eventManager = managerFor(store);
+            Event event = new Event(date, LocalTime.NOON, "original", Color.RED);
+            eventManager.addEvent(event);
+            evictAllBut(eventManager, 1);
+            // 重新載入後存儲中是另一個物件，界面仍持有原本的物件
+            expectEquals("original", describe(eventManager.getEventsForDate(date)), "重新載入");
+            event.setDescription("edited");
+            eventManager.updateEvent(event);
+            expectEquals("edited", describe(eventManager.getEventsForDate(date)), "修改後");
+            store.close();
+            expectEquals("edited", describe(reopen(directory).getEventsForDate(date)), "重新開啟後");
+        });
+        check("segment/moveAfterEviction", () -> {
+            Path directory = Files.createTempDirectory("segments");
+            LocalDate oldDate = LocalDate.of(2024, 1, 5);
+            LocalDate newDate = LocalDate.of(2024, 7, 9);
+            SegmentedEventStore store = new SegmentedEventStore(directory, TINY_BUDGET_BYTES);
+            EventManager eventManager = managerFor(store);
+            Event event = new Event(oldDate, LocalTime.NOON, "moved", Color.RED);
+            eventManager.addEvent(event);
+            evictAllBut(eventManager, 1);
+            event.setDate(newDate);
+            eventManager.updateEvent(event);
+            store.close();
+            EventManager reopened = reopen(directory);
+            expectEquals("", describe(reopened.getEventsForDate(oldDate)), "原本的日期");
+            expectEquals("moved", describe(reopened.getEventsForDate(newDate)), "新的日期");
+        });
+        check("segment/removeAfterEviction", () -> {
+            Path directory = Files.createTempDirectory("segments");
+            LocalDate date = LocalDate.of(2024, 1, 5);
+            SegmentedEventStore store = new SegmentedEventStore(directory, TINY_BUDGET_BYTES);
+            EventManager eventManager = managerFor(store);
+            Event event = new Event(date, LocalTime.NOON, "removed", Color.RED);
+            eventManager.addEvent(event);
+            evictAllBut(eventManager, 1);
+            eventManager.removeEvent(event);
+            store.close();
+            expectEquals("", describe(reopen(directory).getEventsForDate(date)), "刪除後");
+        });
+        check("segment/loadListenerOnReload", () -> {
+            Path directory = Files.createTempDirectory("segments");
+            LocalDate date = LocalDate.of(2024, 1, 5);
+            SegmentedEventStore store = new SegmentedEventStore(directory, TINY_BUDGET_BYTES);
+            EventManager eventManager = managerFor(store);
+            eventManager.addEvent(new Event(date, LocalTime.NOON, "stored", Color.RED));
+            List<String> loads = new ArrayList<>();
+            store.setLoadListener(events -> loads.add(describe(events)));
+            evictAllBut(eventManager, 1);
+            loads.clear();
+            eventManager.getEventsForDate(date);
+            expectEquals(List.of("stored"), loads, "重新載入一月時收到的事件");
+            eventManager.getEventsForDate(date);
+            expectEquals(1, loads.size(), "已載入的月份不再通知");
+        });
+    }
+    
+    /**
+     * ReminderScheduler的時間輪：以位移的時鐘把目前時間放在較高層格子的邊界前，
+     * 提醒需經過各層分散才會到期；已送出的提醒在修改事件或重新啟動後不再送出
+     */
+    private void runReminderChecks() {
+        check("reminder/firesAcrossWheelLevels", () -> {
+            Path stateFile = Files.createTempDirectory("reminders").resolve("reminders.state");
+            long startSecond = wheelBoundaryAhead();
+            Clock clock = clockAt(startSecond - 2);
+            BlockingQueue<String> fired = new LinkedBlockingQueue<>();
+            ReminderScheduler scheduler = new ReminderScheduler(
+                (event, start, missed) -> fired.add(event.getDescription()), stateFile, clock);
+            scheduler.setUiExecutor(Runnable::run);
+            EventManager eventManager = managerFor(new IndexedEventStore());
+            eventManager.addMutationListener(scheduler);
+            Event due = reminderAt(startSecond + 1, "due");
+            Event cancelled = reminderAt(startSecond + 1, "cancelled");
+            eventManager.addEvent(due);
+            eventManager.addEvent(cancelled);
+            eventManager.addEvent(reminderAt(startSecond + 86_400, "tomorrow"));
+            eventManager.removeEvent(cancelled);
+            scheduler.start();
+            try {
+                expectEquals("due", fired.poll(10, TimeUnit.SECONDS), "到期的提醒");
+                expectEquals(null, fired.poll(1500, TimeUnit.MILLISECONDS), "刪除或未到期的提醒");
+                expectEquals(1, scheduler.getPendingCount(), "待觸發的提醒數");
+                
+                // 只改描述不影響提醒，改了時間但仍是同一次已送出的發生也不再提醒
+                eventManager.updateEvent(due, event -> event.setDescription("renamed"));
+                eventManager.updateEvent(due, event -> event.setReminder(Duration.ofMinutes(5)));
+                expectEquals(null, fired.poll(1500, TimeUnit.MILLISECONDS), "修改後再次送出");
+            } finally {
+                scheduler.shutdown();
+            }
+            
+            ReminderScheduler restarted = new ReminderScheduler(
+                (event, start, missed) -> fired.add(event.getDescription()), stateFile, clock);
+            restarted.eventAdded(reminderAt(startSecond + 1, "reloaded"));
+            expectEquals(0, restarted.getPendingCount(), "重新啟動後已提醒過的事件");
+        });
+    }
+    
+    /**
+     * 目前時間之後第一個時間輪第三層（4096秒）格子的邊界，至少在5秒之後
+     */
+    private static long wheelBoundaryAhead() {
+        return (Instant.now().getEpochSecond() + 5 + 4095) / 4096 * 4096;
+    }
+    
+    /**
+     * 以UTC計時、目前時間為epochSecond並隨實際時間前進的時鐘
+     */
+    private static Clock clockAt(long epochSecond) {
+        return Clock.offset(Clock.systemUTC(), Duration.between(Instant.now(), Instant.ofEpochSecond(epochSecond)));
+    }
+    
+    /**
+     * 在epochSecond（UTC）開始、準時提醒的事件
+     */
+    private static Event reminderAt(long epochSecond, String description) {
+        LocalDateTime start = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+        Event event = new Event(start.toLocalDate(), start.toLocalTime(), description, Color.RED);
+        event.setReminder(Duration.ZERO);
+        return event;
+    }
+    
+    /**
+     * 在目前執行緒直接通知變更的EventManager，不需要JavaFX
+     */
+    private static EventManager managerFor(EventStore store) {
+        EventManager eventManager = new EventManager(store);
+        eventManager.setUiExecutor(Runnable::run);
+        return eventManager;
+    }
+    
+    /**
+     * 重新開啟分段目錄，讀到的是磁碟上（或待寫入）的內容
+     */
+    private static EventManager reopen(Path directory) throws Exception {
+        return managerFor(new SegmentedEventStore(directory, TINY_BUDGET_BYTES));
+    }
+    
+    /**
+     * 在其他月份加入事件，使預算只容得下最近的月份，keepMonth之前的月份都被淘汰
+     */
+    private static void evictAllBut(EventManager eventManager, int keepMonth) {
+        for (int month = keepMonth + 1; month <= 12; month++) {
+            for (int i = 0; i < 5; i++) {
+                eventManager.addEvent(new Event(LocalDate.of(2024, month, 3), LocalTime.NOON, "filler", Color.GRAY));
+            }
+        }
+    }
+    
+    /**
+     * 一天中事件描述以逗號連接
+     */
+    private static String describe(List<Event> events) {
+        StringBuilder text = new StringBuilder();
+        for (Event event : events) {
+            if (text.length() > 0) {
+                text.append(",");
+            }
+            text.append(event.getDescription());
+        }
+        return text.toString();
+    }
+    
+    /**
+     * 事件描述排序後以逗號連接
+     */
+    private static String describeSorted(List<Event> events) {
+        List<Event> sorted = new ArrayList<>(events);
+        sorted.sort((a, b) -> a.getDescription().compareTo(b.getDescription()));
+        return describe(sorted);
+    }
+    
+    private static void expectSameContents(Map<Long, Event> expected, PersistentEventMap map, String what) {
+        expectEquals(expected.size(), map.size(), what + "的大小");
+        for (Map.Entry<Long, Event> entry : expected.entrySet()) {
+            expect(map.get(entry.getKey()) == entry.getValue(), what + "缺少事件 " + entry.getKey());
+        }
+        expectEquals(expected.size(), map.values().size(), what + "走訪的事件數");
+    }
+    
+    /**
+     * diff列出的新增和移除與兩個預期內容的差集相同
+     */
+    private static void expectDiff(Map<Long, Event> fromExpected, Map<Long, Event> toExpected,
+            PersistentEventMap from, PersistentEventMap to) {
+        Set<Long> added = new HashSet<>();
+        Set<Long> removed = new HashSet<>();
+        from.diff(to, new PersistentEventMap.DiffVisitor() {
+            @Override
+            public void added(Event event) {
+                added.add(event.getId());
+            }
+            
+            @Override
+            public void removed(Event event) {
+                removed.add(event.getId());
+            }
+            
+            @Override
+            public void changed(Event fromEvent, Event toEvent) {
+                throw new AssertionError("事件沒有修改過: " + fromEvent.getId());
+            }
+        });
+        Set<Long> expectedAdded = new HashSet<>(toExpected.keySet());
+        expectedAdded.removeAll(fromExpected.keySet());
+        Set<Long> expectedRemoved = new HashSet<>(fromExpected.keySet());
+        expectedRemoved.removeAll(toExpected.keySet());
+        expectEquals(expectedAdded, added, "diff的新增");
+        expectEquals(expectedRemoved, removed, "diff的移除");
+    }
+}
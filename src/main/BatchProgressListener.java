@@ -0,0 +1,13 @@
+package main;
+
+/**
+ * 接收大批量事件操作進度的介面
+ */
+@FunctionalInterface
+public interface BatchProgressListener {
+    
+    /**
+     * 每處理固定數量的操作及全部完成時調用
+     */
+    void onProgress(int processed, int total);
+}
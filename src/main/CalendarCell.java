@@ -0,0 +1,126 @@
+package main;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+
+/**
+ * 可重複使用的日曆格子，切換月份時只重新綁定日期與事件，不重新創建節點
+ */
+public class CalendarCell extends VBox {
+    private final UIFactory uiFactory;
+    private final Label dateLabel = new Label();
+    private final VBox dateContainer = new VBox(dateLabel);
+    
+    // 目前綁定的日期，空白格子為null
+    private LocalDate date;
+    private boolean today;
+    
+    public CalendarCell(UIFactory uiFactory, CalendarController controller) {
+        this.uiFactory = uiFactory;
+        
+        setPrefSize(100, 80);
+        getStyleClass().add("calendar-cell");
+        setAlignment(Pos.TOP_LEFT);
+        
+        dateLabel.getStyleClass().add("date-label");
+        dateContainer.setAlignment(Pos.TOP_RIGHT);
+        dateContainer.setPrefWidth(Double.MAX_VALUE);
+        getChildren().add(dateContainer);
+        
+        // 點擊事件只註冊一次，依目前綁定的日期跳轉至日記頁面
+        setOnMouseClicked(e -> {
+            if (date != null) {
+                controller.handleDateClick(date);
+            }
+        });
+    }
+    
+    /**
+     * 將格子綁定到指定日期及其事件
+     */
+    public void bind(LocalDate date, boolean today, List<Event> events) {
+        this.date = date;
+        setVisible(true);
+        dateContainer.setVisible(true);
+        dateContainer.setManaged(true);
+        dateLabel.setText(String.valueOf(date.getDayOfMonth()));
+        setToday(today);
+        bindEvents(events);
+    }
+    
+    /**
+     * 顯示為月初前的空白格子
+     */
+    public void bindBlank() {
+        this.date = null;
+        setVisible(true);
+        dateContainer.setVisible(false);
+        dateContainer.setManaged(false);
+        setToday(false);
+        bindEvents(List.of());
+    }
+    
+    /**
+     * 隱藏月底之後不需要的格子
+     */
+    public void hide() {
+        bindBlank();
+        setVisible(false);
+    }
+    
+    /**
+     * 重新綁定事件標籤，優先沿用格子內已有的標籤，不足時才向工廠取用
+     */
+    public void bindEvents(List<Event> events) {
+        int chipCount = getChildren().size() - 1;
+        int reused = Math.min(chipCount, events.size());
+        
+        for (int i = 0; i < reused; i++) {
+            ((EventChip) getChildren().get(i + 1)).bind(events.get(i));
+        }
+        
+        if (chipCount > events.size()) {
+            // 多餘的標籤歸還給物件池
+            List<Node> surplus = getChildren().subList(events.size() + 1, chipCount + 1);
+            for (Node node : surplus) {
+                uiFactory.releaseEventChip((EventChip) node);
+            }
+            surplus.clear();
+        } else if (events.size() > chipCount) {
+            EventChip[] added = new EventChip[events.size() - chipCount];
+            for (int i = 0; i < added.length; i++) {
+                added[i] = uiFactory.acquireEventChip(events.get(chipCount + i));
+            }
+            getChildren().addAll(added);
+        }
+    }
+    
+    /**
+     * 獲取目前綁定的日期，空白格子返回null
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    /**
+     * 切換當天高亮，狀態不變時不觸碰樣式類別
+     */
+    private void setToday(boolean today) {
+        if (this.today == today) {
+            return;
+        }
+        this.today = today;
+        if (today) {
+            getStyleClass().add("today-cell");
+            dateLabel.getStyleClass().add("today-label");
+        } else {
+            getStyleClass().remove("today-cell");
+            dateLabel.getStyleClass().remove("today-label");
+        }
+    }
+}
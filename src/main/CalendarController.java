@@ -1,27 +1,64 @@
 package main;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import javafx.animation.AnimationTimer;
+import javafx.animation.PauseTransition;
+import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 import javafx.fxml.FXML;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ColorPicker;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextField;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.stage.FileChooser;
+import javafx.stage.Screen;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import javafx.util.StringConverter;
 
 /**
  * 主要的日曆控制器類，負責協調其他組件
  */
 public class CalendarController {
-
+    
     // FXML注入的UI組件
+    @FXML private VBox calendarContainer;
     @FXML private GridPane calendarGrid;
     @FXML private Label monthYearLabel;
     @FXML private Button previousButton;
@@ -29,37 +66,294 @@ public class CalendarController {
     @FXML private TextField eventDateField;
     @FXML private TextField eventNameField;
     @FXML private TextField eventTimeField;
+    @FXML private TextField eventEndTimeField;
     @FXML private ColorPicker eventColorPicker;
+    @FXML private ComboBox<RecurrenceRule.Frequency> eventRepeatBox;
+    @FXML private ComboBox<EventCalendar> eventCalendarBox;
+    @FXML private ComboBox<Duration> eventReminderBox;
     @FXML private ListView<Event> eventListView;
     @FXML private Label eventListDateLabel;
+    @FXML private TextField searchField;
+    @FXML private ListView<SearchIndex.Hit> searchResultsView;
+    @FXML private ProgressBar transferProgressBar;
+    @FXML private Button cancelTransferButton;
+    @FXML private Label transferStatusLabel;
+    @FXML private Button undoButton;
+    @FXML private Button redoButton;
+    @FXML private HBox calendarToggleBar;
+    @FXML private ComboBox<CategoryFilter.Mode> categoryModeBox;
+    @FXML private FlowPane categoryFilterBar;
     
     // 輔助類實例
     private EventManager eventManager;
     private UIFactory uiFactory;
     private DateNavigator dateNavigator;
     
+    // 搜尋結果最多顯示的筆數
+    private static final int MAX_SEARCH_RESULTS = 50;
+    // 衝突提示中最多列出的事件數
+    private static final int MAX_LISTED_CONFLICTS = 5;
+    // 多年總覽顯示的年數，到目前的年份為止
+    private static final int OVERVIEW_YEARS = 5;
+    // 提醒視窗的大小、與螢幕邊緣的距離及顯示秒數
+    private static final double REMINDER_WIDTH = 280;
+    private static final double REMINDER_HEIGHT = 80;
+    private static final double REMINDER_MARGIN = 16;
+    private static final int REMINDER_SECONDS = 10;
+    // 使用分段存儲時啟動後預先排入提醒的天數
+    private static final int REMINDER_PRELOAD_DAYS = 62;
+    
+    // 事件描述的全文索引
+    private SearchIndex searchIndex;
+    // 每天事件類別的索引及目前的類別篩選
+    private CategoryIndex categoryIndex;
+    private CategoryFilter categoryFilter = CategoryFilter.NONE;
+    // 每天事件數的計數器，供年度總覽使用
+    private EventDensityIndex densityIndex;
+    // 事件提醒的排程器
+    private ReminderScheduler reminderScheduler;
+    // 事件列表中按類別篩選後的選中日期事件
+    private FilteredList<Event> filteredDateEvents;
+    // 復原和重做記錄，使用分段存儲時為null
+    private EventHistory eventHistory;
+    
+    // 月曆格子區域的顯示方式
+    private MonthView monthView;
+    // 週檢視和日檢視，第一次切換時創建
+    private TimelineView timelineView;
+    // 年度及多年總覽，第一次切換時創建
+    private YearOverviewView yearOverviewView;
+    // 目前的檢視方式
+    private ViewMode viewMode = ViewMode.MONTH;
+    // 預先建立的月份版面
+    private MonthModelCache monthModelCache;
+    // 是否已安排在下一個脈衝重繪
+    private boolean renderPending;
+    // 每個脈衝調用一次，重繪後立即停止
+    private final AnimationTimer renderTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            renderPending = false;
+            updateCalendar();
+        }
+    };
+    
+    // 事件持久化日誌，無法開啟時為null
+    private EventJournal eventJournal;
+    // 額外日曆各自的日誌
+    private final List<EventJournal> calendarJournals = new ArrayList<>();
+    // 按月分段的存儲，未啟用時為null
+    private SegmentedEventStore segmentStore;
+    // 是否使用精簡存儲
+    private boolean compactStore;
+    
+    // F3切換的效能統計覆蓋層
+    private final MetricsOverlay metricsOverlay = new MetricsOverlay();
+    
+    // 正在執行的匯入或匯出，沒有時為null
+    private Task<Integer> transferTask;
+    
     // 當前選擇的事件
     private Event selectedEvent;
     // 日期格式轉換器
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     
+    /**
+     * 日曆區域的檢視方式
+     */
+    private enum ViewMode {
+        MONTH, WEEK, DAY, YEAR, YEARS
+    }
+    
     /**
      * 初始化方法，由FXML載入器自動調用
      */
     public void initialize() {
         // 創建輔助類實例
-        eventManager = new EventManager();
+        eventManager = createEventManager();
         dateNavigator = new DateNavigator(eventManager);
         uiFactory = new UIFactory(eventManager, this);
         
+        // 搜尋索引隨每次修改更新，在載入事件前註冊以索引已保存的事件
+        searchIndex = new SearchIndex();
+        eventManager.addMutationListener(searchIndex);
+        categoryIndex = new CategoryIndex();
+        eventManager.addMutationListener(categoryIndex);
+        densityIndex = new EventDensityIndex();
+        eventManager.addMutationListener(densityIndex);
+        reminderScheduler = new ReminderScheduler(this::showReminder, getDataDirectory().resolve("reminders.state"));
+        eventManager.addMutationListener(reminderScheduler);
+        if (segmentStore != null) {
+            // 分段存儲自行載入的事件不經過EventManager，月份載入時交給提醒排程器和索引；
+            // 月份的修改總在載入之後，淘汰後再次載入的事件已在計數內，只在第一次載入時計入
+            Set<YearMonth> seededMonths = new HashSet<>();
+            segmentStore.setLoadListener(events -> {
+                reminderScheduler.seed(events);
+                if (seededMonths.add(YearMonth.from(events.get(0).getDate()))) {
+                    categoryIndex.seed(events);
+                    densityIndex.seed(events);
+                }
+            });
+        }
+        
+        // 記錄每次修改以支援復原；分段存儲自行載入的事件不經過EventManager，不記錄；
+        // 版本記錄為每個事件保留一份副本，精簡存儲為節省記憶體而設，也不記錄
+        if (segmentStore == null && !compactStore) {
+            eventHistory = new EventHistory(eventManager);
+        }
+        
+        // 載入保存的事件，之後的修改寫入日誌
+        loadPersistedEvents();
+        loadAdditionalCalendars();
+        preloadReminderMonths();
+        reminderScheduler.start();
+        if (eventHistory != null) {
+            // 載入保存的事件不算可復原的步驟
+            eventHistory.clear();
+        }
+        
         // 初始化編輯面板
         initializeEditPanel();
         
+        // 設置搜尋框
+        initializeSearch();
+        
         // 設置月份切換按鈕
         setupNavigationButtons();
         
+        // 註冊效能統計MBean及覆蓋層快捷鍵
+        initializeMetrics();
+        
+        // 建立可重複使用的日曆格子
+        buildCalendarGrid();
+        
+        // 月份版面快取，事件變更時自動失效
+        monthModelCache = new MonthModelCache(eventManager);
+        
+        // 事件變更時只更新受影響的格子
+        eventManager.addEventChangeListener(this::handleEventChange);
+        
         // 初始顯示日曆
         updateCalendar();
+        updateUndoButtons();
+    }
+    
+    /**
+     * 按系統屬性選擇事件存儲：
+     * -Dcalendar.pagedStore=true 使用按月分段、按需載入的存儲（-Dcalendar.segmentBudgetMb 設定記憶體預算）；
+     * -Dcalendar.compactStore=true 使用精簡存儲以容納大量事件
+     */
+    private EventManager createEventManager() {
+        if (Boolean.getBoolean("calendar.pagedStore")) {
+            long budgetBytes = Long.getLong("calendar.segmentBudgetMb", 64) * 1024 * 1024;
+            try {
+                segmentStore = new SegmentedEventStore(getDataDirectory().resolve("segments"), budgetBytes);
+                return new EventManager(segmentStore);
+            } catch (IOException e) {
+                System.err.println("無法開啟月份分段目錄，改用記憶體存儲: " + e.getMessage());
+            }
+        }
+        if (Boolean.getBoolean("calendar.compactStore")) {
+            compactStore = true;
+            return new EventManager(new CompactEventStore());
+        }
+        return new EventManager();
+    }
+    
+    /**
+     * 資料目錄，可用 -Dcalendar.dataDir 指定
+     */
+    private Path getDataDirectory() {
+        return Paths.get(System.getProperty("calendar.dataDir",
+            System.getProperty("user.home") + "/.monthcalendar"));
+    }
+    
+    /**
+     * 開啟事件日誌並載入上次保存的事件；分段存儲自行保存一般事件，每次變更後寫回修改過的月份，
+     * 日誌只記錄重複事件
+     */
+    private void loadPersistedEvents() {
+        try {
+            if (segmentStore != null) {
+                eventManager.addEventChangeListener(change -> segmentStore.flush());
+                eventJournal = EventJournal.openForRecurring(getDataDirectory().resolve("segments"));
+            } else {
+                eventJournal = EventJournal.open(getDataDirectory());
+            }
+        } catch (IOException e) {
+            System.err.println("無法開啟事件日誌，本次修改不會保存: " + e.getMessage());
+            return;
+        }
+        eventManager.addAll(eventJournal.takeRecoveredEvents());
+        eventManager.getDefaultCalendar().addMutationListener(eventJournal);
+    }
+    
+    /**
+     * 使用分段存儲時預先載入近期的月份，使其中的提醒在這些月份被顯示前就已排入；
+     * 更後面的月份在載入時才排入
+     */
+    private void preloadReminderMonths() {
+        if (segmentStore == null) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        synchronized (segmentStore) {
+            segmentStore.getEventsInRange(today.minusDays(1).toEpochDay(),
+                today.plusDays(REMINDER_PRELOAD_DAYS).toEpochDay());
+        }
+    }
+    
+    /**
+     * 按 -Dcalendar.calendars=團隊,假日 建立額外的日曆，每個日曆的事件保存在資料目錄calendars下的同名日誌中
+     */
+    private void loadAdditionalCalendars() {
+        String names = System.getProperty("calendar.calendars", "");
+        for (String name : names.split(",")) {
+            if (name.isBlank()) {
+                continue;
+            }
+            EventCalendar calendar = eventManager.addCalendar(name.trim());
+            EventJournal journal;
+            try {
+                journal = EventJournal.open(getDataDirectory().resolve("calendars").resolve(calendar.getName()));
+            } catch (IOException e) {
+                System.err.println("無法開啟日曆「" + calendar.getName() + "」的日誌，本次修改不會保存: " + e.getMessage());
+                continue;
+            }
+            // 日誌不記錄日曆編號，恢復的事件按所在的日誌歸入日曆
+            List<Event> events = journal.takeRecoveredEvents();
+            for (Event event : events) {
+                event.setCalendarId(calendar.getId());
+            }
+            eventManager.addAll(events);
+            calendar.addMutationListener(journal);
+            calendarJournals.add(journal);
+        }
+    }
+    
+    /**
+     * 應用程式結束時調用，寫入尚未保存的修改
+     */
+    public void shutdown() {
+        if (transferTask != null) {
+            transferTask.cancel();
+        }
+        if (reminderScheduler != null) {
+            reminderScheduler.shutdown();
+        }
+        if (monthModelCache != null) {
+            monthModelCache.shutdown();
+        }
+        if (eventJournal != null) {
+            eventJournal.close();
+        }
+        for (EventJournal journal : calendarJournals) {
+            journal.close();
+        }
+        if (segmentStore != null) {
+            segmentStore.close();
+        }
     }
     
     /**
@@ -75,11 +369,51 @@ public class CalendarController {
         // 設置默認時間
         eventTimeField.setText("12:00");
         
+        // 重複選項，null表示不重複
+        eventRepeatBox.getItems().add(null);
+        eventRepeatBox.getItems().addAll(RecurrenceRule.Frequency.values());
+        eventRepeatBox.setConverter(new StringConverter<RecurrenceRule.Frequency>() {
+            @Override
+            public String toString(RecurrenceRule.Frequency frequency) {
+                return frequency == null ? "不重複" : frequency.getDisplayName();
+            }
+            
+            @Override
+            public RecurrenceRule.Frequency fromString(String text) {
+                return null;
+            }
+        });
+        eventRepeatBox.setValue(null);
+        
+        // 事件所屬的日曆，只有一個日曆時不需選擇
+        eventCalendarBox.getItems().setAll(eventManager.getCalendars());
+        eventCalendarBox.setValue(eventManager.getDefaultCalendar());
+        eventCalendarBox.setDisable(eventManager.getCalendars().size() == 1);
+        initializeCalendarToggles();
+        
+        // 提醒時間，null表示不提醒
+        eventReminderBox.getItems().add(null);
+        eventReminderBox.getItems().addAll(ReminderScheduler.PRESETS);
+        eventReminderBox.setConverter(new StringConverter<Duration>() {
+            @Override
+            public String toString(Duration reminder) {
+                return ReminderScheduler.describe(reminder);
+            }
+            
+            @Override
+            public Duration fromString(String text) {
+                return null;
+            }
+        });
+        eventReminderBox.setValue(null);
+        
         // 更新事件列表日期標籤
         updateEventListDateLabel();
         
-        // 設置ListView與事件列表綁定
-        eventListView.setItems(eventManager.getCurrentDateEvents());
+        // 設置ListView與事件列表綁定，按類別篩選時只顯示選中類別的事件
+        filteredDateEvents = new FilteredList<>(eventManager.getCurrentDateEvents());
+        eventListView.setItems(filteredDateEvents);
+        initializeCategoryFilter();
         
         // 設置ListView選擇事件監聽
         eventListView.getSelectionModel().selectedItemProperty().addListener(
@@ -92,15 +426,153 @@ public class CalendarController {
         );
     }
     
+    /**
+     * 每個日曆一個勾選框，切換時只更新該日曆有事件的格子；只有一個日曆時不顯示
+     */
+    private void initializeCalendarToggles() {
+        List<EventCalendar> calendars = eventManager.getCalendars();
+        if (calendars.size() == 1) {
+            return;
+        }
+        for (EventCalendar calendar : calendars) {
+            CheckBox toggle = new CheckBox(calendar.getName());
+            toggle.setSelected(calendar.isVisible());
+            toggle.selectedProperty().addListener(
+                (observable, wasSelected, selected) -> eventManager.setCalendarVisible(
+                    calendar, selected, displayedMonths()));
+            calendarToggleBar.getChildren().add(toggle);
+        }
+        calendarToggleBar.setVisible(true);
+        calendarToggleBar.setManaged(true);
+    }
+    
+    /**
+     * 目前顯示及已快取版面的月份，日曆顯示狀態改變時只需通知這些月份
+     */
+    private Set<YearMonth> displayedMonths() {
+        Set<YearMonth> months = new HashSet<>(monthModelCache.getCachedMonths());
+        months.add(dateNavigator.getCurrentYearMonth());
+        if (timelineView != null) {
+            months.addAll(timelineView.getDisplayedMonths());
+        }
+        return months;
+    }
+    
+    /**
+     * 類別篩選：每個類別一個顏色切換按鈕，加上任一或全部的組合方式
+     */
+    private void initializeCategoryFilter() {
+        categoryModeBox.getItems().setAll(CategoryFilter.Mode.values());
+        categoryModeBox.setConverter(new StringConverter<CategoryFilter.Mode>() {
+            @Override
+            public String toString(CategoryFilter.Mode mode) {
+                return mode == null ? "" : mode.getDisplayName();
+            }
+            
+            @Override
+            public CategoryFilter.Mode fromString(String text) {
+                return null;
+            }
+        });
+        categoryModeBox.setValue(CategoryFilter.Mode.ANY);
+        categoryModeBox.valueProperty().addListener((observable, oldMode, newMode) -> applyCategoryFilter());
+        updateCategoryButtons();
+    }
+    
+    /**
+     * 出現新的顏色時補上對應的按鈕，已有的按鈕保持選取狀態
+     */
+    private void updateCategoryButtons() {
+        List<Color> colors = categoryIndex.getCategoryColors();
+        for (int category = categoryFilterBar.getChildren().size(); category < colors.size(); category++) {
+            ToggleButton button = new ToggleButton();
+            button.setGraphic(new Rectangle(12, 12, colors.get(category)));
+            button.setTooltip(new Tooltip(colors.get(category).toString()));
+            button.selectedProperty().addListener((observable, wasSelected, selected) -> applyCategoryFilter());
+            categoryFilterBar.getChildren().add(button);
+        }
+    }
+    
+    /**
+     * 按目前選取的類別重新篩選，月曆格子以每天的類別遮罩判斷，不需重新查詢事件
+     */
+    private void applyCategoryFilter() {
+        long mask = 0;
+        for (int category = 0; category < categoryFilterBar.getChildren().size(); category++) {
+            if (((ToggleButton) categoryFilterBar.getChildren().get(category)).isSelected()) {
+                mask |= 1L << category;
+            }
+        }
+        categoryFilter = CategoryFilter.of(mask, categoryModeBox.getValue());
+        CategoryFilter filter = categoryFilter;
+        filteredDateEvents.setPredicate(filter.isActive()
+            ? event -> filter.matchesEvent(categoryIndex.categoryBit(event))
+            : null);
+        if (viewMode == ViewMode.MONTH) {
+            updateCalendar();
+        }
+    }
+    
+    /**
+     * 輸入時即時搜尋，點擊結果或按Enter跳到該事件
+     */
+    private void initializeSearch() {
+        searchField.textProperty().addListener((observable, oldText, newText) -> {
+            List<SearchIndex.Hit> hits = searchIndex.search(newText, MAX_SEARCH_RESULTS);
+            searchResultsView.getItems().setAll(hits);
+            boolean visible = !newText.isBlank();
+            searchResultsView.setVisible(visible);
+            searchResultsView.setManaged(visible);
+        });
+        searchField.setOnAction(e -> {
+            if (!searchResultsView.getItems().isEmpty()) {
+                jumpToSearchHit(searchResultsView.getItems().get(0));
+            }
+        });
+        searchResultsView.setOnMouseClicked(e -> {
+            SearchIndex.Hit hit = searchResultsView.getSelectionModel().getSelectedItem();
+            if (hit != null) {
+                jumpToSearchHit(hit);
+            }
+        });
+        searchResultsView.setOnKeyPressed(e -> {
+            SearchIndex.Hit hit = searchResultsView.getSelectionModel().getSelectedItem();
+            if (e.getCode() == KeyCode.ENTER && hit != null) {
+                jumpToSearchHit(hit);
+            }
+        });
+    }
+    
+    /**
+     * 切換到搜尋結果所在的月份和日期，並選擇該事件進行編輯
+     */
+    private void jumpToSearchHit(SearchIndex.Hit hit) {
+        LocalDate date = hit.getDate();
+        dateNavigator.goToDate(date);
+        updateCalendar();
+        
+        eventDateField.setText(date.format(dateFormatter));
+        updateEventList();
+        updateEventListDateLabel();
+        
+        for (Event event : eventManager.getEventsForDate(date)) {
+            if (event.getId() == hit.getEventId()) {
+                selectEventForEdit(event);
+                break;
+            }
+        }
+    }
+    
     /**
      * 設置月份導航按鈕
      */
     private void setupNavigationButtons() {
         if (previousButton != null) {
             previousButton.setOnAction(e -> {
-                dateNavigator.goToPreviousMonth();
-                updateCalendar();
+                navigate(-1);
+                requestCalendarRender();
             });
+            previousButton.setTooltip(new Tooltip("上一個月/週/日 (PageUp)，上一年 (Shift+PageUp)"));
             
             // 添加按鈕效果
             addButtonEffects(previousButton);
@@ -108,13 +580,124 @@ public class CalendarController {
         
         if (nextButton != null) {
             nextButton.setOnAction(e -> {
-                dateNavigator.goToNextMonth();
-                updateCalendar();
+                navigate(1);
+                requestCalendarRender();
             });
+            nextButton.setTooltip(new Tooltip("下一個月/週/日 (PageDown)，下一年 (Shift+PageDown)"));
             
             // 添加按鈕效果
             addButtonEffects(nextButton);
         }
+        
+        // 日曆加入場景後註冊鍵盤快捷鍵
+        calendarGrid.sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (newScene != null) {
+                newScene.addEventHandler(KeyEvent.KEY_PRESSED, this::handleNavigationKey);
+            }
+        });
+    }
+    
+    /**
+     * 向JMX公開效能統計；日曆加入場景後記錄每個脈衝的排版時間，並以F3切換統計覆蓋層
+     */
+    private void initializeMetrics() {
+        CalendarMetrics.registerMBeans();
+        calendarGrid.sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (newScene != null) {
+                CalendarMetrics.instrumentPulses(newScene);
+                newScene.addEventHandler(KeyEvent.KEY_PRESSED, e -> {
+                    if (e.getCode() == KeyCode.F3 && newScene.getWindow() != null) {
+                        metricsOverlay.toggle(newScene.getWindow());
+                        e.consume();
+                    }
+                });
+            }
+        });
+    }
+    
+    /**
+     * 鍵盤導航：PageUp/PageDown按目前的檢視方式切換月份、週或日，加Shift切換年份，Ctrl+T回到今天；
+     * Ctrl+Z復原，Ctrl+Y或Ctrl+Shift+Z重做；
+     * 事件冒泡到場景才處理，不影響輸入框和列表本身的按鍵
+     */
+    private void handleNavigationKey(KeyEvent event) {
+        if (event.getCode() == KeyCode.PAGE_UP) {
+            if (event.isShiftDown()) {
+                dateNavigator.goToPreviousYear();
+            } else {
+                navigate(-1);
+            }
+        } else if (event.getCode() == KeyCode.PAGE_DOWN) {
+            if (event.isShiftDown()) {
+                dateNavigator.goToNextYear();
+            } else {
+                navigate(1);
+            }
+        } else if (event.getCode() == KeyCode.T && event.isShortcutDown()) {
+            dateNavigator.goToToday();
+        } else if (event.getCode() == KeyCode.Z && event.isShortcutDown()) {
+            if (event.isShiftDown()) {
+                handleRedo();
+            } else {
+                handleUndo();
+            }
+            event.consume();
+            return;
+        } else if (event.getCode() == KeyCode.Y && event.isShortcutDown()) {
+            handleRedo();
+            event.consume();
+            return;
+        } else {
+            return;
+        }
+        event.consume();
+        requestCalendarRender();
+    }
+    
+    /**
+     * 按目前的檢視方式向前（-1）或向後（1）移動一個月、一週或一天
+     */
+    private void navigate(int direction) {
+        switch (viewMode) {
+            case WEEK:
+                if (direction < 0) {
+                    dateNavigator.goToPreviousWeek();
+                } else {
+                    dateNavigator.goToNextWeek();
+                }
+                break;
+            case DAY:
+                if (direction < 0) {
+                    dateNavigator.goToPreviousDay();
+                } else {
+                    dateNavigator.goToNextDay();
+                }
+                break;
+            case YEAR:
+            case YEARS:
+                if (direction < 0) {
+                    dateNavigator.goToPreviousYear();
+                } else {
+                    dateNavigator.goToNextYear();
+                }
+                break;
+            default:
+                if (direction < 0) {
+                    dateNavigator.goToPreviousMonth();
+                } else {
+                    dateNavigator.goToNextMonth();
+                }
+        }
+    }
+    
+    /**
+     * 要求在下一個脈衝重繪日曆；同一脈衝內的多次導航只重繪一次，且總是顯示最新的月份
+     */
+    private void requestCalendarRender() {
+        if (!renderPending) {
+            renderPending = true;
+            renderTimer.start();
+        }
     }
     
     /**
@@ -138,15 +721,10 @@ public class CalendarController {
     }
     
     /**
-     * 更新日曆顯示
+     * 建立固定的星期標題與月份顯示區域，之後切換月份只重新綁定；
+     * -Dcalendar.canvasRenderer=true 時以單一Canvas繪製，節點數量不隨事件數量增加
      */
-    private void updateCalendar() {
-        // 清除先前的日曆內容
-        calendarGrid.getChildren().clear();
-        
-        // 更新月份年份標題
-        dateNavigator.updateMonthYearLabel(monthYearLabel);
-        
+    private void buildCalendarGrid() {
         // 添加星期標題 (0行)
         for (int i = 0; i < 7; i++) {
             DayOfWeek day = DayOfWeek.of((i + 1) % 7 + 1); // 從星期日開始
@@ -154,40 +732,168 @@ public class CalendarController {
             calendarGrid.add(dayLabel, i, 0);
         }
         
-        // 獲取當月信息
-        int daysInMonth = dateNavigator.getDaysInMonth();
-        int dayOfWeekValue = dateNavigator.getFirstDayOfMonthWeekday();
+        monthView = Boolean.getBoolean("calendar.canvasRenderer")
+            ? new CanvasMonthView(this)
+            : new CellGridMonthView(uiFactory);
+        monthView.attach(calendarGrid);
+    }
+    
+    /**
+     * 更新日曆顯示，綁定預先建立的月份版面並在背景準備相鄰月份
+     */
+    private void updateCalendar() {
+        if (isYearMode()) {
+            updateYearOverview();
+            return;
+        }
+        if (viewMode != ViewMode.MONTH) {
+            updateTimeline();
+            return;
+        }
+        long start = CalendarMetrics.start();
+        long nodesBefore = CalendarMetrics.getNodesCreated();
+        YearMonth month = dateNavigator.getCurrentYearMonth();
+        MonthModel model = monthModelCache.getModel(month);
         
-        // 填充日曆
-        int day = 1;
-        int row = 1; // 從第1行開始（第0行是星期標題）
+        // 更新月份年份標題
+        monthYearLabel.setText(model.getMonthYearText());
         
-        // 填充第一週前的空白
-        for (int col = 0; col < dayOfWeekValue; col++) {
-            calendarGrid.add(uiFactory.createCell(""), col, row);
+        monthView.render(model.filtered(categoryIndex, categoryFilter));
+        monthModelCache.prefetchAround(month);
+        CalendarMetrics.recordRender(start, nodesBefore, model);
+    }
+    
+    /**
+     * 顯示目前日期所在的一週或當天
+     */
+    private void updateTimeline() {
+        if (viewMode == ViewMode.WEEK) {
+            LocalDate weekStart = dateNavigator.getWeekStart();
+            monthYearLabel.setText(DateNavigator.formatWeek(weekStart));
+            timelineView.show(weekStart, 7);
+        } else {
+            LocalDate date = dateNavigator.getCurrentDate();
+            monthYearLabel.setText(DateNavigator.formatDay(date));
+            timelineView.show(date, 1);
         }
-        
-        // 填充日期
-        for (int col = dayOfWeekValue; col < 7; col++) {
-            if (day <= daysInMonth) {
-                calendarGrid.add(
-                    uiFactory.createDateCell(day, dateNavigator.getCurrentDate()), 
-                    col, row
-                );
-                day++;
-            }
+    }
+    
+    /**
+     * 顯示目前日期所在的一年，或到該年為止的多年
+     */
+    private void updateYearOverview() {
+        int year = dateNavigator.getCurrentDate().getYear();
+        if (viewMode == ViewMode.YEAR) {
+            monthYearLabel.setText(year + "年");
+            yearOverviewView.show(year, 1);
+        } else {
+            monthYearLabel.setText((year - OVERVIEW_YEARS + 1) + "–" + year + "年");
+            yearOverviewView.show(year - OVERVIEW_YEARS + 1, OVERVIEW_YEARS);
         }
-        
-        // 填充剩下的週
-        while (day <= daysInMonth) {
-            row++;
-            for (int col = 0; col < 7 && day <= daysInMonth; col++) {
-                calendarGrid.add(
-                    uiFactory.createDateCell(day, dateNavigator.getCurrentDate()), 
-                    col, row
-                );
-                day++;
+    }
+    
+    private boolean isYearMode() {
+        return viewMode == ViewMode.YEAR || viewMode == ViewMode.YEARS;
+    }
+    
+    private boolean isTimelineMode() {
+        return viewMode == ViewMode.WEEK || viewMode == ViewMode.DAY;
+    }
+    
+    /**
+     * 切換檢視方式，在月曆格子、時間軸和年度總覽之間替換日曆區域
+     */
+    private void setViewMode(ViewMode mode) {
+        viewMode = mode;
+        if (isTimelineMode() && timelineView == null) {
+            timelineView = new TimelineView(eventManager, this);
+            VBox.setVgrow(timelineView, Priority.ALWAYS);
+            calendarContainer.getChildren().add(timelineView);
+        }
+        if (isYearMode() && yearOverviewView == null) {
+            yearOverviewView = new YearOverviewView(densityIndex, this);
+            VBox.setVgrow(yearOverviewView, Priority.ALWAYS);
+            calendarContainer.getChildren().add(yearOverviewView);
+        }
+        boolean month = mode == ViewMode.MONTH;
+        calendarGrid.setVisible(month);
+        calendarGrid.setManaged(month);
+        if (timelineView != null) {
+            timelineView.setVisible(isTimelineMode());
+            timelineView.setManaged(isTimelineMode());
+        }
+        if (yearOverviewView != null) {
+            yearOverviewView.setVisible(isYearMode());
+            yearOverviewView.setManaged(isYearMode());
+        }
+        updateCalendar();
+    }
+    
+    /**
+     * 從年度總覽跳到指定日期的月曆，並顯示該日期的事件
+     */
+    public void jumpToDate(LocalDate date) {
+        dateNavigator.goToDate(date);
+        eventDateField.setText(date.format(dateFormatter));
+        updateEventList();
+        updateEventListDateLabel();
+        setViewMode(ViewMode.MONTH);
+    }
+    
+    @FXML
+    private void handleMonthView() {
+        setViewMode(ViewMode.MONTH);
+    }
+    
+    @FXML
+    private void handleWeekView() {
+        setViewMode(ViewMode.WEEK);
+    }
+    
+    @FXML
+    private void handleDayView() {
+        setViewMode(ViewMode.DAY);
+    }
+    
+    @FXML
+    private void handleYearView() {
+        setViewMode(ViewMode.YEAR);
+    }
+    
+    @FXML
+    private void handleYearsView() {
+        setViewMode(ViewMode.YEARS);
+    }
+    
+    /**
+     * 處理事件變更，只重新綁定受影響日期的格子；時間軸只重新讀取受影響的日期，總覽只重新讀取計數
+     */
+    private void handleEventChange(EventChange change) {
+        for (LocalDate date : change.getAffectedDates()) {
+            refreshCell(date);
+        }
+        if (timelineView != null && isTimelineMode()) {
+            timelineView.refreshDates(change.getAffectedDates());
+        }
+        // 重複事件的修改可能影響未列出的日期，批次變更時總覽一律重新讀取計數
+        if (yearOverviewView != null && isYearMode() && (change.getType() == EventChange.Type.BATCH
+                || yearOverviewView.isDisplayed(change.getAffectedDates()))) {
+            yearOverviewView.refresh();
+        }
+        updateCategoryButtons();
+        updateUndoButtons();
+    }
+    
+    /**
+     * 重新綁定指定日期的格子，日期不在目前顯示的月份時不處理
+     */
+    private void refreshCell(LocalDate date) {
+        if (monthView.isDisplayed(date)) {
+            List<Event> events = eventManager.getEventsForDate(date);
+            if (categoryFilter.isActive()) {
+                events = categoryIndex.filter(events, categoryIndex.getDayMask(date), categoryFilter);
             }
+            monthView.refreshDate(date, events);
         }
     }
     
@@ -229,7 +935,11 @@ public class CalendarController {
         selectedEvent = null;
         eventNameField.clear();
         eventTimeField.setText("12:00");
+        eventEndTimeField.clear();
         eventColorPicker.setValue(Color.CORNFLOWERBLUE);
+        eventRepeatBox.setValue(null);
+        eventCalendarBox.setValue(eventManager.getDefaultCalendar());
+        eventReminderBox.setValue(null);
     }
     
     /**
@@ -241,7 +951,59 @@ public class CalendarController {
         eventTimeField.setText(String.format("%02d:%02d", 
                             event.getTime().getHour(), 
                             event.getTime().getMinute()));
+        if (event.getDuration().isZero()) {
+            eventEndTimeField.clear();
+        } else {
+            eventEndTimeField.setText(String.format("%02d:%02d",
+                event.getEndTime().getHour(), event.getEndTime().getMinute()));
+        }
         eventColorPicker.setValue(event.getColor());
+        // 重複頻率只在創建時設定，編輯時顯示所屬重複事件的頻率
+        eventRepeatBox.setValue(event instanceof EventOccurrence
+            ? ((EventOccurrence) event).getSeries().getRule().getFrequency()
+            : null);
+        eventCalendarBox.setValue(eventManager.getCalendars().get(event.getCalendarId()));
+        eventReminderBox.setValue(event.getReminder());
+    }
+    
+    /**
+     * 以指定的日期和開始時間準備新增事件
+     */
+    public void prefillNewEvent(LocalDate date, LocalTime time) {
+        clearEventForm();
+        eventListView.getSelectionModel().clearSelection();
+        eventDateField.setText(date.format(dateFormatter));
+        eventTimeField.setText(String.format("%02d:%02d", time.getHour(), time.getMinute()));
+        eventNameField.requestFocus();
+    }
+    
+    /**
+     * 在螢幕右下角顯示提醒視窗，數秒後自動關閉；點擊時跳到事件所在的日期
+     */
+    private void showReminder(Event event, LocalDateTime start, boolean missed) {
+        Label title = new Label(event.getDescription());
+        title.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
+        Label detail = new Label(start.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))
+            + (missed ? "（錯過的提醒）" : ""));
+        HBox content = new HBox(10, new Rectangle(6, 40, event.getColor()), new VBox(4, title, detail));
+        content.setStyle("-fx-padding: 12; -fx-background-color: white;");
+        
+        Stage stage = new Stage(StageStyle.UTILITY);
+        stage.setTitle("事件提醒");
+        stage.setAlwaysOnTop(true);
+        stage.setScene(new Scene(content, REMINDER_WIDTH, REMINDER_HEIGHT));
+        Rectangle2D bounds = Screen.getPrimary().getVisualBounds();
+        stage.setX(bounds.getMaxX() - REMINDER_WIDTH - REMINDER_MARGIN);
+        stage.setY(bounds.getMaxY() - REMINDER_HEIGHT - REMINDER_MARGIN);
+        content.setOnMouseClicked(e -> {
+            jumpToDate(start.toLocalDate());
+            stage.close();
+        });
+        stage.show();
+        
+        PauseTransition delay = new PauseTransition(javafx.util.Duration.seconds(REMINDER_SECONDS));
+        delay.setOnFinished(e -> stage.close());
+        delay.play();
     }
     
     /**
@@ -268,31 +1030,72 @@ public class CalendarController {
         }
         
         LocalTime time = parseTimeString(timeString);
+        Duration duration = parseDuration(time, eventEndTimeField.getText().trim());
+        
+        // 與其他事件重疊時先詢問
+        if (!confirmConflicts(eventDate, time, duration)) {
+            return;
+        }
         
         if (selectedEvent == null) {
-            // 創建新事件
-            Event newEvent = new Event(
-                eventDate, 
-                time, 
-                eventName, 
-                selectedColor
-            );
+            // 創建新事件，選擇了重複頻率時以單一規則保存
+            RecurrenceRule.Frequency frequency = eventRepeatBox.getValue();
+            Event newEvent = frequency == null
+                ? new Event(eventDate, time, eventName, selectedColor)
+                : new RecurringEvent(eventDate, time, eventName, selectedColor, RecurrenceRule.of(frequency));
+            newEvent.setDuration(duration);
+            newEvent.setCalendarId(eventCalendarBox.getValue().getId());
+            newEvent.setReminder(eventReminderBox.getValue());
             eventManager.addEvent(newEvent);
         } else {
-            // 更新現有事件
-            selectedEvent.setDate(eventDate);
-            selectedEvent.setDescription(eventName);
-            selectedEvent.setTime(time);
-            selectedEvent.setColor(selectedColor);
-            eventManager.updateEvent(selectedEvent);
+            // 更新現有事件；在存儲鎖內修改，背景匯出不會讀到修改了一半的事件
+            int calendarId = eventCalendarBox.getValue().getId();
+            Duration reminder = eventReminderBox.getValue();
+            eventManager.updateEvent(selectedEvent, event -> {
+                event.setDate(eventDate);
+                event.setDescription(eventName);
+                event.setTime(time);
+                event.setDuration(duration);
+                event.setColor(selectedColor);
+                event.setCalendarId(calendarId);
+                event.setReminder(reminder);
+            });
         }
         
         // 清除表單
         clearEventForm();
         
-        // 更新顯示
+        // 更新顯示（日曆格子已由事件變更通知更新）
         updateEventList();
-        updateCalendar();
+    }
+    
+    /**
+     * 新時段與其他事件重疊時詢問是否仍要保存；沒有重疊或確認保存時返回true
+     */
+    private boolean confirmConflicts(LocalDate date, LocalTime time, Duration duration) {
+        List<Event> conflicts = new ArrayList<>();
+        for (Event event : eventManager.getOverlappingEvents(date, time, duration)) {
+            // 正在編輯的事件（或其所屬重複事件的發生）不算衝突
+            if (selectedEvent == null || event.getId() != selectedEvent.getId()) {
+                conflicts.add(event);
+            }
+        }
+        if (conflicts.isEmpty()) {
+            return true;
+        }
+        
+        StringBuilder message = new StringBuilder("以下事件的時間與此事件重疊：\n");
+        for (Event event : conflicts.subList(0, Math.min(conflicts.size(), MAX_LISTED_CONFLICTS))) {
+            message.append("\n").append(event);
+        }
+        if (conflicts.size() > MAX_LISTED_CONFLICTS) {
+            message.append("\n…另外 ").append(conflicts.size() - MAX_LISTED_CONFLICTS).append(" 個事件");
+        }
+        message.append("\n\n仍要保存嗎？");
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, message.toString(), ButtonType.OK, ButtonType.CANCEL);
+        alert.setTitle("時間衝突");
+        alert.setHeaderText(null);
+        return alert.showAndWait().filter(ButtonType.OK::equals).isPresent();
     }
     
     /**
@@ -343,6 +1146,17 @@ public class CalendarController {
         return time;
     }
     
+    /**
+     * 由開始時間和結束時間字符串計算持續時間；留空或不晚於開始時間時沒有持續時間
+     */
+    private Duration parseDuration(LocalTime start, String endString) {
+        if (endString.isEmpty()) {
+            return Duration.ZERO;
+        }
+        LocalTime end = parseTimeString(endString);
+        return end.isAfter(start) ? Duration.between(start, end) : Duration.ZERO;
+    }
+    
     /**
      * 處理刪除事件按鈕
      */
@@ -351,10 +1165,131 @@ public class CalendarController {
         if (selectedEvent != null) {
             eventManager.removeEvent(selectedEvent);
             clearEventForm();
-            updateCalendar();
         }
     }
     
+    /**
+     * 處理"復原"按鈕，回到上一次修改之前
+     */
+    @FXML
+    private void handleUndo() {
+        if (eventHistory != null && eventHistory.undo()) {
+            // 表單中的事件可能已被版本中的副本取代
+            clearEventForm();
+            updateEventList();
+        }
+    }
+    
+    /**
+     * 處理"重做"按鈕，重新套用剛復原的修改
+     */
+    @FXML
+    private void handleRedo() {
+        if (eventHistory != null && eventHistory.redo()) {
+            clearEventForm();
+            updateEventList();
+        }
+    }
+    
+    private void updateUndoButtons() {
+        undoButton.setDisable(eventHistory == null || !eventHistory.canUndo());
+        redoButton.setDisable(eventHistory == null || !eventHistory.canRedo());
+    }
+    
+    /**
+     * 處理"匯入 .ics"按鈕，在背景解析檔案並分批加入事件
+     */
+    @FXML
+    private void handleImportIcs() {
+        File file = createIcsFileChooser("匯入 iCalendar").showOpenDialog(calendarGrid.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        IcsImportTask task = new IcsImportTask(file.toPath(), eventManager);
+        if (startTransfer(task) && eventHistory != null) {
+            // 整個匯入（含取消或失敗前已加入的事件）算一個復原步驟，任務結束時才記錄
+            eventHistory.beginStep();
+            task.stateProperty().addListener((obs, oldState, state) -> {
+                if (state == Worker.State.SUCCEEDED || state == Worker.State.CANCELLED
+                        || state == Worker.State.FAILED) {
+                    eventHistory.endStep();
+                    updateUndoButtons();
+                }
+            });
+            updateUndoButtons();
+        }
+    }
+    
+    /**
+     * 處理"匯出 .ics"按鈕，在背景寫出所有事件
+     */
+    @FXML
+    private void handleExportIcs() {
+        FileChooser chooser = createIcsFileChooser("匯出 iCalendar");
+        chooser.setInitialFileName("calendar.ics");
+        File file = chooser.showSaveDialog(calendarGrid.getScene().getWindow());
+        if (file != null) {
+            // 有版本記錄時匯出當下的快照，匯出期間的修改不影響結果
+            startTransfer(eventHistory != null
+                ? new IcsExportTask(file.toPath(), eventHistory.getSnapshot())
+                : new IcsExportTask(file.toPath(), eventManager));
+        }
+    }
+    
+    /**
+     * 處理"取消"按鈕，停止正在執行的匯入或匯出
+     */
+    @FXML
+    private void handleCancelTransfer() {
+        if (transferTask != null) {
+            transferTask.cancel();
+        }
+    }
+    
+    private FileChooser createIcsFileChooser(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("iCalendar", "*.ics"));
+        return chooser;
+    }
+    
+    /**
+     * 在背景執行緒執行匯入或匯出並顯示進度，同一時間只執行一個；返回是否已開始
+     */
+    private boolean startTransfer(Task<Integer> task) {
+        if (transferTask != null && transferTask.isRunning()) {
+            return false;
+        }
+        transferTask = task;
+        transferProgressBar.progressProperty().bind(task.progressProperty());
+        transferStatusLabel.textProperty().bind(task.messageProperty());
+        setTransferControlsVisible(true);
+        
+        task.setOnSucceeded(e -> finishTransfer(task.getMessage()));
+        task.setOnCancelled(e -> finishTransfer("已取消，" + task.getMessage()));
+        task.setOnFailed(e -> finishTransfer("失敗: " + task.getException().getMessage()));
+        
+        Thread thread = new Thread(task, "ics-transfer");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+    
+    private void finishTransfer(String status) {
+        transferProgressBar.progressProperty().unbind();
+        transferStatusLabel.textProperty().unbind();
+        transferStatusLabel.setText(status);
+        setTransferControlsVisible(false);
+        transferTask = null;
+    }
+    
+    private void setTransferControlsVisible(boolean visible) {
+        transferProgressBar.setVisible(visible);
+        transferProgressBar.setManaged(visible);
+        cancelTransferButton.setVisible(visible);
+        cancelTransferButton.setManaged(visible);
+    }
+    
     /**
      * 處理Project按鈕點擊
      */
@@ -0,0 +1,150 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import javafx.scene.Scene;
+
+/**
+ * 日曆的效能統計：重繪時間、每次重繪創建的節點數、顯示月份的事件數、
+ * EventManager各操作的延遲，以及每個脈衝CSS和排版所用的時間
+ *
+ * 預設不收集，以 -Dcalendar.metrics=true、JMX（main:type=CalendarMetrics）
+ * 或顯示統計覆蓋層啟用。未啟用時每個記錄點只讀取一個volatile欄位。
+ */
+public final class CalendarMetrics {
+    public static final Histogram RENDER = new Histogram("render", "ns");
+    public static final Histogram RENDER_NODES = new Histogram("renderNodes", "nodes");
+    public static final Histogram MONTH_EVENTS = new Histogram("monthEvents", "events");
+    public static final Histogram PULSE_LAYOUT = new Histogram("pulseLayout", "ns");
+    public static final Histogram EVENT_ADD = new Histogram("eventAdd", "ns");
+    public static final Histogram EVENT_REMOVE = new Histogram("eventRemove", "ns");
+    public static final Histogram EVENT_UPDATE = new Histogram("eventUpdate", "ns");
+    public static final Histogram EVENT_BATCH = new Histogram("eventBatch", "ns");
+    public static final Histogram QUERY_DATE = new Histogram("queryDate", "ns");
+    public static final Histogram QUERY_MONTH = new Histogram("queryMonth", "ns");
+    public static final Histogram QUERY_RANGE = new Histogram("queryRange", "ns");
+    
+    private static final List<Histogram> HISTOGRAMS = List.of(
+        RENDER, RENDER_NODES, MONTH_EVENTS, PULSE_LAYOUT,
+        EVENT_ADD, EVENT_REMOVE, EVENT_UPDATE, EVENT_BATCH,
+        QUERY_DATE, QUERY_MONTH, QUERY_RANGE);
+    
+    private static volatile boolean enabled = Boolean.getBoolean("calendar.metrics");
+    private static final LongAdder nodesCreated = new LongAdder();
+    private static boolean registered;
+    
+    private CalendarMetrics() {
+    }
+    
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+    
+    /**
+     * 開始計時，未啟用時返回0，之後的recordSince不做任何事
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+    
+    /**
+     * 記錄創建的界面節點數
+     */
+    public static void countNodesCreated(int count) {
+        if (enabled) {
+            nodesCreated.add(count);
+        }
+    }
+    
+    public static long getNodesCreated() {
+        return nodesCreated.sum();
+    }
+    
+    /**
+     * 記錄一次月份重繪：所用時間、期間創建的節點數及該月份的事件數
+     */
+    public static void recordRender(long start, long nodesBefore, MonthModel model) {
+        if (start == 0) {
+            return;
+        }
+        RENDER.recordSince(start);
+        RENDER_NODES.record(getNodesCreated() - nodesBefore);
+        long events = 0;
+        for (int i = 0; i < MonthModel.CELL_COUNT; i++) {
+            events += model.getCellEvents(i).size();
+        }
+        MONTH_EVENTS.record(events);
+    }
+    
+    /**
+     * 記錄場景每個脈衝中CSS和排版所用的時間（不包含之後的繪製）
+     */
+    public static void instrumentPulses(Scene scene) {
+        long[] layoutStart = new long[1];
+        scene.addPreLayoutPulseListener(() -> layoutStart[0] = start());
+        scene.addPostLayoutPulseListener(() -> PULSE_LAYOUT.recordSince(layoutStart[0]));
+    }
+    
+    public static List<Histogram> getHistograms() {
+        return HISTOGRAMS;
+    }
+    
+    public static void resetAll() {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        nodesCreated.reset();
+    }
+    
+    /**
+     * 向平台MBeanServer註冊控制介面和每個直方圖（main:type=Histogram,name=...），重複調用不會重複註冊
+     */
+    public static synchronized void registerMBeans() {
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new Control(), new ObjectName("main:type=CalendarMetrics"));
+            for (Histogram histogram : HISTOGRAMS) {
+                server.registerMBean(histogram,
+                    new ObjectName("main:type=Histogram,name=" + histogram.getName()));
+            }
+            registered = true;
+        } catch (JMException e) {
+            System.err.println("無法註冊效能統計MBean: " + e.getMessage());
+        }
+    }
+    
+    private static class Control implements CalendarMetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return CalendarMetrics.isEnabled();
+        }
+        
+        @Override
+        public void setEnabled(boolean enabled) {
+            CalendarMetrics.setEnabled(enabled);
+        }
+        
+        @Override
+        public long getNodesCreated() {
+            return CalendarMetrics.getNodesCreated();
+        }
+        
+        @Override
+        public void reset() {
+            resetAll();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package main;
+
+/**
+ * 經JMX控制日曆效能統計的收集
+ */
+public interface CalendarMetricsMXBean {
+    
+    boolean isEnabled();
+    
+    void setEnabled(boolean enabled);
+    
+    /**
+     * 啟用收集後累計創建的界面節點數
+     */
+    long getNodesCreated();
+    
+    /**
+     * 清除所有直方圖
+     */
+    void reset();
+}
@@ -0,0 +1,273 @@
+package main;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * 以單一Canvas繪製整個月份的格子和事件，節點數量固定，不隨事件數量增加；
+ * 放不下的事件顯示為「+N more」，點擊位置換算回對應的事件或日期
+ */
+public class CanvasMonthView extends Pane implements MonthView {
+    // 與日曆網格的格子大小及間距一致
+    private static final double CELL_WIDTH = 100;
+    private static final double CELL_HEIGHT = 80;
+    private static final double GAP = 5;
+    // 格子上方日期文字佔用的高度
+    private static final double DATE_AREA = 24;
+    private static final double CHIP_HEIGHT = 14;
+    private static final double CHIP_PADDING = 2;
+    
+    private static final Font DATE_FONT = Font.font("Times New Roman", 16);
+    private static final Font TODAY_FONT = Font.font("Times New Roman", FontWeight.BOLD, 16);
+    private static final Font CHIP_FONT = Font.font(10.5);
+    private static final Color TEXT_COLOR = Color.web("#888");
+    private static final Color TODAY_TEXT_COLOR = Color.web("#93908a");
+    private static final Color TODAY_BACKGROUND = Color.web("#ede8dd");
+    private static final Color HOVER_BACKGROUND = Color.rgb(200, 220, 240, 0.3);
+    private static final Color BORDER_COLOR = Color.LIGHTGRAY;
+    
+    private final CalendarController controller;
+    private final Canvas canvas = new Canvas();
+    private MonthModel model;
+    // 繪製後個別更新過的日期事件，以epoch day為鍵
+    private final Map<Long, List<Event>> refreshedEvents = new HashMap<>();
+    // 滑鼠所在的格子，-1表示不在任何格子上
+    private int hoverIndex = -1;
+    
+    public CanvasMonthView(CalendarController controller) {
+        this.controller = controller;
+        getChildren().add(canvas);
+        
+        setOnMouseClicked(this::handleClick);
+        setOnMouseMoved(e -> setHoverIndex(cellIndexAt(e.getX(), e.getY())));
+        setOnMouseExited(e -> setHoverIndex(-1));
+    }
+    
+    @Override
+    public void attach(GridPane calendarGrid) {
+        calendarGrid.add(this, 0, 1, 7, MonthModel.CELL_COUNT / 7);
+    }
+    
+    @Override
+    public void render(MonthModel model) {
+        boolean rowsChanged = this.model == null || this.model.getRowCount() != model.getRowCount();
+        this.model = model;
+        refreshedEvents.clear();
+        if (rowsChanged) {
+            requestLayout();
+        }
+        redraw();
+    }
+    
+    @Override
+    public boolean isDisplayed(LocalDate date) {
+        return model != null && YearMonth.from(date).equals(model.getMonth());
+    }
+    
+    @Override
+    public void refreshDate(LocalDate date, List<Event> events) {
+        if (isDisplayed(date)) {
+            refreshedEvents.put(date.toEpochDay(), events);
+            drawCell(canvas.getGraphicsContext2D(), model.getFirstDayOffset() + date.getDayOfMonth() - 1);
+        }
+    }
+    
+    @Override
+    protected double computePrefWidth(double height) {
+        return 7 * CELL_WIDTH + 6 * GAP;
+    }
+    
+    @Override
+    protected double computePrefHeight(double width) {
+        int rows = model != null ? model.getRowCount() : MonthModel.CELL_COUNT / 7;
+        return rows * CELL_HEIGHT + (rows - 1) * GAP;
+    }
+    
+    @Override
+    protected void layoutChildren() {
+        if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+            canvas.setWidth(getWidth());
+            canvas.setHeight(getHeight());
+            redraw();
+        }
+    }
+    
+    /**
+     * 重繪所有格子
+     */
+    private void redraw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        if (model == null || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+            return;
+        }
+        for (int i = 0; i < model.getRowCount() * 7; i++) {
+            drawCell(gc, i);
+        }
+    }
+    
+    /**
+     * 繪製單一格子：背景、邊框、日期及事件
+     */
+    private void drawCell(GraphicsContext gc, int index) {
+        double x = cellX(index);
+        double y = cellY(index);
+        double width = cellWidth();
+        double height = cellHeight();
+        gc.clearRect(x, y, width, height);
+        
+        LocalDate date = model.getCellDate(index);
+        if (date == null) {
+            // 月初前的空白格子只畫邊框，月底後的格子留空
+            if (index < model.getFirstDayOffset()) {
+                drawBackground(gc, index, x, y, width, height);
+            }
+            return;
+        }
+        drawBackground(gc, index, x, y, width, height);
+        
+        boolean today = index == model.getTodayIndex();
+        gc.setFont(today ? TODAY_FONT : DATE_FONT);
+        gc.setFill(today ? TODAY_TEXT_COLOR : TEXT_COLOR);
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.setTextBaseline(VPos.TOP);
+        gc.fillText(String.valueOf(date.getDayOfMonth()), x + width - 8, y + 5);
+        
+        List<Event> events = eventsAt(index);
+        int visibleChips = visibleChipCount(events.size(), height);
+        gc.save();
+        gc.beginPath();
+        gc.rect(x, y, width, height);
+        gc.clip();
+        gc.setFont(CHIP_FONT);
+        gc.setTextAlign(TextAlignment.LEFT);
+        for (int i = 0; i < visibleChips; i++) {
+            Event event = events.get(i);
+            double chipY = y + DATE_AREA + i * CHIP_HEIGHT;
+            gc.setFill(EventPalette.chipFill(event.getColor()));
+            gc.fillRect(x + 1, chipY, width - 2, CHIP_HEIGHT - 1);
+            gc.setFill(Color.BLACK);
+            gc.fillText(event.getTime().toString().substring(0, 5) + "  " + event.getDescription(),
+                x + CHIP_PADDING + 1, chipY + 1);
+        }
+        if (visibleChips < events.size()) {
+            gc.setFill(TEXT_COLOR);
+            gc.fillText("+" + (events.size() - visibleChips) + " more",
+                x + CHIP_PADDING + 1, y + DATE_AREA + visibleChips * CHIP_HEIGHT + 1);
+        }
+        gc.restore();
+    }
+    
+    private void drawBackground(GraphicsContext gc, int index, double x, double y,
+            double width, double height) {
+        if (index == hoverIndex) {
+            gc.setFill(HOVER_BACKGROUND);
+            gc.fillRect(x, y, width, height);
+        } else if (index == model.getTodayIndex()) {
+            gc.setFill(TODAY_BACKGROUND);
+            gc.fillRect(x, y, width, height);
+        }
+        gc.setStroke(BORDER_COLOR);
+        gc.strokeRect(x + 0.5, y + 0.5, width - 1, height - 1);
+    }
+    
+    /**
+     * 點擊事件標籤時選擇該事件，點擊其他位置（包括「+N more」）時跳轉至該日期
+     */
+    private void handleClick(MouseEvent e) {
+        int index = cellIndexAt(e.getX(), e.getY());
+        if (index < 0 || model.getCellDate(index) == null) {
+            return;
+        }
+        List<Event> events = eventsAt(index);
+        int visibleChips = visibleChipCount(events.size(), cellHeight());
+        double chipOffset = e.getY() - cellY(index) - DATE_AREA;
+        if (chipOffset >= 0) {
+            int chip = (int) (chipOffset / CHIP_HEIGHT);
+            if (chip < visibleChips) {
+                controller.selectEventForEdit(events.get(chip));
+                return;
+            }
+        }
+        controller.handleDateClick(model.getCellDate(index));
+    }
+    
+    private void setHoverIndex(int index) {
+        if (index == hoverIndex || model == null) {
+            return;
+        }
+        int previous = hoverIndex;
+        hoverIndex = index;
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        if (previous >= 0) {
+            drawCell(gc, previous);
+        }
+        if (index >= 0) {
+            drawCell(gc, index);
+        }
+    }
+    
+    /**
+     * 座標所在的格子，落在間距或範圍外時返回-1
+     */
+    private int cellIndexAt(double x, double y) {
+        if (model == null || x < 0 || y < 0) {
+            return -1;
+        }
+        int column = (int) (x / (cellWidth() + GAP));
+        int row = (int) (y / (cellHeight() + GAP));
+        if (column >= 7 || row >= model.getRowCount()
+                || x - column * (cellWidth() + GAP) > cellWidth()
+                || y - row * (cellHeight() + GAP) > cellHeight()) {
+            return -1;
+        }
+        return row * 7 + column;
+    }
+    
+    /**
+     * 格子中可顯示的事件數，放不下時保留最後一行給「+N more」
+     */
+    private static int visibleChipCount(int eventCount, double cellHeight) {
+        int capacity = (int) ((cellHeight - DATE_AREA) / CHIP_HEIGHT);
+        if (eventCount <= capacity) {
+            return eventCount;
+        }
+        return Math.max(0, capacity - 1);
+    }
+    
+    private List<Event> eventsAt(int index) {
+        List<Event> refreshed = refreshedEvents.get(model.getCellDate(index).toEpochDay());
+        return refreshed != null ? refreshed : model.getCellEvents(index);
+    }
+    
+    private double cellWidth() {
+        return (canvas.getWidth() - 6 * GAP) / 7;
+    }
+    
+    private double cellHeight() {
+        int rows = model.getRowCount();
+        return (canvas.getHeight() - (rows - 1) * GAP) / rows;
+    }
+    
+    private double cellX(int index) {
+        return (index % 7) * (cellWidth() + GAP);
+    }
+    
+    private double cellY(int index) {
+        return (index / 7) * (cellHeight() + GAP);
+    }
+}
@@ -0,0 +1,76 @@
+package main;
+
+/**
+ * 按類別篩選事件的條件，類別以CategoryIndex中的編號表示，多個類別合成一個位元遮罩
+ *
+ * ANY顯示有任一選中類別的日期，ALL只顯示選中類別都有的日期；兩者在日期中都只顯示選中類別的事件。
+ * 沒有選中任何類別時不篩選。不可修改。
+ */
+public final class CategoryFilter {
+    public static final CategoryFilter NONE = new CategoryFilter(0, Mode.ANY);
+    
+    /**
+     * 多個類別的組合方式
+     */
+    public enum Mode {
+        ANY("任一"),
+        ALL("全部");
+        
+        private final String displayName;
+        
+        Mode(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+    
+    private final long mask;
+    private final Mode mode;
+    
+    private CategoryFilter(long mask, Mode mode) {
+        this.mask = mask;
+        this.mode = mode;
+    }
+    
+    /**
+     * 以類別位元遮罩創建，mask為0時等於NONE
+     */
+    public static CategoryFilter of(long mask, Mode mode) {
+        return mask == 0 ? NONE : new CategoryFilter(mask, mode);
+    }
+    
+    public long getMask() {
+        return mask;
+    }
+    
+    public Mode getMode() {
+        return mode;
+    }
+    
+    /**
+     * 是否有選中的類別
+     */
+    public boolean isActive() {
+        return mask != 0;
+    }
+    
+    /**
+     * 有dayMask中這些類別的日期是否符合
+     */
+    public boolean matchesDay(long dayMask) {
+        if (mask == 0) {
+            return true;
+        }
+        return mode == Mode.ANY ? (dayMask & mask) != 0 : (dayMask & mask) == mask;
+    }
+    
+    /**
+     * 類別位元為categoryBit的事件是否顯示
+     */
+    public boolean matchesEvent(long categoryBit) {
+        return mask == 0 || (categoryBit & mask) != 0;
+    }
+}
@@ -0,0 +1,259 @@
+package main;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import javafx.scene.paint.Color;
+
+/**
+ * 每天有哪些事件類別的索引，作為EventMutationListener隨每次修改增量維護
+ *
+ * 類別以事件顏色區分，第一次見到的顏色依序編號，最多64個，之後的顏色都歸入最後一個類別。
+ * 每個有事件的日期保存一個long位元遮罩及各類別的事件數，事件數只保存遮罩中存在的類別，
+ * 按位元的排名緊密排列；修改只調整一個計數，計數歸零時清除該位元。
+ * 重複事件不展開到各日期，查詢時按規則計算其發生的日期。
+ * 因此月曆格子只需比較位元遮罩即可判斷是否有符合篩選的事件，不必走訪事件。
+ * 方法同步在索引本身，修改可來自任何執行緒。
+ * 只索引經過EventManager加入或以seed()交給它的事件，按月分段存儲中本次未載入過的月份不在索引內；
+ * 隱藏的日曆的事件也計入。
+ */
+public class CategoryIndex implements EventMutationListener {
+    // 類別數上限，即遮罩的位元數
+    public static final int MAX_CATEGORIES = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    /**
+     * 一天中各類別的事件數，counts按遮罩中位元的順序只保存存在的類別
+     */
+    private static final class DayCategories {
+        long mask;
+        int[] counts = new int[2];
+        
+        void add(int category) {
+            long bit = 1L << category;
+            int rank = Long.bitCount(mask & (bit - 1));
+            if ((mask & bit) != 0) {
+                counts[rank]++;
+                return;
+            }
+            int size = Long.bitCount(mask);
+            if (size == counts.length) {
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            System.arraycopy(counts, rank, counts, rank + 1, size - rank);
+            counts[rank] = 1;
+            mask |= bit;
+        }
+        
+        void remove(int category) {
+            long bit = 1L << category;
+            if ((mask & bit) == 0) {
+                return;
+            }
+            int rank = Long.bitCount(mask & (bit - 1));
+            if (--counts[rank] == 0) {
+                int size = Long.bitCount(mask);
+                System.arraycopy(counts, rank + 1, counts, rank, size - rank - 1);
+                mask &= ~bit;
+            }
+        }
+        
+        int count(int category) {
+            long bit = 1L << category;
+            return (mask & bit) != 0 ? counts[Long.bitCount(mask & (bit - 1))] : 0;
+        }
+    }
+    
+    // 顏色（EventPalette.packRgb）到類別編號
+    private final Map<Integer, Integer> categoriesByRgb = new HashMap<>();
+    // 各類別第一次出現時的顏色，索引即類別編號
+    private final List<Color> categoryColors = new ArrayList<>();
+    // 以epoch day為鍵，只保存有一般事件的日期
+    private final NavigableMap<Long, DayCategories> days = new TreeMap<>();
+    // 一般事件編號到建立索引時的類別
+    private final LongIntMap eventCategories = new LongIntMap(INITIAL_CAPACITY);
+    // 重複事件，查詢時讀取目前的規則和顏色
+    private final Map<Long, RecurringEvent> series = new LinkedHashMap<>();
+    
+    @Override
+    public synchronized void eventAdded(Event event) {
+        if (event instanceof RecurringEvent) {
+            series.put(event.getId(), (RecurringEvent) event);
+            return;
+        }
+        int category = categoryOf(event.getColor());
+        eventCategories.put(event.getId(), category);
+        days.computeIfAbsent(event.getDate().toEpochDay(), day -> new DayCategories()).add(category);
+    }
+    
+    @Override
+    public synchronized void eventRemoved(Event event, LocalDate oldDate) {
+        if (event instanceof RecurringEvent) {
+            series.remove(event.getId());
+            return;
+        }
+        int category = eventCategories.get(event.getId());
+        if (category == LongIntMap.MISSING) {
+            return;
+        }
+        eventCategories.remove(event.getId());
+        removeFromDay(oldDate.toEpochDay(), category);
+    }
+    
+    @Override
+    public synchronized void eventUpdated(Event event, LocalDate oldDate) {
+        if (event instanceof RecurringEvent) {
+            series.put(event.getId(), (RecurringEvent) event);
+            return;
+        }
+        int oldCategory = eventCategories.get(event.getId());
+        int category = categoryOf(event.getColor());
+        long day = event.getDate().toEpochDay();
+        if (oldCategory == category && oldDate.toEpochDay() == day) {
+            return;
+        }
+        if (oldCategory != LongIntMap.MISSING) {
+            removeFromDay(oldDate.toEpochDay(), oldCategory);
+        }
+        eventCategories.put(event.getId(), category);
+        days.computeIfAbsent(day, key -> new DayCategories()).add(category);
+    }
+    
+    /**
+     * 索引不經過EventManager載入的已保存事件，例如分段存儲載入的月份；已在索引中的事件略過
+     */
+    public synchronized void seed(Collection<Event> events) {
+        for (Event event : events) {
+            boolean indexed = event instanceof RecurringEvent
+                ? series.containsKey(event.getId())
+                : eventCategories.get(event.getId()) != LongIntMap.MISSING;
+            if (!indexed) {
+                eventAdded(event);
+            }
+        }
+    }
+    
+    /**
+     * 顏色所屬的類別編號，第一次見到的顏色分配新的編號
+     */
+    public synchronized int categoryOf(Color color) {
+        Integer category = categoriesByRgb.get(EventPalette.packRgb(color));
+        if (category != null) {
+            return category;
+        }
+        if (categoryColors.size() == MAX_CATEGORIES) {
+            // 類別已滿，歸入最後一個
+            categoriesByRgb.put(EventPalette.packRgb(color), MAX_CATEGORIES - 1);
+            return MAX_CATEGORIES - 1;
+        }
+        categoriesByRgb.put(EventPalette.packRgb(color), categoryColors.size());
+        categoryColors.add(color);
+        return categoryColors.size() - 1;
+    }
+    
+    /**
+     * 事件所屬類別的位元
+     */
+    public long categoryBit(Event event) {
+        return 1L << categoryOf(event.getColor());
+    }
+    
+    /**
+     * 目前所有類別的代表顏色，索引即類別編號
+     */
+    public synchronized List<Color> getCategoryColors() {
+        return new ArrayList<>(categoryColors);
+    }
+    
+    /**
+     * 指定日期有事件的類別的位元遮罩，包括重複事件的發生
+     */
+    public synchronized long getDayMask(LocalDate date) {
+        DayCategories categories = days.get(date.toEpochDay());
+        long mask = categories != null ? categories.mask : 0;
+        for (RecurringEvent event : series.values()) {
+            if (event.getRule().occursOn(event.getDate(), date)) {
+                mask |= 1L << categoryOf(event.getColor());
+            }
+        }
+        return mask;
+    }
+    
+    /**
+     * 整個月份每天的類別遮罩，索引i對應該月第i+1天；每個重複事件只計算一次該月的發生
+     */
+    public synchronized long[] getMonthMasks(YearMonth month) {
+        long[] masks = new long[month.lengthOfMonth()];
+        LocalDate first = month.atDay(1);
+        LocalDate last = month.atEndOfMonth();
+        for (Map.Entry<Long, DayCategories> entry
+                : days.subMap(first.toEpochDay(), true, last.toEpochDay(), true).entrySet()) {
+            masks[(int) (entry.getKey() - first.toEpochDay())] = entry.getValue().mask;
+        }
+        for (RecurringEvent event : series.values()) {
+            long bit = 1L << categoryOf(event.getColor());
+            for (LocalDate date : event.getRule().occurrencesBetween(event.getDate(), first, last)) {
+                masks[date.getDayOfMonth() - 1] |= bit;
+            }
+        }
+        return masks;
+    }
+    
+    /**
+     * 指定日期某類別的一般事件數，不包括重複事件
+     */
+    public synchronized int getCount(LocalDate date, int category) {
+        DayCategories categories = days.get(date.toEpochDay());
+        return categories != null ? categories.count(category) : 0;
+    }
+    
+    /**
+     * 按篩選條件挑出一天中要顯示的事件，dayMask為該日的類別遮罩。
+     * 遮罩已能判斷時不走訪事件：不符合時返回空列表，ANY且當天只有選中的類別時原樣返回
+     */
+    public List<Event> filter(List<Event> events, long dayMask, CategoryFilter filter) {
+        if (!filter.isActive() || events.isEmpty()) {
+            return events;
+        }
+        // 遮罩為0但有事件表示這些事件不在索引中，只能逐一判斷
+        if (dayMask != 0) {
+            if (!filter.matchesDay(dayMask)) {
+                return List.of();
+            }
+            if (filter.getMode() == CategoryFilter.Mode.ANY && (dayMask & ~filter.getMask()) == 0) {
+                return events;
+            }
+        }
+        List<Event> matched = new ArrayList<>();
+        long present = 0;
+        for (Event event : events) {
+            long bit = categoryBit(event);
+            if (filter.matchesEvent(bit)) {
+                matched.add(event);
+                present |= bit;
+            }
+        }
+        // 遮罩包括隱藏日曆的事件，ALL需以實際顯示的事件再確認
+        return filter.matchesDay(present) ? matched : List.of();
+    }
+    
+    private void removeFromDay(long day, int category) {
+        DayCategories categories = days.get(day);
+        if (categories == null) {
+            return;
+        }
+        categories.remove(category);
+        if (categories.mask == 0) {
+            days.remove(day);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package main;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import javafx.scene.layout.GridPane;
+
+/**
+ * 以42個可重複使用的格子節點顯示月份，每個事件一個標籤
+ */
+public class CellGridMonthView implements MonthView {
+    private final UIFactory uiFactory;
+    // 固定的6x7日期格子，按行優先排列
+    private final CalendarCell[] calendarCells = new CalendarCell[MonthModel.CELL_COUNT];
+    // 目前顯示的月份版面
+    private MonthModel displayedModel;
+    
+    public CellGridMonthView(UIFactory uiFactory) {
+        this.uiFactory = uiFactory;
+    }
+    
+    @Override
+    public void attach(GridPane calendarGrid) {
+        // 日期格子從第1行開始（第0行是星期標題）
+        for (int i = 0; i < calendarCells.length; i++) {
+            calendarCells[i] = uiFactory.createCalendarCell();
+            calendarGrid.add(calendarCells[i], i % 7, i / 7 + 1);
+        }
+    }
+    
+    @Override
+    public void render(MonthModel model) {
+        displayedModel = model;
+        for (int i = 0; i < calendarCells.length; i++) {
+            LocalDate date = model.getCellDate(i);
+            if (date != null) {
+                calendarCells[i].bind(date, i == model.getTodayIndex(), model.getCellEvents(i));
+            } else if (i < model.getFirstDayOffset()) {
+                // 填充第一週前的空白
+                calendarCells[i].bindBlank();
+            } else {
+                calendarCells[i].hide();
+            }
+            // 不需要的整行不參與排版，保持與實際週數相同的高度
+            calendarCells[i].setManaged(i / 7 < model.getRowCount());
+        }
+    }
+    
+    @Override
+    public boolean isDisplayed(LocalDate date) {
+        return displayedModel != null && YearMonth.from(date).equals(displayedModel.getMonth());
+    }
+    
+    @Override
+    public void refreshDate(LocalDate date, List<Event> events) {
+        if (isDisplayed(date)) {
+            int index = displayedModel.getFirstDayOffset() + date.getDayOfMonth() - 1;
+            calendarCells[index].bindEvents(events);
+        }
+    }
+}
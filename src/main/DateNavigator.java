@@ -23,9 +23,43 @@ public class DateNavigator {
      * 獲取當前月份的年月文字
      */
     public String getMonthYearText() {
-        String month = currentDate.getMonth().getDisplayName(TextStyle.FULL, Locale.US);
-        int year = currentDate.getYear();
-        return month + " " + year;
+        return formatMonthYear(YearMonth.from(currentDate));
+    }
+    
+    /**
+     * 將年月格式化為標題文字，例如 "May 2025"
+     */
+    public static String formatMonthYear(YearMonth yearMonth) {
+        String month = yearMonth.getMonth().getDisplayName(TextStyle.FULL, Locale.US);
+        return month + " " + yearMonth.getYear();
+    }
+    
+    /**
+     * 將一週格式化為標題文字，例如 "May 4 – 10, 2025"，跨月或跨年時分別顯示
+     */
+    public static String formatWeek(LocalDate weekStart) {
+        LocalDate weekEnd = weekStart.plusDays(6);
+        String startMonth = weekStart.getMonth().getDisplayName(TextStyle.SHORT, Locale.US);
+        String endMonth = weekEnd.getMonth().getDisplayName(TextStyle.SHORT, Locale.US);
+        if (weekStart.getYear() != weekEnd.getYear()) {
+            return startMonth + " " + weekStart.getDayOfMonth() + ", " + weekStart.getYear()
+                + " – " + endMonth + " " + weekEnd.getDayOfMonth() + ", " + weekEnd.getYear();
+        }
+        if (weekStart.getMonth() != weekEnd.getMonth()) {
+            return startMonth + " " + weekStart.getDayOfMonth() + " – "
+                + endMonth + " " + weekEnd.getDayOfMonth() + ", " + weekEnd.getYear();
+        }
+        return startMonth + " " + weekStart.getDayOfMonth() + " – " + weekEnd.getDayOfMonth()
+            + ", " + weekEnd.getYear();
+    }
+    
+    /**
+     * 將日期格式化為標題文字，例如 "Sunday, May 4, 2025"
+     */
+    public static String formatDay(LocalDate date) {
+        return date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.US) + ", "
+            + date.getMonth().getDisplayName(TextStyle.FULL, Locale.US) + " "
+            + date.getDayOfMonth() + ", " + date.getYear();
     }
     
     /**
@@ -51,6 +85,62 @@ public class DateNavigator {
         currentDate = currentDate.plusMonths(1);
     }
     
+    /**
+     * 前往上一週
+     */
+    public void goToPreviousWeek() {
+        currentDate = currentDate.minusWeeks(1);
+    }
+    
+    /**
+     * 前往下一週
+     */
+    public void goToNextWeek() {
+        currentDate = currentDate.plusWeeks(1);
+    }
+    
+    /**
+     * 前往前一天
+     */
+    public void goToPreviousDay() {
+        currentDate = currentDate.minusDays(1);
+    }
+    
+    /**
+     * 前往後一天
+     */
+    public void goToNextDay() {
+        currentDate = currentDate.plusDays(1);
+    }
+    
+    /**
+     * 前往上一年的同一月份
+     */
+    public void goToPreviousYear() {
+        currentDate = currentDate.minusYears(1);
+    }
+    
+    /**
+     * 前往下一年的同一月份
+     */
+    public void goToNextYear() {
+        currentDate = currentDate.plusYears(1);
+    }
+    
+    /**
+     * 前往指定日期（及其所在的月份和週）
+     */
+    public void goToDate(LocalDate date) {
+        currentDate = date;
+    }
+    
+    /**
+     * 回到今天
+     */
+    public void goToToday() {
+        currentDate = LocalDate.now();
+    }
+    
     /**
      * 獲取當月的第一天是星期幾（0=星期日, 1=星期一, ..., 6=星期六）
      */
@@ -68,12 +158,26 @@ public class DateNavigator {
     }
     
     /**
-     * 獲取當前顯示的日期（月份基準日期）
+     * 獲取當前顯示的年月
+     */
+    public YearMonth getCurrentYearMonth() {
+        return YearMonth.from(currentDate);
+    }
+    
+    /**
+     * 獲取當前顯示的日期（月份基準日期，也是日檢視顯示的日期）
      */
     public LocalDate getCurrentDate() {
         return currentDate;
     }
     
+    /**
+     * 當前日期所在週的第一天；與月曆相同，一週從星期日開始
+     */
+    public LocalDate getWeekStart() {
+        return currentDate.minusDays(currentDate.getDayOfWeek().getValue() % 7);
+    }
+    
     /**
      * 跳轉到日記頁面
      */
@@ -0,0 +1,132 @@
+package main;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.RandomAccess;
+
+/**
+ * 一天的事件，按時間排序，時間相同時按編號（即創建順序）排序
+ *
+ * 另外保存每個事件歸檔時的時間：事件物件在原地被修改後，仍能以歸檔時間二分搜尋找到原來的位置。
+ * 插入和刪除以二分搜尋定位，再移動之後的元素。對外是不可修改的列表。
+ */
+public class DayEvents extends AbstractList<Event> implements RandomAccess {
+    /** 與DayEvents相同的排序 */
+    public static final Comparator<Event> BY_TIME =
+        Comparator.comparing(Event::getTime).thenComparingLong(Event::getId);
+    
+    private static final int INITIAL_CAPACITY = 4;
+    
+    private Event[] events = new Event[INITIAL_CAPACITY];
+    // 每個事件歸檔時的時間（當天的奈秒數）
+    private long[] filedTimes = new long[INITIAL_CAPACITY];
+    private int size;
+    
+    /**
+     * 將事件插入到其時間對應的位置，返回插入的索引；已在列表中（相同時間和編號）時替換
+     */
+    public int insert(Event event) {
+        long time = timeKey(event);
+        int index = search(time, event.getId());
+        if (index >= 0) {
+            events[index] = event;
+            return index;
+        }
+        index = -index - 1;
+        if (size == events.length) {
+            int capacity = size + (size >> 1) + 1;
+            events = Arrays.copyOf(events, capacity);
+            filedTimes = Arrays.copyOf(filedTimes, capacity);
+        }
+        System.arraycopy(events, index, events, index + 1, size - index);
+        System.arraycopy(filedTimes, index, filedTimes, index + 1, size - index);
+        events[index] = event;
+        filedTimes[index] = time;
+        size++;
+        modCount++;
+        return index;
+    }
+    
+    /**
+     * 以歸檔時的時間找到事件的索引，不存在時返回-1
+     */
+    public int indexOf(Event event, long filedTime) {
+        int index = search(filedTime, event.getId());
+        return index >= 0 ? index : -1;
+    }
+    
+    /**
+     * 移除指定索引的事件
+     */
+    public Event removeAt(int index) {
+        Event removed = events[index];
+        System.arraycopy(events, index + 1, events, index, size - index - 1);
+        System.arraycopy(filedTimes, index + 1, filedTimes, index, size - index - 1);
+        events[--size] = null;
+        modCount++;
+        return removed;
+    }
+    
+    /**
+     * 以歸檔時的時間找到並移除事件，返回是否找到
+     */
+    public boolean remove(Event event, long filedTime) {
+        int index = indexOf(event, filedTime);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+    
+    @Override
+    public void clear() {
+        Arrays.fill(events, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+    
+    @Override
+    public Event get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return events[index];
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 事件目前的時間作為排序鍵
+     */
+    public static long timeKey(Event event) {
+        return event.getTime().toNanoOfDay();
+    }
+    
+    /**
+     * 以（歸檔時間，編號）二分搜尋；找到時返回索引，否則返回-(插入位置)-1
+     */
+    private int search(long time, long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int order = Long.compare(filedTimes[mid], time);
+            if (order == 0) {
+                order = Long.compare(events[mid].getId(), id);
+            }
+            if (order < 0) {
+                low = mid + 1;
+            } else if (order > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,100 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 一天中事件並排顯示的欄位配置：互相重疊的事件放在不同欄，
+ * 同一組連續重疊的事件共用相同的欄數
+ *
+ * 以掃描線按開始時間處理事件，以結束時間排序的佇列釋放已結束事件的欄位，
+ * 每個事件使用目前最小的空欄；進行中的事件全部結束時，該組的欄數即為使用過的最大欄位數。
+ * 時間為O(n log n)。
+ */
+public final class DayLayout {
+    private final Map<Event, Slot> slots = new HashMap<>();
+    
+    /**
+     * 事件所在的欄位及其所屬重疊組的欄數
+     */
+    public static final class Slot {
+        private final int column;
+        private int columnCount;
+        
+        Slot(int column) {
+            this.column = column;
+        }
+        
+        public int getColumn() {
+            return column;
+        }
+        
+        public int getColumnCount() {
+            return columnCount;
+        }
+    }
+    
+    private DayLayout() {
+    }
+    
+    /**
+     * 計算按開始時間排序的事件的欄位配置
+     */
+    public static DayLayout compute(List<Event> sortedEvents) {
+        DayLayout layout = new DayLayout();
+        // 進行中的事件，按結束時間排序
+        PriorityQueue<Active> active = new PriorityQueue<>((a, b) -> Integer.compare(a.end, b.end));
+        BitSet usedColumns = new BitSet();
+        List<Slot> group = new ArrayList<>();
+        int groupColumns = 0;
+        
+        for (Event event : sortedEvents) {
+            int start = event.getStartSecond();
+            while (!active.isEmpty() && active.peek().end <= start) {
+                usedColumns.clear(active.poll().column);
+            }
+            if (active.isEmpty()) {
+                closeGroup(group, groupColumns);
+                groupColumns = 0;
+            }
+            int column = usedColumns.nextClearBit(0);
+            usedColumns.set(column);
+            active.add(new Active(IntervalTree.endOf(event), column));
+            groupColumns = Math.max(groupColumns, column + 1);
+            
+            Slot slot = new Slot(column);
+            layout.slots.put(event, slot);
+            group.add(slot);
+        }
+        closeGroup(group, groupColumns);
+        return layout;
+    }
+    
+    /**
+     * 事件的欄位，不在此配置中時返回null
+     */
+    public Slot getSlot(Event event) {
+        return slots.get(event);
+    }
+    
+    private static void closeGroup(List<Slot> group, int columns) {
+        for (Slot slot : group) {
+            slot.columnCount = columns;
+        }
+        group.clear();
+    }
+    
+    private static final class Active {
+        final int end;
+        final int column;
+        
+        Active(int end, int column) {
+            this.end = end;
+            this.column = column;
+        }
+    }
+}
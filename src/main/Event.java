@@ -1,23 +1,49 @@
 package main;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicLong;
 import javafx.scene.paint.Color;
 
 public class Event {
+    // 事件編號產生器，保證每個事件的編號唯一
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+    
+    private final long id;
     private LocalDate date;
     private LocalTime time;
+    // 持續時間，ZERO表示只有開始時間
+    private Duration duration = Duration.ZERO;
     private String description;
     private Color color;
+    // 所屬日曆的編號，0為預設日曆
+    private int calendarId;
+    // 開始前多久提醒，null表示不提醒
+    private Duration reminder;
     
     public Event(LocalDate date, LocalTime time, String description, Color color) {
+        this(NEXT_ID.incrementAndGet(), date, time, description, color);
+    }
+    
+    /**
+     * 以既有編號創建事件，供存儲層重建事件時使用
+     */
+    Event(long id, LocalDate date, LocalTime time, String description, Color color) {
+        this.id = id;
         this.date = date;
         this.time = time;
         this.description = description;
         this.color = color;
+        // 避免之後新建的事件與重建的編號衝突
+        NEXT_ID.accumulateAndGet(id, Math::max);
     }
     
     // Getters
+    public long getId() {
+        return id;
+    }
+    
     public LocalDate getDate() {
         return date;
     }
@@ -26,6 +52,31 @@ public class Event {
         return time;
     }
     
+    public Duration getDuration() {
+        return duration;
+    }
+    
+    /**
+     * 結束時間，超過當天時為午夜00:00；沒有持續時間時與開始時間相同
+     */
+    public LocalTime getEndTime() {
+        return LocalTime.ofSecondOfDay(getEndSecond() % (24 * 60 * 60));
+    }
+    
+    /**
+     * 當天的開始秒數
+     */
+    public int getStartSecond() {
+        return time.toSecondOfDay();
+    }
+    
+    /**
+     * 當天的結束秒數（不包含），最多為86400
+     */
+    public int getEndSecond() {
+        return (int) Math.min(24 * 60 * 60, getStartSecond() + duration.getSeconds());
+    }
+    
     public String getDescription() {
         return description;
     }
@@ -34,6 +85,17 @@ public class Event {
         return color;
     }
     
+    public int getCalendarId() {
+        return calendarId;
+    }
+    
+    /**
+     * 開始前多久提醒，不提醒時為null
+     */
+    public Duration getReminder() {
+        return reminder;
+    }
+    
     // Setters
     public void setDate(LocalDate date) {
         this.date = date;
@@ -43,6 +105,13 @@ public class Event {
         this.time = time;
     }
     
+    /**
+     * 設定持續時間，負數視為沒有持續時間
+     */
+    public void setDuration(Duration duration) {
+        this.duration = duration.isNegative() ? Duration.ZERO : duration;
+    }
+    
     public void setDescription(String description) {
         this.description = description;
     }
@@ -51,8 +120,48 @@ public class Event {
         this.color = color;
     }
     
+    /**
+     * 設定所屬日曆，交給EventManager更新時移到該日曆
+     */
+    public void setCalendarId(int calendarId) {
+        this.calendarId = calendarId;
+    }
+    
+    /**
+     * 設定開始前多久提醒，null表示不提醒；負數視為準時提醒
+     */
+    public void setReminder(Duration reminder) {
+        this.reminder = reminder != null && reminder.isNegative() ? Duration.ZERO : reminder;
+    }
+    
+    /**
+     * 以相同編號複製目前的內容，副本不受之後對原事件的修改影響
+     */
+    Event copy() {
+        Event copy = new Event(id, date, time, description, color);
+        copy.duration = duration;
+        copy.calendarId = calendarId;
+        copy.reminder = reminder;
+        return copy;
+    }
+    
+    // 以編號判斷是否為同一事件，存儲層重建的事件視圖與原事件相等；
+    // 重複事件的各次發生與重複事件本身共用編號，因此也比較類別
+    @Override
+    public boolean equals(Object obj) {
+        return obj != null && obj.getClass() == getClass() && ((Event) obj).id == id;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+    
     @Override
     public String toString() {
-        return time.toString() + " - " + description;
+        if (duration.isZero()) {
+            return time.toString() + " - " + description;
+        }
+        return time + "–" + getEndTime() + " - " + description;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 一批待套用到EventManager的事件變更，套用時先刪除、再更新、最後新增
+ */
+public class EventBatch {
+    private final List<Event> added = new ArrayList<>();
+    private final List<Event> removed = new ArrayList<>();
+    private final List<Event> updated = new ArrayList<>();
+    
+    /**
+     * 加入待新增的事件
+     */
+    public EventBatch add(Event event) {
+        added.add(event);
+        return this;
+    }
+    
+    /**
+     * 加入多個待新增的事件
+     */
+    public EventBatch addAll(Collection<Event> events) {
+        added.addAll(events);
+        return this;
+    }
+    
+    /**
+     * 加入待刪除的事件
+     */
+    public EventBatch remove(Event event) {
+        removed.add(event);
+        return this;
+    }
+    
+    /**
+     * 加入多個待刪除的事件
+     */
+    public EventBatch removeAll(Collection<Event> events) {
+        removed.addAll(events);
+        return this;
+    }
+    
+    /**
+     * 加入已修改、需要重新歸檔的事件
+     */
+    public EventBatch update(Event event) {
+        updated.add(event);
+        return this;
+    }
+    
+    public List<Event> getAdded() {
+        return added;
+    }
+    
+    public List<Event> getRemoved() {
+        return removed;
+    }
+    
+    public List<Event> getUpdated() {
+        return updated;
+    }
+    
+    /**
+     * 批次中的操作總數
+     */
+    public int size() {
+        return added.size() + removed.size() + updated.size();
+    }
+    
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,75 @@
+package main;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 一個具名的日曆，例如個人、團隊或假日；每個日曆有自己的事件存儲和重複事件索引，
+ * 由EventManager將所有顯示中的日曆合併成每天一個按時間排序的列表。
+ * 隱藏的日曆不出現在查詢結果中，但其事件仍可修改、搜尋和匯出。
+ */
+public class EventCalendar {
+    private final int id;
+    private final String name;
+    private final EventStore store;
+    private final RecurrenceIndex recurrences = new RecurrenceIndex();
+    // 只接收本日曆事件修改的監聽器
+    private final List<EventMutationListener> mutationListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean visible = true;
+    
+    EventCalendar(int id, String name, EventStore store) {
+        this.id = id;
+        this.name = name;
+        this.store = store;
+    }
+    
+    /**
+     * 日曆編號，即屬於此日曆的事件的Event.getCalendarId()
+     */
+    public int getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public boolean isVisible() {
+        return visible;
+    }
+    
+    /**
+     * 註冊只接收本日曆事件修改的監聽器，例如各日曆自己的日誌；
+     * 事件移到其他日曆時，舊日曆收到刪除、新日曆收到新增
+     */
+    public void addMutationListener(EventMutationListener listener) {
+        mutationListeners.add(listener);
+    }
+    
+    public void removeMutationListener(EventMutationListener listener) {
+        mutationListeners.remove(listener);
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+    
+    // 以下只由EventManager在存儲鎖內使用
+    
+    EventStore getStore() {
+        return store;
+    }
+    
+    RecurrenceIndex getRecurrences() {
+        return recurrences;
+    }
+    
+    List<EventMutationListener> getMutationListeners() {
+        return mutationListeners;
+    }
+    
+    void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+}
@@ -0,0 +1,108 @@
+package main;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 描述EventManager中單一事件的變更，供界面只更新受影響的日期
+ */
+public class EventChange {
+    
+    /**
+     * 變更類型
+     */
+    public enum Type {
+        ADDED,
+        REMOVED,
+        UPDATED,
+        MOVED,
+        BATCH
+    }
+    
+    private final Type type;
+    private final Event event;
+    private final LocalDate oldDate;
+    private final LocalDate newDate;
+    // 批次變更影響的所有日期
+    private final Set<LocalDate> affectedDates;
+    // 批次中是否有重複事件改變，此時未列出的日期也可能受影響
+    private final boolean recurrenceChanged;
+    
+    public EventChange(Type type, Event event, LocalDate oldDate, LocalDate newDate) {
+        this.type = type;
+        this.event = event;
+        this.oldDate = oldDate;
+        this.newDate = newDate;
+        
+        Set<LocalDate> dates = new LinkedHashSet<>();
+        if (oldDate != null) {
+            dates.add(oldDate);
+        }
+        if (newDate != null) {
+            dates.add(newDate);
+        }
+        this.affectedDates = Collections.unmodifiableSet(dates);
+        this.recurrenceChanged = false;
+    }
+    
+    /**
+     * 創建一次批次變更，合併了多個事件的操作；recurrenceChanged表示其中有重複事件改變
+     */
+    public EventChange(Set<LocalDate> affectedDates, boolean recurrenceChanged) {
+        this.type = Type.BATCH;
+        this.event = null;
+        this.oldDate = null;
+        this.newDate = null;
+        this.affectedDates = Collections.unmodifiableSet(affectedDates);
+        this.recurrenceChanged = recurrenceChanged;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    /**
+     * 變更的事件，批次變更時為null
+     */
+    public Event getEvent() {
+        return event;
+    }
+    
+    /**
+     * 變更前事件所在的日期，新增事件時為null
+     */
+    public LocalDate getOldDate() {
+        return oldDate;
+    }
+    
+    /**
+     * 變更後事件所在的日期，刪除事件時為null
+     */
+    public LocalDate getNewDate() {
+        return newDate;
+    }
+    
+    /**
+     * 受此變更影響、需要重新顯示的日期
+     */
+    public Set<LocalDate> getAffectedDates() {
+        return affectedDates;
+    }
+    
+    /**
+     * 是否有重複事件改變；受影響的日期只列出已展開月份中的日期，快取其他月份的調用者需自行失效
+     */
+    public boolean isRecurrenceChanged() {
+        return recurrenceChanged;
+    }
+    
+    @Override
+    public String toString() {
+        if (type == Type.BATCH) {
+            return type + " " + affectedDates.size() + " dates";
+        }
+        return type + " " + event + " (" + oldDate + " -> " + newDate + ")";
+    }
+}
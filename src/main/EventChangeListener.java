@@ -0,0 +1,13 @@
+package main;
+
+/**
+ * 監聽EventManager中事件變更的介面
+ */
+@FunctionalInterface
+public interface EventChangeListener {
+    
+    /**
+     * 事件被新增、刪除、修改或移動到其他日期後調用
+     */
+    void onEventChanged(EventChange change);
+}
@@ -0,0 +1,66 @@
+package main;
+
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+
+/**
+ * 日曆格子中的事件標籤，可重新綁定到不同事件以便重複使用
+ */
+public class EventChip extends HBox {
+    private final Label timeLabel = new Label();
+    private final Label descLabel = new Label();
+    
+    // 目前綁定的事件
+    private Event event;
+    // 上次套用的顏色，顏色不變時不重設樣式
+    private Color appliedColor;
+    
+    public EventChip(CalendarController controller) {
+        super(5);
+        setMaxWidth(Double.MAX_VALUE);
+        
+        getStyleClass().add("event-chip");
+        timeLabel.getStyleClass().add("event-chip-label");
+        descLabel.getStyleClass().add("event-chip-label");
+        getChildren().addAll(timeLabel, descLabel);
+        
+        // 點擊事件標籤時選擇該事件進行編輯
+        setOnMouseClicked(e -> {
+            e.consume(); // 防止觸發單元格的點擊事件
+            if (event != null) {
+                controller.selectEventForEdit(event);
+            }
+        });
+    }
+    
+    /**
+     * 綁定到指定事件並更新顯示內容
+     */
+    public void bind(Event event) {
+        this.event = event;
+        timeLabel.setText(event.getTime().toString().substring(0, 5));
+        descLabel.setText(event.getDescription());
+        
+        // 設置背景顏色，同一顏色共用同一Background
+        Color eventColor = event.getColor();
+        if (!eventColor.equals(appliedColor)) {
+            appliedColor = eventColor;
+            setBackground(EventPalette.chipBackground(eventColor));
+        }
+    }
+    
+    /**
+     * 解除與事件的綁定，避免物件池中的標籤持有舊事件
+     */
+    public void unbind() {
+        this.event = null;
+    }
+    
+    /**
+     * 獲取目前綁定的事件
+     */
+    public Event getEvent() {
+        return event;
+    }
+}
@@ -0,0 +1,132 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 事件的二進位編碼，供日誌和月份分段檔共用
+ *
+ * 格式：編號(long)、epoch day(long)、時間(int)、ARGB顏色(int)、描述長度(int)、UTF-8描述
+ * 時間的低17位元為當天秒數，其上11位元為持續分鐘數，最高4位元為提醒代碼（見ReminderScheduler）；
+ * 較舊的記錄高位元為0，即沒有持續時間、不提醒
+ * 重複規則：頻率(byte)、間隔(int)、次數(int)、結束日期(long，無則為Long.MIN_VALUE)、
+ * 排除日期數(int)、各排除日期的epoch day(long)
+ */
+public final class EventCodec {
+    // 不含描述內容的固定長度
+    static final int FIXED_SIZE = 8 + 8 + 4 + 4 + 4;
+    // 不含排除日期的重複規則長度
+    static final int RULE_FIXED_SIZE = 1 + 4 + 4 + 8 + 4;
+    private static final long NO_UNTIL = Long.MIN_VALUE;
+    private static final int SECOND_BITS = 17;
+    private static final int DURATION_BITS = 11;
+    // 持續時間最多保存一天
+    private static final long MAX_DURATION_MINUTES = 24 * 60;
+    
+    private EventCodec() {
+    }
+    
+    /**
+     * 編碼後的長度
+     */
+    public static int encodedSize(byte[] description) {
+        return FIXED_SIZE + description.length;
+    }
+    
+    /**
+     * 將事件寫入buffer，description為事件描述的UTF-8內容
+     */
+    public static void encode(Event event, byte[] description, ByteBuffer buffer) {
+        buffer.putLong(event.getId())
+            .putLong(event.getDate().toEpochDay())
+            .putInt(packTime(event))
+            .putInt(CompactEventStore.packColor(event.getColor()))
+            .putInt(description.length)
+            .put(description);
+    }
+    
+    /**
+     * 將事件編碼成獨立的位元組陣列
+     */
+    public static byte[] encode(Event event) {
+        byte[] description = event.getDescription().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(description));
+        encode(event, description, buffer);
+        return buffer.array();
+    }
+    
+    /**
+     * 從buffer目前位置讀出一個事件
+     */
+    public static Event decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        LocalDate date = LocalDate.ofEpochDay(buffer.getLong());
+        int packedTime = buffer.getInt();
+        int argb = buffer.getInt();
+        byte[] description = new byte[buffer.getInt()];
+        buffer.get(description);
+        Event event = new Event(id, date, LocalTime.ofSecondOfDay(packedTime & ((1 << SECOND_BITS) - 1)),
+            new String(description, StandardCharsets.UTF_8), CompactEventStore.toColor(argb));
+        event.setDuration(Duration.ofMinutes(packedTime >>> SECOND_BITS & ((1 << DURATION_BITS) - 1)));
+        event.setReminder(ReminderScheduler.reminderOf(packedTime >>> SECOND_BITS + DURATION_BITS));
+        return event;
+    }
+    
+    /**
+     * 將開始時間、持續時間（以分鐘為單位，最多一天）和提醒代碼打包成一個int
+     */
+    private static int packTime(Event event) {
+        long minutes = Math.min(MAX_DURATION_MINUTES, event.getDuration().toMinutes());
+        return event.getTime().toSecondOfDay() | (int) minutes << SECOND_BITS
+            | ReminderScheduler.reminderCode(event.getReminder()) << SECOND_BITS + DURATION_BITS;
+    }
+    
+    /**
+     * 重複規則編碼後的長度
+     */
+    public static int encodedSize(RecurrenceRule rule) {
+        return RULE_FIXED_SIZE + 8 * rule.getExceptions().size();
+    }
+    
+    /**
+     * 將重複規則寫入buffer
+     */
+    public static void encode(RecurrenceRule rule, ByteBuffer buffer) {
+        buffer.put((byte) rule.getFrequency().ordinal())
+            .putInt(rule.getInterval())
+            .putInt(rule.getCount())
+            .putLong(rule.getUntil() != null ? rule.getUntil().toEpochDay() : NO_UNTIL)
+            .putInt(rule.getExceptions().size());
+        for (LocalDate exception : rule.getExceptions()) {
+            buffer.putLong(exception.toEpochDay());
+        }
+    }
+    
+    /**
+     * 從buffer目前位置讀出一個重複事件：事件內容後接重複規則
+     */
+    public static RecurringEvent decodeRecurring(ByteBuffer buffer) {
+        Event event = decode(buffer);
+        RecurrenceRule.Frequency frequency = RecurrenceRule.Frequency.values()[buffer.get()];
+        int interval = buffer.getInt();
+        int count = buffer.getInt();
+        long until = buffer.getLong();
+        int exceptionCount = buffer.getInt();
+        Set<LocalDate> exceptions = new TreeSet<>();
+        for (int i = 0; i < exceptionCount; i++) {
+            exceptions.add(LocalDate.ofEpochDay(buffer.getLong()));
+        }
+        RecurrenceRule rule = new RecurrenceRule(frequency, interval, count,
+            until != NO_UNTIL ? LocalDate.ofEpochDay(until) : null, exceptions);
+        RecurringEvent recurring = new RecurringEvent(event.getId(), event.getDate(), event.getTime(),
+            event.getDescription(), event.getColor(), rule);
+        recurring.setDuration(event.getDuration());
+        recurring.setReminder(event.getReminder());
+        return recurring;
+    }
+}
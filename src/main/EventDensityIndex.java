@@ -0,0 +1,159 @@
+package main;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 每天事件數的計數器，作為EventMutationListener隨每次修改增量維護，供年度總覽的熱度圖使用
+ *
+ * 一般事件的數量保存在以epoch day為索引的int陣列中，涵蓋範圍不夠時向兩端加倍擴充；
+ * 另有前綴和陣列，任何日期範圍的總數為兩個前綴和相減（O(1)）。
+ * 修改只調整一個計數並記下最早被改動的位置，下一次查詢時才從該位置重算前綴和，
+ * 連續的修改（例如批次匯入）只重算一次。重複事件不展開，查詢時按規則計算其發生的日期。
+ * 讀取時不需要走訪Event物件。方法同步在索引本身，修改可來自任何執行緒。
+ * 只計入經過EventManager加入或以seed()交給它的事件；隱藏的日曆的事件也計入。
+ */
+public class EventDensityIndex implements EventMutationListener {
+    // 第一次擴充時在日期兩側預留的天數
+    private static final int INITIAL_MARGIN = 366;
+    
+    // counts[i]是epoch day為firstDay+i的一般事件數
+    private int[] counts = new int[0];
+    private long firstDay;
+    // prefix[i]是counts[0..i-1]的總和，i > validPrefix的項目需要重算
+    private long[] prefix = new long[1];
+    private int validPrefix;
+    // 重複事件，查詢時讀取目前的規則
+    private final Map<Long, RecurringEvent> series = new LinkedHashMap<>();
+    
+    @Override
+    public synchronized void eventAdded(Event event) {
+        if (event instanceof RecurringEvent) {
+            series.put(event.getId(), (RecurringEvent) event);
+            return;
+        }
+        adjust(event.getDate().toEpochDay(), 1);
+    }
+    
+    @Override
+    public synchronized void eventRemoved(Event event, LocalDate oldDate) {
+        if (event instanceof RecurringEvent) {
+            series.remove(event.getId());
+            return;
+        }
+        adjust(oldDate.toEpochDay(), -1);
+    }
+    
+    @Override
+    public synchronized void eventUpdated(Event event, LocalDate oldDate) {
+        if (event instanceof RecurringEvent) {
+            series.put(event.getId(), (RecurringEvent) event);
+            return;
+        }
+        long day = event.getDate().toEpochDay();
+        if (day != oldDate.toEpochDay()) {
+            adjust(oldDate.toEpochDay(), -1);
+            adjust(day, 1);
+        }
+    }
+    
+    /**
+     * 計入不經過EventManager載入的已保存事件，例如分段存儲第一次載入的月份；
+     * 同一批事件只能交給它一次，否則重複計數
+     */
+    public synchronized void seed(Collection<Event> events) {
+        for (Event event : events) {
+            eventAdded(event);
+        }
+    }
+    
+    /**
+     * from到to（包含兩端）之間的事件數，包括重複事件的發生
+     */
+    public synchronized long countBetween(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            return 0;
+        }
+        long total = prefixAt(to.toEpochDay() + 1) - prefixAt(from.toEpochDay());
+        for (RecurringEvent event : series.values()) {
+            total += event.getRule().occurrencesBetween(event.getDate(), from, to).size();
+        }
+        return total;
+    }
+    
+    /**
+     * from到to（包含兩端）每天的事件數，索引0對應from，包括重複事件的發生
+     */
+    public synchronized int[] getDailyCounts(LocalDate from, LocalDate to) {
+        int length = (int) (to.toEpochDay() - from.toEpochDay() + 1);
+        int[] daily = new int[Math.max(0, length)];
+        if (length <= 0) {
+            return daily;
+        }
+        // 與計數陣列重疊的部分直接複製
+        long start = Math.max(from.toEpochDay(), firstDay);
+        long end = Math.min(to.toEpochDay(), firstDay + counts.length - 1);
+        if (start <= end) {
+            System.arraycopy(counts, (int) (start - firstDay), daily,
+                (int) (start - from.toEpochDay()), (int) (end - start + 1));
+        }
+        for (RecurringEvent event : series.values()) {
+            for (LocalDate date : event.getRule().occurrencesBetween(event.getDate(), from, to)) {
+                daily[(int) (date.toEpochDay() - from.toEpochDay())]++;
+            }
+        }
+        return daily;
+    }
+    
+    private void adjust(long day, int delta) {
+        ensureCovered(day);
+        int index = (int) (day - firstDay);
+        counts[index] += delta;
+        validPrefix = Math.min(validPrefix, index);
+    }
+    
+    /**
+     * epoch day之前（不包含）的一般事件總數
+     */
+    private long prefixAt(long day) {
+        int index = (int) Math.max(0, Math.min(counts.length, day - firstDay));
+        if (index > validPrefix) {
+            for (int i = validPrefix; i < index; i++) {
+                prefix[i + 1] = prefix[i] + counts[i];
+            }
+            validPrefix = index;
+        }
+        return prefix[index];
+    }
+    
+    /**
+     * 擴充計數陣列使其涵蓋指定日期，每次至少加倍以攤平複製的成本
+     */
+    private void ensureCovered(long day) {
+        if (counts.length == 0) {
+            firstDay = day - INITIAL_MARGIN;
+            counts = new int[2 * INITIAL_MARGIN + 1];
+            prefix = new long[counts.length + 1];
+            validPrefix = 0;
+            return;
+        }
+        long lastDay = firstDay + counts.length - 1;
+        if (day >= firstDay && day <= lastDay) {
+            return;
+        }
+        int growth = Math.max(counts.length, (int) Math.max(firstDay - day, day - lastDay));
+        int before = day < firstDay ? growth : 0;
+        int[] grown = new int[counts.length + growth];
+        System.arraycopy(counts, 0, grown, before, counts.length);
+        counts = grown;
+        firstDay -= before;
+        prefix = Arrays.copyOf(prefix, counts.length + 1);
+        // 向前擴充時所有前綴和都位移，向後擴充時已算好的部分仍然有效
+        if (before > 0) {
+            validPrefix = 0;
+        }
+    }
+}
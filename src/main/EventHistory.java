@@ -0,0 +1,190 @@
+package main;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 事件的版本記錄，支援多步復原和重做，並提供不需加鎖的一致快照
+ *
+ * 作為EventMutationListener在存儲鎖內記錄每個修改：事件內容複製一份放進PersistentEventMap，
+ * 各版本共用未修改的結構，之後原地修改事件不影響舊版本；連續的修改以編輯器原地進行，
+ * 取快照或結束一個步驟時才凍結成版本，批次匯入不必為每個事件複製路徑。
+ * 作為EventChangeListener在每次界面通知時把累積的修改定為一個步驟，
+ * 因此一次新增、修改或刪除各為一步；跨越多次通知的工作（例如背景匯入）以beginStep()和endStep()
+ * 包住，結束時整個工作才算一步，不會擠掉其他步驟。復原和重做只比較兩個版本不共用的部分，
+ * 把差異作為一批變更交給EventManager，持久化和索引照常收到通知。
+ * 只記錄經過EventManager的事件，不適用於自行從磁碟載入事件的分段存儲。
+ * getSnapshot()可在任何執行緒調用，取得的快照不需加鎖即可讀取；其餘方法只在界面執行緒調用。
+ */
+public class EventHistory implements EventMutationListener, EventChangeListener {
+    // 最多保留的復原步驟數
+    private static final int MAX_STEPS = 100;
+    
+    private final EventManager eventManager;
+    // 最新的狀態，在存儲鎖內修改，存取時同步在本物件
+    private final PersistentEventMap.Editor current = new PersistentEventMap.Editor(PersistentEventMap.EMPTY);
+    // 最近一個步驟結束時的狀態
+    private PersistentEventMap committed = PersistentEventMap.EMPTY;
+    private final Deque<PersistentEventMap> undoStack = new ArrayDeque<>();
+    private final Deque<PersistentEventMap> redoStack = new ArrayDeque<>();
+    // 正在套用復原或重做，期間的通知不算新步驟
+    private boolean restoring;
+    // 尚未結束的beginStep()數量，期間的通知不算新步驟
+    private int openSteps;
+    
+    public EventHistory(EventManager eventManager) {
+        this.eventManager = eventManager;
+        eventManager.addMutationListener(this);
+        eventManager.addEventChangeListener(this);
+    }
+    
+    /**
+     * 最近一次修改後所有事件的快照，之後的修改不影響它；其中的事件不應被修改
+     */
+    public synchronized PersistentEventMap getSnapshot() {
+        return current.snapshot();
+    }
+    
+    public boolean canUndo() {
+        return openSteps == 0 && (!undoStack.isEmpty() || getSnapshot() != committed);
+    }
+    
+    public boolean canRedo() {
+        return openSteps == 0 && !redoStack.isEmpty() && getSnapshot() == committed;
+    }
+    
+    /**
+     * 開始一個跨越多次通知的步驟，之前的修改先記為一步；與endStep()成對調用
+     */
+    public void beginStep() {
+        if (openSteps++ == 0) {
+            commitStep();
+        }
+    }
+    
+    /**
+     * 結束beginStep()開始的步驟，期間的所有修改記為一步
+     */
+    public void endStep() {
+        if (openSteps == 0) {
+            throw new IllegalStateException("沒有開始的步驟");
+        }
+        if (--openSteps == 0) {
+            commitStep();
+        }
+    }
+    
+    /**
+     * 回到上一個步驟之前的狀態，沒有可復原的步驟或有未結束的步驟時返回false
+     */
+    public boolean undo() {
+        if (openSteps > 0) {
+            return false;
+        }
+        commitStep();
+        if (undoStack.isEmpty()) {
+            return false;
+        }
+        PersistentEventMap target = undoStack.pop();
+        redoStack.push(committed);
+        restore(target);
+        return true;
+    }
+    
+    /**
+     * 重新套用最近復原的步驟，復原後有新的修改時不能重做
+     */
+    public boolean redo() {
+        if (openSteps > 0) {
+            return false;
+        }
+        commitStep();
+        if (redoStack.isEmpty()) {
+            return false;
+        }
+        PersistentEventMap target = redoStack.pop();
+        undoStack.push(committed);
+        restore(target);
+        return true;
+    }
+    
+    /**
+     * 清除復原和重做記錄，以目前狀態作為起點，例如載入保存的事件之後
+     */
+    public void clear() {
+        committed = getSnapshot();
+        undoStack.clear();
+        redoStack.clear();
+    }
+    
+    @Override
+    public synchronized void eventAdded(Event event) {
+        current.put(event.copy());
+    }
+    
+    @Override
+    public synchronized void eventRemoved(Event event, LocalDate oldDate) {
+        current.remove(event.getId());
+    }
+    
+    @Override
+    public synchronized void eventUpdated(Event event, LocalDate oldDate) {
+        current.put(event.copy());
+    }
+    
+    @Override
+    public void onEventChanged(EventChange change) {
+        if (!restoring && openSteps == 0) {
+            commitStep();
+        }
+    }
+    
+    /**
+     * 上一個步驟之後有修改時把它記為新步驟，並清除重做記錄
+     */
+    private void commitStep() {
+        PersistentEventMap state = getSnapshot();
+        if (state == committed) {
+            return;
+        }
+        undoStack.push(committed);
+        if (undoStack.size() > MAX_STEPS) {
+            undoStack.removeLast();
+        }
+        redoStack.clear();
+        committed = state;
+    }
+    
+    /**
+     * 將目前狀態與目標版本的差異作為一批變更套用；內容改變的事件以副本取代，
+     * 存儲中的舊物件不再使用，目標版本中的事件保持唯讀
+     */
+    private void restore(PersistentEventMap target) {
+        EventBatch batch = new EventBatch();
+        getSnapshot().diff(target, new PersistentEventMap.DiffVisitor() {
+            @Override
+            public void added(Event event) {
+                batch.add(event.copy());
+            }
+            
+            @Override
+            public void removed(Event event) {
+                batch.remove(event);
+            }
+            
+            @Override
+            public void changed(Event from, Event to) {
+                batch.remove(from);
+                batch.add(to.copy());
+            }
+        });
+        restoring = true;
+        try {
+            eventManager.applyBatch(batch, null);
+        } finally {
+            restoring = false;
+        }
+        committed = getSnapshot();
+    }
+}
@@ -0,0 +1,317 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 事件的持久化日誌
+ *
+ * 每次修改編碼成一筆記錄放入佇列，由背景執行緒以FileChannel追加寫入，
+ * 同一時間累積的記錄合併成一次寫入和一次fsync（群組提交），界面執行緒不會等待磁碟。
+ * 日誌超過一定大小時由同一背景執行緒壓縮成快照檔並清空日誌，啟動時只需讀取快照和較短的日誌。
+ * 記錄格式：長度、CRC32、內容；崩潰造成的不完整尾端記錄會在開啟時被截斷。
+ * 重複事件連同規則保存為一筆記錄。
+ */
+public class EventJournal implements EventMutationListener {
+    private static final int MAGIC = 0x4D434A31; // "MCJ1"
+    private static final int HEADER_SIZE = 4;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_PUT_RECURRING = 3;
+    // 日誌超過此大小時壓縮成快照
+    private static final long COMPACTION_THRESHOLD = 8L * 1024 * 1024;
+    // 每次群組提交最多寫入的記錄數
+    private static final int MAX_GROUP_SIZE = 4096;
+    
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final FileChannel journalChannel;
+    private final BlockingQueue<ByteBuffer> pending = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    // 只記錄重複事件，供自行保存一般事件的分段存儲使用
+    private final boolean recurringOnly;
+    // 開啟時從快照和日誌恢復的事件
+    private List<Event> recoveredEvents;
+    
+    private EventJournal(Path directory, boolean recurringOnly) throws IOException {
+        this.recurringOnly = recurringOnly;
+        Files.createDirectories(directory);
+        journalPath = directory.resolve("events.journal");
+        snapshotPath = directory.resolve("events.snapshot");
+        
+        Map<Long, byte[]> state = new LinkedHashMap<>();
+        readRecords(snapshotPath, state);
+        long validEnd = readRecords(journalPath, state);
+        recoveredEvents = decodeAll(state);
+        
+        journalChannel = FileChannel.open(journalPath,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (validEnd < HEADER_SIZE) {
+            // 新檔案或檔頭損壞，重新開始
+            journalChannel.truncate(0);
+            journalChannel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+            validEnd = HEADER_SIZE;
+        }
+        // 丟棄崩潰時寫到一半的記錄
+        journalChannel.truncate(validEnd);
+        journalChannel.position(validEnd);
+        
+        writerThread = new Thread(this::writeLoop, "event-journal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    /**
+     * 開啟指定目錄中的日誌，並恢復之前保存的事件
+     */
+    public static EventJournal open(Path directory) throws IOException {
+        return new EventJournal(directory, false);
+    }
+    
+    /**
+     * 開啟只記錄重複事件的日誌，一般事件由其他存儲保存
+     */
+    public static EventJournal openForRecurring(Path directory) throws IOException {
+        return new EventJournal(directory, true);
+    }
+    
+    /**
+     * 獲取開啟時恢復的事件，只能取一次，之後返回空列表
+     */
+    public List<Event> takeRecoveredEvents() {
+        List<Event> events = recoveredEvents;
+        recoveredEvents = new ArrayList<>();
+        return events;
+    }
+    
+    @Override
+    public void eventAdded(Event event) {
+        if (accepts(event)) {
+            append(encodePut(event));
+        }
+    }
+    
+    @Override
+    public void eventRemoved(Event event, LocalDate oldDate) {
+        if (accepts(event)) {
+            append(ByteBuffer.allocate(1 + 8).put(OP_REMOVE).putLong(event.getId()).array());
+        }
+    }
+    
+    @Override
+    public void eventUpdated(Event event, LocalDate oldDate) {
+        if (accepts(event)) {
+            append(encodePut(event));
+        }
+    }
+    
+    /**
+     * 寫入所有待寫記錄後關閉日誌
+     */
+    public void close() {
+        running = false;
+        try {
+            writerThread.join();
+            journalChannel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("關閉事件日誌失敗: " + e.getMessage());
+        }
+    }
+    
+    private boolean accepts(Event event) {
+        return !recurringOnly || event instanceof RecurringEvent;
+    }
+    
+    /**
+     * 將記錄加入待寫佇列
+     */
+    private void append(byte[] payload) {
+        if (running) {
+            pending.add(frame(payload));
+        }
+    }
+    
+    /**
+     * 背景寫入迴圈：每次取出佇列中累積的所有記錄，一次寫入並fsync
+     */
+    private void writeLoop() {
+        List<ByteBuffer> group = new ArrayList<>();
+        while (running || !pending.isEmpty()) {
+            try {
+                ByteBuffer first = pending.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                pending.drainTo(group, MAX_GROUP_SIZE - 1);
+                
+                ByteBuffer[] buffers = group.toArray(new ByteBuffer[0]);
+                ByteBuffer last = buffers[buffers.length - 1];
+                while (last.hasRemaining()) {
+                    journalChannel.write(buffers);
+                }
+                journalChannel.force(false);
+                
+                if (journalChannel.size() > COMPACTION_THRESHOLD) {
+                    compact();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                System.err.println("寫入事件日誌失敗: " + e.getMessage());
+            } finally {
+                group.clear();
+            }
+        }
+    }
+    
+    /**
+     * 將快照和日誌合併成新的快照，再清空日誌
+     */
+    private void compact() throws IOException {
+        Map<Long, byte[]> state = new LinkedHashMap<>();
+        readRecords(snapshotPath, state);
+        readRecords(journalPath, state);
+        
+        Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.putInt(MAGIC);
+            for (byte[] payload : state.values()) {
+                ByteBuffer record = frame(payload);
+                if (record.remaining() > buffer.remaining()) {
+                    writeFully(buffer, out);
+                }
+                if (record.remaining() > buffer.capacity()) {
+                    while (record.hasRemaining()) {
+                        out.write(record);
+                    }
+                } else {
+                    buffer.put(record);
+                }
+            }
+            writeFully(buffer, out);
+            out.force(true);
+        }
+        // 先原子替換快照再清空日誌；兩步之間崩潰時重播是冪等的
+        Files.move(tempPath, snapshotPath,
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalChannel.truncate(HEADER_SIZE);
+        journalChannel.position(HEADER_SIZE);
+        journalChannel.force(true);
+    }
+    
+    private static void writeFully(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * 讀取檔案中的記錄並套用到state（事件編號到最新內容），返回最後一筆完整記錄的結尾位置
+     */
+    private static long readRecords(Path path, Map<Long, byte[]> state) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long size = Files.size(path);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            if (size < HEADER_SIZE || in.readInt() != MAGIC) {
+                return 0;
+            }
+            long position = HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            while (position + 8 <= size) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || position + 8 + length > size) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                
+                long id = ByteBuffer.wrap(payload).getLong(1);
+                if (payload[0] == OP_PUT || payload[0] == OP_PUT_RECURRING) {
+                    state.put(id, payload);
+                } else {
+                    state.remove(id);
+                }
+                position += 8 + length;
+            }
+            return position;
+        }
+    }
+    
+    /**
+     * 為記錄內容加上長度和CRC32
+     */
+    private static ByteBuffer frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        buffer.flip();
+        return buffer;
+    }
+    
+    /**
+     * 編碼新增或修改後的事件內容
+     */
+    private static byte[] encodePut(Event event) {
+        byte[] description = event.getDescription().getBytes(StandardCharsets.UTF_8);
+        if (event instanceof RecurringEvent) {
+            RecurrenceRule rule = ((RecurringEvent) event).getRule();
+            ByteBuffer buffer = ByteBuffer.allocate(
+                1 + EventCodec.encodedSize(description) + EventCodec.encodedSize(rule));
+            buffer.put(OP_PUT_RECURRING);
+            EventCodec.encode(event, description, buffer);
+            EventCodec.encode(rule, buffer);
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + EventCodec.encodedSize(description));
+        buffer.put(OP_PUT);
+        EventCodec.encode(event, description, buffer);
+        return buffer.array();
+    }
+    
+    private static List<Event> decodeAll(Map<Long, byte[]> state) {
+        List<Event> events = new ArrayList<>(state.size());
+        for (byte[] payload : state.values()) {
+            ByteBuffer buffer = ByteBuffer.wrap(payload, 1, payload.length - 1);
+            events.add(payload[0] == OP_PUT_RECURRING
+                ? EventCodec.decodeRecurring(buffer)
+                : EventCodec.decode(buffer));
+        }
+        return events;
+    }
+}
@@ -1,31 +1,154 @@
 package main;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
-import javafx.collections.FXCollections;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 
 /**
  * 管理日曆事件的類
+ *
+ * 任何執行緒都可以修改事件：存儲的讀寫及EventMutationListener的通知都在存儲鎖內進行，
+ * 監聽器看到的修改順序與存儲一致。創建EventManager的執行緒視為界面執行緒，
+ * 在界面執行緒的修改立即更新事件列表並通知EventChangeListener；
+ * 其他執行緒的修改只記下受影響的日期，合併成一次交給界面執行緒，
+ * 期間無論有多少次修改，事件列表只重建一次並只發出一個BATCH通知。
+ * 事件列表、選中日期及EventChangeListener只在界面執行緒使用。
+ *
+ * 事件按Event.getCalendarId()歸入各個EventCalendar，每個日曆有自己的存儲和重複事件索引；
+ * 查詢時把顯示中的日曆同一天的列表惰性合併，切換顯示只通知該日曆有事件的日期。
  */
 public class EventManager {
-    // 用於存儲事件的Map，按日期組織
-    private Map<LocalDate, List<Event>> eventMap = new HashMap<>();
-    private ObservableList<Event> currentDateEvents = FXCollections.observableArrayList();
-    private LocalDate selectedDate;
+    // 批次操作每處理多少個事件回報一次進度
+    private static final int PROGRESS_INTERVAL = 10_000;
+    // 最多保留幾天的區間樹
+    private static final int MAX_INTERVAL_TREES = 64;
+    
+    // 預設日曆的名稱
+    private static final String DEFAULT_CALENDAR_NAME = "預設";
+    
+    // 所有日曆，索引即日曆編號；第0個是預設日曆，使用構造時指定的存儲
+    private final List<EventCalendar> calendars = new CopyOnWriteArrayList<>();
+    // 最近查詢過重疊的日期的區間樹，以epoch day為鍵，該日事件變更時丟棄
+    private final Map<Long, IntervalTree> intervalTrees = new LinkedHashMap<>(16, 0.75f, true);
+    // 保護所有日曆的存儲及重複事件索引的鎖；以預設日曆的存儲作為鎖，存儲自己的同步方法（例如寫回磁碟）也與此互斥
+    private final Object storeLock;
+    // 選中日期的事件，按時間排序
+    private SortedEventList currentDateEvents = new SortedEventList();
+    private volatile LocalDate selectedDate;
+    // 事件變更的監聽器
+    private List<EventChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    // 逐一接收事件修改的監聽器（持久化、索引等）
+    private List<EventMutationListener> mutationListeners = new CopyOnWriteArrayList<>();
+    
+    // 界面執行緒及把工作交給它的方式
+    private final Thread uiThread;
+    private volatile Executor uiExecutor = Platform::runLater;
+    // 其他執行緒修改後尚未通知界面的日期，由pendingLock保護
+    private final Object pendingLock = new Object();
+    private final Set<Long> pendingDays = new TreeSet<>();
+    private boolean pendingRecurrenceChange;
+    private boolean deliveryScheduled;
     
     public EventManager() {
+        this(new IndexedEventStore());
+    }
+    
+    /**
+     * 使用指定的存儲創建，例如大量事件時使用CompactEventStore
+     */
+    public EventManager(EventStore store) {
+        this.calendars.add(new EventCalendar(0, DEFAULT_CALENDAR_NAME, store));
+        this.storeLock = store;
         this.selectedDate = LocalDate.now();
+        this.uiThread = Thread.currentThread();
+    }
+    
+    /**
+     * 新增一個空的日曆，其事件以Event.setCalendarId()指定；額外的日曆保存在記憶體中，
+     * 持久化由調用者為它註冊的監聽器負責
+     */
+    public EventCalendar addCalendar(String name) {
+        synchronized (storeLock) {
+            EventCalendar calendar = new EventCalendar(calendars.size(), name, new IndexedEventStore());
+            calendars.add(calendar);
+            return calendar;
+        }
+    }
+    
+    /**
+     * 所有日曆，索引即日曆編號
+     */
+    public List<EventCalendar> getCalendars() {
+        return Collections.unmodifiableList(calendars);
+    }
+    
+    public EventCalendar getDefaultCalendar() {
+        return calendars.get(0);
+    }
+    
+    /**
+     * 顯示或隱藏日曆，只在界面執行緒調用；只有months（調用者正在顯示或快取的月份）及選中日期的月份中
+     * 該日曆有事件的日期收到BATCH通知，其他月份下次建立時自然反映新的顯示狀態，不需掃描整個歷史
+     */
+    public void setCalendarVisible(EventCalendar calendar, boolean visible, Collection<YearMonth> months) {
+        Set<Long> affectedDays = new TreeSet<>();
+        boolean recurring;
+        synchronized (storeLock) {
+            if (calendar.isVisible() == visible) {
+                return;
+            }
+            calendar.setVisible(visible);
+            intervalTrees.clear();
+            EventStore store = calendar.getStore();
+            Set<YearMonth> scanned = new TreeSet<>(months);
+            scanned.add(YearMonth.from(selectedDate));
+            for (YearMonth month : scanned) {
+                affectedDays.addAll(store.getDaysInRange(
+                    month.atDay(1).toEpochDay(), month.atEndOfMonth().toEpochDay()));
+            }
+            // 重複事件的發生只需通知已展開的月份，其他月份查詢時才展開
+            calendar.getRecurrences().collectCachedDates(affectedDays);
+            recurring = calendar.getRecurrences().size() > 0;
+        }
+        if (!affectedDays.isEmpty() || recurring) {
+            deliverBatch(affectedDays, recurring);
+        }
     }
     
     /**
-     * 設置當前選中的日期
+     * 設置把通知交給界面執行緒的方式，預設為Platform.runLater；沒有JavaFX時（例如基準測試）使用
+     */
+    public void setUiExecutor(Executor uiExecutor) {
+        this.uiExecutor = uiExecutor;
+    }
+    
+    /**
+     * 設置當前選中的日期，只在界面執行緒調用
      */
     public void setSelectedDate(LocalDate date) {
+        // 事件列表已隨每次變更增量維護，同一日期不需要重建
+        if (date.equals(selectedDate)) {
+            return;
+        }
         this.selectedDate = date;
         updateCurrentDateEvents();
     }
@@ -41,9 +164,8 @@ public class EventManager {
      * 更新當前日期的事件列表
      */
     private void updateCurrentDateEvents() {
-        currentDateEvents.clear();
-        if (eventMap.containsKey(selectedDate)) {
-            currentDateEvents.addAll(eventMap.get(selectedDate));
+        synchronized (storeLock) {
+            currentDateEvents.setAll(eventsOn(selectedDate));
         }
     }
     
@@ -51,60 +173,777 @@ public class EventManager {
      * 添加新事件
      */
     public void addEvent(Event event) {
-        LocalDate date = event.getDate();
-        if (!eventMap.containsKey(date)) {
-            eventMap.put(date, new ArrayList<>());
-        }
-        eventMap.get(date).add(event);
-        
-        // 如果是選中日期的事件，更新事件列表
-        if (date.equals(selectedDate)) {
-            currentDateEvents.add(event);
+        long start = CalendarMetrics.start();
+        try {
+            if (event instanceof RecurringEvent) {
+                applyBatch(new EventBatch().add(event), null);
+                return;
+            }
+            long day = event.getDate().toEpochDay();
+            EventCalendar calendar;
+            synchronized (storeLock) {
+                calendar = calendarOf(event);
+                calendar.getStore().add(event);
+                fireEventAdded(calendar, event);
+            }
+            if (!isUiThread()) {
+                postChange(Set.of(day), false);
+                return;
+            }
+            
+            // 如果是選中日期的事件且日曆顯示中，更新事件列表
+            if (calendar.isVisible() && isSelectedDay(day)) {
+                currentDateEvents.add(event);
+            }
+            
+            fireEventChange(new EventChange(EventChange.Type.ADDED, event, null, event.getDate()));
+        } finally {
+            CalendarMetrics.EVENT_ADD.recordSince(start);
         }
     }
     
     /**
-     * 刪除事件
+     * 刪除事件；重複事件的一次發生只刪除那一次
      */
     public void removeEvent(Event event) {
-        LocalDate date = event.getDate();
-        if (eventMap.containsKey(date)) {
-            eventMap.get(date).remove(event);
+        long start = CalendarMetrics.start();
+        try {
+            if (isRecurring(event)) {
+                applyBatch(new EventBatch().remove(event), null);
+                return;
+            }
+            Long day;
+            EventCalendar calendar;
+            synchronized (storeLock) {
+                calendar = filedCalendar(event);
+                if (calendar == null) {
+                    return;
+                }
+                day = calendar.getStore().getFiledDay(event);
+                calendar.getStore().remove(event);
+                fireEventRemoved(calendar, event, day);
+            }
+            if (!isUiThread()) {
+                postChange(Set.of(day), false);
+                return;
+            }
             
             // 如果是選中日期的事件，從事件列表移除
-            if (date.equals(selectedDate)) {
+            if (calendar.isVisible() && isSelectedDay(day)) {
                 currentDateEvents.remove(event);
             }
+            
+            fireEventChange(new EventChange(
+                EventChange.Type.REMOVED, event, LocalDate.ofEpochDay(day), null));
+        } finally {
+            CalendarMetrics.EVENT_REMOVE.recordSince(start);
         }
     }
     
     /**
-     * 更新事件 
+     * 更新事件，若事件日期已被修改則重新歸檔到新日期；
+     * 重複事件一次發生的修改規則見EventOccurrence
      */
     public void updateEvent(Event event) {
-        // ListView需要刷新顯示
-        if (event.getDate().equals(selectedDate)) {
-            int index = currentDateEvents.indexOf(event);
-            if (index >= 0) {
-                currentDateEvents.set(index, event);
+        updateEvent(event, edited -> { });
+    }
+    
+    /**
+     * 在存儲鎖內以edit修改事件並重新歸檔；其他執行緒（例如背景匯出）讀取同一物件時
+     * 看到的是修改前或修改後的完整內容，不會是修改了一半的事件
+     */
+    public void updateEvent(Event event, Consumer<Event> edit) {
+        long start = CalendarMetrics.start();
+        try {
+            if (isRecurring(event)) {
+                synchronized (storeLock) {
+                    edit.accept(event);
+                }
+                applyBatch(new EventBatch().update(event), null);
+                return;
+            }
+            long oldDay;
+            long newDay;
+            EventCalendar oldCalendar;
+            EventCalendar newCalendar;
+            synchronized (storeLock) {
+                oldCalendar = filedCalendar(event);
+                if (oldCalendar == null) {
+                    return;
+                }
+                edit.accept(event);
+                newDay = event.getDate().toEpochDay();
+                newCalendar = calendarOf(event);
+                oldDay = oldCalendar.getStore().getFiledDay(event);
+                refile(oldCalendar, newCalendar, event);
+                fireEventUpdated(oldCalendar, newCalendar, event, oldDay);
+            }
+            if (!isUiThread()) {
+                Set<Long> days = new TreeSet<>();
+                days.add(oldDay);
+                days.add(newDay);
+                postChange(days, false);
+                return;
             }
+            
+            // 換了日期或日曆時按新舊位置各自是否顯示更新列表
+            if (oldDay != newDay || oldCalendar != newCalendar) {
+                if (oldCalendar.isVisible() && isSelectedDay(oldDay)) {
+                    currentDateEvents.remove(event);
+                }
+                if (newCalendar.isVisible() && isSelectedDay(newDay)) {
+                    currentDateEvents.add(event);
+                }
+                
+                EventChange.Type type = oldDay != newDay ? EventChange.Type.MOVED : EventChange.Type.UPDATED;
+                fireEventChange(new EventChange(type, event, LocalDate.ofEpochDay(oldDay), event.getDate()));
+                return;
+            }
+            
+            // 時間可能改變，移到新位置；位置不變時ListView也會刷新顯示
+            if (newCalendar.isVisible() && isSelectedDay(newDay)) {
+                currentDateEvents.reposition(event);
+            }
+            
+            fireEventChange(new EventChange(
+                EventChange.Type.UPDATED, event, event.getDate(), event.getDate()));
+        } finally {
+            CalendarMetrics.EVENT_UPDATE.recordSince(start);
         }
     }
     
     /**
-     * 獲取指定日期的事件列表
+     * 一次新增多個事件，只發出一次列表變更和一次日曆更新
+     */
+    public void addAll(Collection<Event> events) {
+        applyBatch(new EventBatch().addAll(events), null);
+    }
+    
+    /**
+     * 一次刪除多個事件，只發出一次列表變更和一次日曆更新
+     */
+    public void removeAll(Collection<Event> events) {
+        applyBatch(new EventBatch().removeAll(events), null);
+    }
+    
+    /**
+     * 套用一批變更：先完成所有索引修改，再合併更新事件列表並發出一次BATCH通知
+     */
+    public void applyBatch(EventBatch batch, BatchProgressListener progressListener) {
+        long start = CalendarMetrics.start();
+        try {
+            int total = batch.size();
+            int processed = 0;
+            Set<Long> affectedDays = new TreeSet<>();
+            boolean recurrenceChanged = false;
+            
+            synchronized (storeLock) {
+                for (Event event : batch.getRemoved()) {
+                    if (isRecurring(event)) {
+                        recurrenceChanged |= removeRecurring(event, affectedDays);
+                        reportProgress(progressListener, ++processed, total);
+                        continue;
+                    }
+                    EventCalendar calendar = filedCalendar(event);
+                    if (calendar != null) {
+                        long day = calendar.getStore().getFiledDay(event);
+                        calendar.getStore().remove(event);
+                        fireEventRemoved(calendar, event, day);
+                        affectedDays.add(day);
+                    }
+                    reportProgress(progressListener, ++processed, total);
+                }
+                
+                for (Event event : batch.getUpdated()) {
+                    if (isRecurring(event)) {
+                        recurrenceChanged |= updateRecurring(event, affectedDays);
+                        reportProgress(progressListener, ++processed, total);
+                        continue;
+                    }
+                    EventCalendar oldCalendar = filedCalendar(event);
+                    if (oldCalendar != null) {
+                        EventCalendar newCalendar = calendarOf(event);
+                        long oldDay = oldCalendar.getStore().getFiledDay(event);
+                        refile(oldCalendar, newCalendar, event);
+                        fireEventUpdated(oldCalendar, newCalendar, event, oldDay);
+                        affectedDays.add(oldDay);
+                        affectedDays.add(event.getDate().toEpochDay());
+                    }
+                    reportProgress(progressListener, ++processed, total);
+                }
+                
+                for (Event event : batch.getAdded()) {
+                    EventCalendar calendar = calendarOf(event);
+                    if (event instanceof RecurringEvent) {
+                        calendar.getRecurrences().add((RecurringEvent) event, affectedDays);
+                        fireEventAdded(calendar, event);
+                        recurrenceChanged = true;
+                        reportProgress(progressListener, ++processed, total);
+                        continue;
+                    }
+                    calendar.getStore().add(event);
+                    fireEventAdded(calendar, event);
+                    affectedDays.add(event.getDate().toEpochDay());
+                    reportProgress(progressListener, ++processed, total);
+                }
+            }
+            
+            if (affectedDays.isEmpty() && !recurrenceChanged) {
+                return;
+            }
+            if (isUiThread()) {
+                deliverBatch(affectedDays, recurrenceChanged);
+            } else {
+                postChange(affectedDays, recurrenceChanged);
+            }
+        } finally {
+            CalendarMetrics.EVENT_BATCH.recordSince(start);
+        }
+    }
+    
+    /**
+     * 在界面執行緒更新事件列表並發出一個BATCH通知
+     */
+    private void deliverBatch(Set<Long> affectedDays, boolean recurrenceChanged) {
+        // 選中日期受影響時整體替換一次，ListView只收到一個變更；
+        // 重複事件改變時選中日期不一定在已展開的月份中，一律重建
+        if (recurrenceChanged || affectedDays.contains(selectedDate.toEpochDay())) {
+            updateCurrentDateEvents();
+        }
+        
+        Set<LocalDate> affectedDates = new LinkedHashSet<>();
+        for (long day : affectedDays) {
+            affectedDates.add(LocalDate.ofEpochDay(day));
+        }
+        fireEventChange(new EventChange(affectedDates, recurrenceChanged));
+    }
+    
+    /**
+     * 記下其他執行緒修改的日期；尚未安排通知時安排一次，之後的修改併入同一次通知
+     */
+    private void postChange(Set<Long> days, boolean recurrenceChanged) {
+        synchronized (pendingLock) {
+            pendingDays.addAll(days);
+            pendingRecurrenceChange |= recurrenceChanged;
+            if (deliveryScheduled) {
+                return;
+            }
+            deliveryScheduled = true;
+        }
+        uiExecutor.execute(this::deliverPendingChanges);
+    }
+    
+    /**
+     * 在界面執行緒取出累積的日期並一次通知
+     */
+    private void deliverPendingChanges() {
+        Set<Long> days;
+        boolean recurrenceChanged;
+        synchronized (pendingLock) {
+            days = new TreeSet<>(pendingDays);
+            recurrenceChanged = pendingRecurrenceChange;
+            pendingDays.clear();
+            pendingRecurrenceChange = false;
+            deliveryScheduled = false;
+        }
+        deliverBatch(days, recurrenceChanged);
+    }
+    
+    private boolean isUiThread() {
+        return Thread.currentThread() == uiThread;
+    }
+    
+    /**
+     * 獲取指定日期按時間排序的事件列表；在鎖內複製，其他執行緒之後的修改不影響返回的列表
      */
     public List<Event> getEventsForDate(LocalDate date) {
-        if (eventMap.containsKey(date)) {
-            return eventMap.get(date);
+        long start = CalendarMetrics.start();
+        try {
+            synchronized (storeLock) {
+                return List.copyOf(eventsOn(date));
+            }
+        } finally {
+            CalendarMetrics.QUERY_DATE.recordSince(start);
+        }
+    }
+    
+    /**
+     * 指定日期中與從start開始、持續duration的時段重疊的事件（包括重複事件的發生），按開始時間排序；
+     * 沒有持續時間的事件和時段視為佔用一分鐘
+     */
+    public List<Event> getOverlappingEvents(LocalDate date, LocalTime start, Duration duration) {
+        int startSecond = start.toSecondOfDay();
+        long span = Math.max(IntervalTree.MIN_SPAN_SECONDS, duration.getSeconds());
+        int endSecond = (int) Math.min(24 * 60 * 60, startSecond + span);
+        synchronized (storeLock) {
+            return intervalTreeFor(date).overlapping(startSecond, endSecond);
+        }
+    }
+    
+    /**
+     * 指定日期中重疊事件並排顯示的欄位配置
+     */
+    public DayLayout getDayLayout(LocalDate date) {
+        synchronized (storeLock) {
+            return DayLayout.compute(eventsOn(date));
+        }
+    }
+    
+    /**
+     * 獲取日期範圍內（包含兩端）有事件的日期及其事件，按日期排序
+     */
+    public Map<LocalDate, List<Event>> getEventsInRange(LocalDate from, LocalDate to) {
+        long start = CalendarMetrics.start();
+        try {
+            synchronized (storeLock) {
+                // 各顯示中日曆的一般事件與重複事件的發生按日期收集後逐日合併
+                NavigableMap<Long, List<List<Event>>> sources = new TreeMap<>();
+                for (EventCalendar calendar : calendars) {
+                    if (!calendar.isVisible()) {
+                        continue;
+                    }
+                    collectSources(sources, rangeView(calendar, from, to));
+                    for (Map.Entry<LocalDate, List<Event>> entry
+                            : calendar.getRecurrences().getRange(from, to).entrySet()) {
+                        sources.computeIfAbsent(entry.getKey().toEpochDay(), day -> new ArrayList<>(2))
+                            .add(entry.getValue());
+                    }
+                }
+                return mergeSources(sources);
+            }
+        } finally {
+            CalendarMetrics.QUERY_RANGE.recordSince(start);
+        }
+    }
+    
+    /**
+     * 日期範圍內（包含兩端）的一般事件的副本，不展開重複事件，按日期排序；供匯出等需要原始事件的用途。
+     * 在鎖內複製，其他執行緒之後修改事件不影響返回的內容
+     */
+    public Map<LocalDate, List<Event>> getSingleEventsInRange(LocalDate from, LocalDate to) {
+        synchronized (storeLock) {
+            NavigableMap<Long, List<List<Event>>> sources = new TreeMap<>();
+            for (EventCalendar calendar : calendars) {
+                collectSources(sources, rangeView(calendar, from, to));
+            }
+            Map<LocalDate, List<Event>> events = mergeSources(sources);
+            for (Map.Entry<LocalDate, List<Event>> entry : events.entrySet()) {
+                List<Event> copies = new ArrayList<>(entry.getValue().size());
+                for (Event event : entry.getValue()) {
+                    copies.add(event.copy());
+                }
+                entry.setValue(copies);
+            }
+            return events;
+        }
+    }
+    
+    /**
+     * 把各日期的事件列表加入該日期的待合併來源
+     */
+    private static void collectSources(NavigableMap<Long, List<List<Event>>> sources,
+            Map<Long, List<Event>> events) {
+        for (Map.Entry<Long, List<Event>> entry : events.entrySet()) {
+            sources.computeIfAbsent(entry.getKey(), day -> new ArrayList<>(2)).add(entry.getValue());
+        }
+    }
+    
+    /**
+     * 逐日合併各來源，返回按日期排序的不可修改副本
+     */
+    private static Map<LocalDate, List<Event>> mergeSources(NavigableMap<Long, List<List<Event>>> sources) {
+        Map<LocalDate, List<Event>> result = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<List<Event>>> entry : sources.entrySet()) {
+            result.put(LocalDate.ofEpochDay(entry.getKey()), List.copyOf(MergedEventList.of(entry.getValue())));
+        }
+        return result;
+    }
+    
+    /**
+     * 所有日曆中最早一般事件的日期（可能較早），沒有一般事件時返回null
+     */
+    public LocalDate getFirstSingleEventDate() {
+        synchronized (storeLock) {
+            Long first = null;
+            for (EventCalendar calendar : calendars) {
+                Long day = calendar.getStore().getFirstDay();
+                if (day != null && (first == null || day < first)) {
+                    first = day;
+                }
+            }
+            return first != null ? LocalDate.ofEpochDay(first) : null;
+        }
+    }
+    
+    /**
+     * 所有日曆中最晚一般事件的日期（可能較晚），沒有一般事件時返回null
+     */
+    public LocalDate getLastSingleEventDate() {
+        synchronized (storeLock) {
+            Long last = null;
+            for (EventCalendar calendar : calendars) {
+                Long day = calendar.getStore().getLastDay();
+                if (day != null && (last == null || day > last)) {
+                    last = day;
+                }
+            }
+            return last != null ? LocalDate.ofEpochDay(last) : null;
+        }
+    }
+    
+    /**
+     * 一次取出整個月份的事件，索引i對應該月第i+1天，沒有事件的日期為空列表；
+     * 返回的是不可修改的副本，可在任何執行緒調用
+     */
+    public List<List<Event>> getEventsForMonth(YearMonth month) {
+        long start = CalendarMetrics.start();
+        try {
+            int daysInMonth = month.lengthOfMonth();
+            List<List<Event>> days = new ArrayList<>(
+                Collections.nCopies(daysInMonth, Collections.<Event>emptyList()));
+            // 每天來自各顯示中日曆的列表，有事件時才建立
+            List<List<List<Event>>> sources = new ArrayList<>(Collections.nCopies(daysInMonth, null));
+            
+            long firstDay = month.atDay(1).toEpochDay();
+            synchronized (storeLock) {
+                for (EventCalendar calendar : calendars) {
+                    if (!calendar.isVisible()) {
+                        continue;
+                    }
+                    for (Map.Entry<Long, List<Event>> entry
+                            : rangeView(calendar, month.atDay(1), month.atEndOfMonth()).entrySet()) {
+                        addSource(sources, (int) (entry.getKey() - firstDay), entry.getValue());
+                    }
+                    if (calendar.getRecurrences().size() > 0) {
+                        List<List<Event>> occurrences = calendar.getRecurrences().getMonth(month);
+                        for (int i = 0; i < daysInMonth; i++) {
+                            if (!occurrences.get(i).isEmpty()) {
+                                addSource(sources, i, occurrences.get(i));
+                            }
+                        }
+                    }
+                }
+                for (int i = 0; i < daysInMonth; i++) {
+                    if (sources.get(i) != null) {
+                        days.set(i, List.copyOf(MergedEventList.of(sources.get(i))));
+                    }
+                }
+            }
+            return days;
+        } finally {
+            CalendarMetrics.QUERY_MONTH.recordSince(start);
+        }
+    }
+    
+    private static void addSource(List<List<List<Event>>> sources, int index, List<Event> events) {
+        if (sources.get(index) == null) {
+            sources.set(index, new ArrayList<>(2));
         }
-        return new ArrayList<>();
+        sources.get(index).add(events);
     }
     
     /**
-     * 獲取當前日期的可觀察事件列表
+     * 所有日曆的事件總數，重複事件只算一個
+     */
+    public int getEventCount() {
+        synchronized (storeLock) {
+            int count = 0;
+            for (EventCalendar calendar : calendars) {
+                count += calendar.getStore().size() + calendar.getRecurrences().size();
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * 所有日曆的重複事件的副本，在鎖內複製，其他執行緒之後修改事件不影響返回的內容
+     */
+    public List<RecurringEvent> getRecurringEvents() {
+        synchronized (storeLock) {
+            List<RecurringEvent> series = new ArrayList<>();
+            for (EventCalendar calendar : calendars) {
+                for (RecurringEvent event : calendar.getRecurrences().getSeries()) {
+                    series.add(event.copy());
+                }
+            }
+            return series;
+        }
+    }
+    
+    /**
+     * 獲取當前日期按時間排序的可觀察事件列表，修改事件時保持排序而不需重新排序
      */
     public ObservableList<Event> getCurrentDateEvents() {
         return currentDateEvents;
     }
-}
\ No newline at end of file
+    
+    /**
+     * 註冊事件變更監聽器
+     */
+    public void addEventChangeListener(EventChangeListener listener) {
+        changeListeners.add(listener);
+    }
+    
+    /**
+     * 移除事件變更監聽器
+     */
+    public void removeEventChangeListener(EventChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+    
+    /**
+     * 註冊逐一接收事件修改的監聽器
+     */
+    public void addMutationListener(EventMutationListener listener) {
+        mutationListeners.add(listener);
+    }
+    
+    /**
+     * 移除事件修改監聽器
+     */
+    public void removeMutationListener(EventMutationListener listener) {
+        mutationListeners.remove(listener);
+    }
+    
+    private void fireEventAdded(EventCalendar calendar, Event event) {
+        invalidateIntervalTree(event, event.getDate().toEpochDay());
+        for (EventMutationListener listener : mutationListeners) {
+            listener.eventAdded(event);
+        }
+        for (EventMutationListener listener : calendar.getMutationListeners()) {
+            listener.eventAdded(event);
+        }
+    }
+    
+    private void fireEventRemoved(EventCalendar calendar, Event event, long oldDay) {
+        invalidateIntervalTree(event, oldDay);
+        LocalDate oldDate = LocalDate.ofEpochDay(oldDay);
+        for (EventMutationListener listener : mutationListeners) {
+            listener.eventRemoved(event, oldDate);
+        }
+        for (EventMutationListener listener : calendar.getMutationListeners()) {
+            listener.eventRemoved(event, oldDate);
+        }
+    }
+    
+    /**
+     * 通知事件已修改；換了日曆時舊日曆的監聽器收到刪除、新日曆的收到新增
+     */
+    private void fireEventUpdated(EventCalendar oldCalendar, EventCalendar newCalendar, Event event, long oldDay) {
+        invalidateIntervalTree(event, oldDay);
+        invalidateIntervalTree(event, event.getDate().toEpochDay());
+        LocalDate oldDate = LocalDate.ofEpochDay(oldDay);
+        for (EventMutationListener listener : mutationListeners) {
+            listener.eventUpdated(event, oldDate);
+        }
+        if (oldCalendar == newCalendar) {
+            for (EventMutationListener listener : newCalendar.getMutationListeners()) {
+                listener.eventUpdated(event, oldDate);
+            }
+            return;
+        }
+        for (EventMutationListener listener : oldCalendar.getMutationListeners()) {
+            listener.eventRemoved(event, oldDate);
+        }
+        for (EventMutationListener listener : newCalendar.getMutationListeners()) {
+            listener.eventAdded(event);
+        }
+    }
+    
+    /**
+     * 丟棄受修改影響的區間樹；重複事件可能影響任何日期，全部丟棄。需持有storeLock
+     */
+    private void invalidateIntervalTree(Event event, long day) {
+        if (event instanceof RecurringEvent) {
+            intervalTrees.clear();
+        } else {
+            intervalTrees.remove(day);
+        }
+    }
+    
+    /**
+     * 指定日期的區間樹，不在快取中時建立；需持有storeLock
+     */
+    private IntervalTree intervalTreeFor(LocalDate date) {
+        IntervalTree tree = intervalTrees.get(date.toEpochDay());
+        if (tree == null) {
+            tree = new IntervalTree(eventsOn(date));
+            intervalTrees.put(date.toEpochDay(), tree);
+            Iterator<Long> eldest = intervalTrees.keySet().iterator();
+            while (intervalTrees.size() > MAX_INTERVAL_TREES && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return tree;
+    }
+    
+    /**
+     * 通知所有事件變更監聽器
+     */
+    private void fireEventChange(EventChange change) {
+        for (EventChangeListener listener : changeListeners) {
+            listener.onEventChanged(change);
+        }
+    }
+    
+    /**
+     * 刪除重複事件，或在規則中排除一次發生；需持有storeLock
+     */
+    private boolean removeRecurring(Event event, Set<Long> affectedDays) {
+        if (event instanceof EventOccurrence) {
+            EventOccurrence occurrence = (EventOccurrence) event;
+            RecurringEvent series = occurrence.getSeries();
+            if (filedCalendar(series) == null) {
+                return false;
+            }
+            series.setRule(series.getRule().withException(occurrence.getOccurrenceDate()));
+            return updateRecurring(series, affectedDays);
+        }
+        RecurringEvent series = (RecurringEvent) event;
+        EventCalendar calendar = filedCalendar(series);
+        if (calendar == null) {
+            return false;
+        }
+        LocalDate start = calendar.getRecurrences().getFiledStart(series);
+        calendar.getRecurrences().remove(series, affectedDays);
+        fireEventRemoved(calendar, series, start.toEpochDay());
+        return true;
+    }
+    
+    /**
+     * 重新歸檔重複事件；一次發生的日期未改時修改套用到整個重複事件，
+     * 日期被改時把這一次從規則中排除並新增為獨立事件。需持有storeLock
+     */
+    private boolean updateRecurring(Event event, Set<Long> affectedDays) {
+        if (event instanceof EventOccurrence) {
+            EventOccurrence occurrence = (EventOccurrence) event;
+            RecurringEvent series = occurrence.getSeries();
+            if (filedCalendar(series) == null) {
+                return false;
+            }
+            if (!occurrence.getDate().equals(occurrence.getOccurrenceDate())) {
+                series.setRule(series.getRule().withException(occurrence.getOccurrenceDate()));
+                Event detached = new Event(occurrence.getDate(), occurrence.getTime(),
+                    occurrence.getDescription(), occurrence.getColor());
+                detached.setDuration(occurrence.getDuration());
+                detached.setCalendarId(occurrence.getCalendarId());
+                detached.setReminder(occurrence.getReminder());
+                EventCalendar calendar = calendarOf(detached);
+                calendar.getStore().add(detached);
+                fireEventAdded(calendar, detached);
+                affectedDays.add(detached.getDate().toEpochDay());
+            } else {
+                series.setTime(occurrence.getTime());
+                series.setDuration(occurrence.getDuration());
+                series.setDescription(occurrence.getDescription());
+                series.setColor(occurrence.getColor());
+                series.setCalendarId(occurrence.getCalendarId());
+                series.setReminder(occurrence.getReminder());
+            }
+            return updateRecurring(series, affectedDays);
+        }
+        RecurringEvent series = (RecurringEvent) event;
+        EventCalendar oldCalendar = filedCalendar(series);
+        if (oldCalendar == null) {
+            return false;
+        }
+        EventCalendar newCalendar = calendarOf(series);
+        LocalDate oldStart = oldCalendar.getRecurrences().getFiledStart(series);
+        if (oldCalendar == newCalendar) {
+            newCalendar.getRecurrences().update(series, affectedDays);
+        } else {
+            oldCalendar.getRecurrences().remove(series, affectedDays);
+            newCalendar.getRecurrences().add(series, affectedDays);
+        }
+        fireEventUpdated(oldCalendar, newCalendar, series, oldStart.toEpochDay());
+        return true;
+    }
+    
+    /**
+     * 某一天所有顯示中日曆的一般事件和重複事件的發生，惰性合併；需持有storeLock
+     */
+    private List<Event> eventsOn(LocalDate date) {
+        long day = date.toEpochDay();
+        List<List<Event>> sources = new ArrayList<>(2 * calendars.size());
+        for (EventCalendar calendar : calendars) {
+            if (calendar.isVisible()) {
+                sources.add(calendar.getStore().getEvents(day));
+                sources.add(calendar.getRecurrences().getDay(date));
+            }
+        }
+        return MergedEventList.of(sources);
+    }
+    
+    /**
+     * 事件所屬的日曆
+     */
+    private EventCalendar calendarOf(Event event) {
+        int id = event.getCalendarId();
+        if (id < 0 || id >= calendars.size()) {
+            throw new IllegalArgumentException("沒有此編號的日曆: " + id);
+        }
+        return calendars.get(id);
+    }
+    
+    /**
+     * 目前保存事件的日曆，先查事件所屬的日曆，事件剛換了日曆時再查其他日曆；
+     * 不在任何日曆中時返回null。需持有storeLock
+     */
+    private EventCalendar filedCalendar(Event event) {
+        int id = event.getCalendarId();
+        EventCalendar target = id >= 0 && id < calendars.size() ? calendars.get(id) : null;
+        if (target != null && isFiledIn(target, event)) {
+            return target;
+        }
+        for (EventCalendar calendar : calendars) {
+            if (calendar != target && isFiledIn(calendar, event)) {
+                return calendar;
+            }
+        }
+        return null;
+    }
+    
+    private static boolean isFiledIn(EventCalendar calendar, Event event) {
+        if (event instanceof RecurringEvent) {
+            return calendar.getRecurrences().contains((RecurringEvent) event);
+        }
+        return calendar.getStore().getFiledDay(event) != null;
+    }
+    
+    /**
+     * 重新歸檔一般事件，換了日曆時從舊日曆移到新日曆；需持有storeLock
+     */
+    private static void refile(EventCalendar oldCalendar, EventCalendar newCalendar, Event event) {
+        if (oldCalendar == newCalendar) {
+            newCalendar.getStore().update(event);
+        } else {
+            oldCalendar.getStore().remove(event);
+            newCalendar.getStore().add(event);
+        }
+    }
+    
+    private static boolean isRecurring(Event event) {
+        return event instanceof RecurringEvent || event instanceof EventOccurrence;
+    }
+    
+    /**
+     * 日曆的存儲中指定日期範圍的子視圖
+     */
+    private static NavigableMap<Long, List<Event>> rangeView(EventCalendar calendar, LocalDate from, LocalDate to) {
+        return calendar.getStore().getEventsInRange(from.toEpochDay(), to.toEpochDay());
+    }
+    
+    /**
+     * 按固定間隔及完成時回報批次進度
+     */
+    private void reportProgress(BatchProgressListener listener, int processed, int total) {
+        if (listener != null && (processed % PROGRESS_INTERVAL == 0 || processed == total)) {
+            listener.onProgress(processed, total);
+        }
+    }
+    
+    private boolean isSelectedDay(long day) {
+        return selectedDate.toEpochDay() == day;
+    }
+}
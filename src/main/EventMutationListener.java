@@ -0,0 +1,25 @@
+package main;
+
+import java.time.LocalDate;
+
+/**
+ * 逐一接收EventManager中每個事件修改的介面，包括批次操作中的每個事件，
+ * 供持久化及衍生索引保持同步；界面更新請使用EventChangeListener
+ */
+public interface EventMutationListener {
+    
+    /**
+     * 事件已加入
+     */
+    void eventAdded(Event event);
+    
+    /**
+     * 事件已從oldDate刪除
+     */
+    void eventRemoved(Event event, LocalDate oldDate);
+    
+    /**
+     * 事件內容已修改，oldDate為修改前歸檔的日期（可能與目前日期相同）
+     */
+    void eventUpdated(Event event, LocalDate oldDate);
+}
@@ -0,0 +1,50 @@
+package main;
+
+import java.time.LocalDate;
+
+/**
+ * 重複事件在某一天的一次發生，內容複製自所屬的重複事件
+ *
+ * 交給EventManager修改時：日期未改則修改套用到整個重複事件，
+ * 日期被改則只把這一次移到新日期成為獨立事件；刪除時只刪除這一次。
+ */
+public class EventOccurrence extends Event {
+    private final RecurringEvent series;
+    private final LocalDate occurrenceDate;
+    
+    EventOccurrence(RecurringEvent series, LocalDate occurrenceDate) {
+        super(series.getId(), occurrenceDate, series.getTime(), series.getDescription(), series.getColor());
+        setDuration(series.getDuration());
+        setCalendarId(series.getCalendarId());
+        setReminder(series.getReminder());
+        this.series = series;
+        this.occurrenceDate = occurrenceDate;
+    }
+    
+    /**
+     * 所屬的重複事件
+     */
+    public RecurringEvent getSeries() {
+        return series;
+    }
+    
+    /**
+     * 這一次原本發生的日期，不受setDate影響
+     */
+    public LocalDate getOccurrenceDate() {
+        return occurrenceDate;
+    }
+    
+    // 同一重複事件在同一天的發生視為相等
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof EventOccurrence
+            && ((EventOccurrence) obj).getId() == getId()
+            && ((EventOccurrence) obj).occurrenceDate.equals(occurrenceDate);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(getId()) + occurrenceDate.hashCode();
+    }
+}
@@ -0,0 +1,49 @@
+package main;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.paint.Color;
+
+/**
+ * 事件顏色的共用樣式：同一顏色的所有事件標籤共用同一個Background物件，
+ * 不再為每個標籤產生並解析行內CSS；只應在JavaFX執行緒調用
+ */
+public final class EventPalette {
+    // 事件標籤背景的透明度
+    private static final double CHIP_OPACITY = 0.7;
+    
+    // 以RGB整數為鍵的已建立樣式
+    private static final Map<Integer, Color> fills = new HashMap<>();
+    private static final Map<Integer, Background> backgrounds = new HashMap<>();
+    
+    private EventPalette() {
+    }
+    
+    /**
+     * 獲取事件顏色對應的半透明填充色
+     */
+    public static Color chipFill(Color color) {
+        return fills.computeIfAbsent(packRgb(color), rgb -> Color.rgb(
+            rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF, CHIP_OPACITY));
+    }
+    
+    /**
+     * 獲取事件顏色對應的標籤背景
+     */
+    public static Background chipBackground(Color color) {
+        return backgrounds.computeIfAbsent(packRgb(color),
+            rgb -> new Background(new BackgroundFill(chipFill(color), null, null)));
+    }
+    
+    /**
+     * 將顏色的RGB部分壓成一個整數，與原本行內樣式的取值方式一致
+     */
+    static int packRgb(Color color) {
+        return (int) (color.getRed() * 255) << 16
+            | (int) (color.getGreen() * 255) << 8
+            | (int) (color.getBlue() * 255);
+    }
+}
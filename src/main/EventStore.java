@@ -0,0 +1,63 @@
+package main;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * 事件存儲介面，按epoch day歸檔事件，由EventManager使用
+ */
+public interface EventStore {
+    
+    /**
+     * 將事件歸檔到其日期
+     */
+    void add(Event event);
+    
+    /**
+     * 移除事件，事件不在存儲中時不做任何事
+     */
+    void remove(Event event);
+    
+    /**
+     * 保存事件目前的內容，日期改變時重新歸檔
+     */
+    void update(Event event);
+    
+    /**
+     * 獲取事件目前歸檔的epoch day，事件不在存儲中時返回null
+     */
+    Long getFiledDay(Event event);
+    
+    /**
+     * 獲取指定日期按時間排序的事件（時間相同時按編號），沒有事件時返回空列表；返回的列表不應被修改
+     */
+    List<Event> getEvents(long epochDay);
+    
+    /**
+     * 獲取日期範圍內（包含兩端）有事件的日期及其事件，按日期排序，每天的事件按時間排序
+     */
+    NavigableMap<Long, List<Event>> getEventsInRange(long fromDay, long toDay);
+    
+    /**
+     * 日期範圍內（包含兩端）有事件的epoch day，按日期排序
+     */
+    default Collection<Long> getDaysInRange(long fromDay, long toDay) {
+        return getEventsInRange(fromDay, toDay).keySet();
+    }
+    
+    /**
+     * 最早有事件的epoch day，沒有事件時返回null；可以是較早的下界
+     */
+    Long getFirstDay();
+    
+    /**
+     * 最晚有事件的epoch day，沒有事件時返回null；可以是較晚的上界
+     */
+    Long getLastDay();
+    
+    /**
+     * 存儲中的事件總數
+     */
+    int size();
+}
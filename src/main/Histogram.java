@@ -0,0 +1,151 @@
+package main;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定記憶體、可由多個執行緒同時記錄的對數分桶直方圖
+ *
+ * 0到15各佔一個桶，之後每個2的次方區間再分成8個桶，百分位數的相對誤差約6%；
+ * 記錄只是幾次原子加法，不分配物件。
+ */
+public class Histogram implements HistogramMXBean {
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 線性區間之後從2^4到2^62
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (63 - 4) * SUB_BUCKETS;
+    
+    private final String name;
+    private final String unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    
+    public Histogram(String name, String unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public String getUnit() {
+        return unit;
+    }
+    
+    /**
+     * 記錄一個數值，負數視為0
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+    
+    /**
+     * 記錄從start（CalendarMetrics.start()的返回值）到現在的奈秒數；start為0表示未啟用，不記錄
+     */
+    public void recordSince(long start) {
+        if (start != 0) {
+            record(System.nanoTime() - start);
+        }
+    }
+    
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+    
+    @Override
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+    
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+    
+    @Override
+    public long getP50() {
+        return percentile(0.50);
+    }
+    
+    @Override
+    public long getP90() {
+        return percentile(0.90);
+    }
+    
+    @Override
+    public long getP99() {
+        return percentile(0.99);
+    }
+    
+    @Override
+    public long getP999() {
+        return percentile(0.999);
+    }
+    
+    /**
+     * 百分位數的估計值（所在桶的中點，不超過最大值）；p介於0到1之間
+     */
+    public long percentile(double p) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(p * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(max.get(), bucketMidpoint(i));
+            }
+        }
+        return max.get();
+    }
+    
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+    
+    private static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+    
+    private static long bucketMidpoint(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width / 2;
+    }
+}
@@ -0,0 +1,28 @@
+package main;
+
+/**
+ * 經JMX公開的直方圖統計，數值單位見getUnit()
+ */
+public interface HistogramMXBean {
+    
+    String getUnit();
+    
+    long getCount();
+    
+    double getMean();
+    
+    long getMax();
+    
+    long getP50();
+    
+    long getP90();
+    
+    long getP99();
+    
+    long getP999();
+    
+    /**
+     * 清除所有記錄
+     */
+    void reset();
+}
@@ -0,0 +1,131 @@
+package main;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+
+import javafx.concurrent.Task;
+
+/**
+ * 在背景執行緒將所有事件匯出成.ics檔
+ *
+ * 重複事件以RRULE寫出一次。給定EventHistory的快照時從快照按日期寫出一般事件，
+ * 匯出期間的修改不影響結果，也不佔用存儲鎖；否則逐月讀出後寫出，任何時候只保留一個月的事件。
+ * 先寫入暫存檔，完成後才替換目標檔，取消或失敗時不會留下不完整的檔案。
+ */
+public class IcsExportTask extends Task<Integer> {
+    // 從快照匯出時每寫出多少個事件回報一次進度
+    private static final int PROGRESS_INTERVAL = 10_000;
+    
+    private final Path file;
+    private final EventManager eventManager;
+    private final PersistentEventMap snapshot;
+    
+    public IcsExportTask(Path file, EventManager eventManager) {
+        this.file = file;
+        this.eventManager = eventManager;
+        this.snapshot = null;
+    }
+    
+    /**
+     * 匯出快照中的事件
+     */
+    public IcsExportTask(Path file, PersistentEventMap snapshot) {
+        this.file = file;
+        this.eventManager = null;
+        this.snapshot = snapshot;
+    }
+    
+    @Override
+    protected Integer call() throws Exception {
+        Path tempPath = file.resolveSibling(file.getFileName() + ".tmp");
+        int exported = 0;
+        
+        try (IcsWriter writer = new IcsWriter(Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8))) {
+            exported = snapshot != null ? writeSnapshot(writer) : writeByMonth(writer);
+        } catch (Exception e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        
+        if (isCancelled()) {
+            Files.deleteIfExists(tempPath);
+            return exported;
+        }
+        Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        updateProgress(1, 1);
+        updateMessage("已匯出 " + exported + " 個事件");
+        return exported;
+    }
+    
+    /**
+     * 先寫出重複事件，再按日期和時間寫出快照中的一般事件
+     */
+    private int writeSnapshot(IcsWriter writer) throws IOException {
+        List<Event> events = snapshot.values();
+        events.sort(Comparator.comparing(Event::getDate).thenComparing(DayEvents.BY_TIME));
+        int exported = 0;
+        for (Event event : events) {
+            if (event instanceof RecurringEvent) {
+                writer.write(event);
+                exported++;
+            }
+        }
+        for (Event event : events) {
+            if (isCancelled()) {
+                break;
+            }
+            if (!(event instanceof RecurringEvent)) {
+                writer.write(event);
+                exported++;
+                if (exported % PROGRESS_INTERVAL == 0) {
+                    updateProgress(exported, events.size());
+                    updateMessage("已匯出 " + exported + " 個事件");
+                }
+            }
+        }
+        return exported;
+    }
+    
+    /**
+     * 先寫出重複事件，再逐月讀出並寫出一般事件
+     */
+    private int writeByMonth(IcsWriter writer) throws IOException {
+        int exported = 0;
+        for (RecurringEvent event : eventManager.getRecurringEvents()) {
+            writer.write(event);
+            exported++;
+        }
+        
+        LocalDate first = eventManager.getFirstSingleEventDate();
+        LocalDate last = eventManager.getLastSingleEventDate();
+        if (first != null && last != null) {
+            YearMonth firstMonth = YearMonth.from(first);
+            YearMonth lastMonth = YearMonth.from(last);
+            long totalMonths = ChronoUnit.MONTHS.between(firstMonth, lastMonth) + 1;
+            long doneMonths = 0;
+            for (YearMonth month = firstMonth; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+                if (isCancelled()) {
+                    break;
+                }
+                for (List<Event> events : eventManager.getSingleEventsInRange(
+                        month.atDay(1), month.atEndOfMonth()).values()) {
+                    for (Event event : events) {
+                        writer.write(event);
+                        exported++;
+                    }
+                }
+                updateProgress(++doneMonths, totalMonths);
+                updateMessage("已匯出 " + exported + " 個事件");
+            }
+        }
+        return exported;
+    }
+}
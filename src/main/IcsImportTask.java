@@ -0,0 +1,94 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.concurrent.Task;
+
+/**
+ * 在背景執行緒串流匯入.ics檔，解析出的事件分批直接加入EventManager
+ *
+ * EventManager可在任何執行緒修改，界面更新由它合併後交給JavaFX執行緒，
+ * 每批只持有一次存儲鎖。記憶體用量只與批次大小有關，與檔案大小無關。
+ * 進度按已讀取的位元組計算；取消時已加入的事件會保留。
+ */
+public class IcsImportTask extends Task<Integer> {
+    // 每批加入的事件數
+    private static final int CHUNK_SIZE = 2000;
+    
+    private final Path file;
+    private final EventManager eventManager;
+    
+    /**
+     * 記錄已讀取位元組數的輸入流
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+    
+    public IcsImportTask(Path file, EventManager eventManager) {
+        this.file = file;
+        this.eventManager = eventManager;
+    }
+    
+    @Override
+    protected Integer call() throws Exception {
+        long totalBytes = Files.size(file);
+        CountingInputStream input = new CountingInputStream(Files.newInputStream(file));
+        int imported = 0;
+        
+        try (IcsReader reader = new IcsReader(new BufferedReader(
+                new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024))) {
+            List<Event> chunk = new ArrayList<>(CHUNK_SIZE);
+            Event event;
+            while (!isCancelled() && (event = reader.next()) != null) {
+                chunk.add(event);
+                if (chunk.size() == CHUNK_SIZE) {
+                    eventManager.addAll(chunk);
+                    imported += chunk.size();
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    updateProgress(input.count, totalBytes);
+                    updateMessage("已匯入 " + imported + " 個事件");
+                }
+            }
+            if (!isCancelled() && !chunk.isEmpty()) {
+                eventManager.addAll(chunk);
+                imported += chunk.size();
+            }
+        }
+        
+        updateProgress(totalBytes, totalBytes);
+        updateMessage("已匯入 " + imported + " 個事件");
+        return imported;
+    }
+}
@@ -0,0 +1,300 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javafx.scene.paint.Color;
+
+/**
+ * 逐一讀出iCalendar（.ics）檔中VEVENT的串流解析器，任何時候只保留目前事件的屬性
+ *
+ * 讀取DTSTART（日期、當地時間、UTC或TZID時間，一律換算成本地時間）、DTEND或DURATION、SUMMARY、
+ * COLOR或X-APPLE-CALENDAR-COLOR，以及RRULE的FREQ、INTERVAL、COUNT、UNTIL和EXDATE；
+ * BYDAY等其他重複規則部分及VALARM等巢狀元件中的屬性會被忽略。
+ * 全天事件的時間為00:00且沒有持續時間，描述中的換行以空白取代。
+ */
+public class IcsReader implements Closeable {
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final Color DEFAULT_COLOR = Color.CORNFLOWERBLUE;
+    
+    private final BufferedReader reader;
+    // 預先讀出的下一個實體行，用於合併折行
+    private String lookahead;
+    
+    // 目前VEVENT的屬性
+    private LocalDateTime start;
+    private boolean allDay;
+    private LocalDateTime end;
+    private Duration duration;
+    private String summary;
+    private Color color;
+    private String rrule;
+    private final Set<LocalDate> exceptions = new TreeSet<>();
+    
+    public IcsReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+    
+    /**
+     * 讀出下一個事件，檔案結束時返回null；缺少DTSTART的VEVENT會被跳過
+     */
+    public Event next() throws IOException {
+        boolean inEvent = false;
+        // VEVENT中巢狀元件（例如VALARM）的層數，其中的DURATION、SUMMARY等屬性不屬於事件
+        int nested = 0;
+        String line;
+        while ((line = readLogicalLine()) != null) {
+            if (line.equalsIgnoreCase("BEGIN:VEVENT")) {
+                inEvent = true;
+                nested = 0;
+                resetEvent();
+            } else if (line.equalsIgnoreCase("END:VEVENT")) {
+                inEvent = false;
+                Event event = buildEvent();
+                if (event != null) {
+                    return event;
+                }
+            } else if (!inEvent) {
+                continue;
+            } else if (startsWithIgnoreCase(line, "BEGIN:")) {
+                nested++;
+            } else if (startsWithIgnoreCase(line, "END:")) {
+                nested = Math.max(0, nested - 1);
+            } else if (nested == 0) {
+                parseProperty(line);
+            }
+        }
+        return null;
+    }
+    
+    private static boolean startsWithIgnoreCase(String line, String prefix) {
+        return line.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+    
+    /**
+     * 讀出一個邏輯行：以空白或Tab開頭的實體行接在前一行之後
+     */
+    private String readLogicalLine() throws IOException {
+        String line = lookahead != null ? lookahead : reader.readLine();
+        lookahead = null;
+        if (line == null) {
+            return null;
+        }
+        StringBuilder folded = null;
+        String next;
+        while ((next = reader.readLine()) != null
+                && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+            if (folded == null) {
+                folded = new StringBuilder(line);
+            }
+            folded.append(next, 1, next.length());
+        }
+        lookahead = next;
+        return folded != null ? folded.toString() : line;
+    }
+    
+    private void resetEvent() {
+        start = null;
+        allDay = false;
+        end = null;
+        duration = null;
+        summary = "";
+        color = DEFAULT_COLOR;
+        rrule = null;
+        exceptions.clear();
+    }
+    
+    /**
+     * 解析「名稱;參數:值」格式的屬性
+     */
+    private void parseProperty(String line) {
+        int colon = line.indexOf(':');
+        if (colon < 0) {
+            return;
+        }
+        String head = line.substring(0, colon);
+        String value = line.substring(colon + 1);
+        int semicolon = head.indexOf(';');
+        String name = (semicolon < 0 ? head : head.substring(0, semicolon)).toUpperCase();
+        String params = semicolon < 0 ? "" : head.substring(semicolon + 1);
+        
+        try {
+            switch (name) {
+                case "DTSTART":
+                    start = parseDateTime(value, params);
+                    allDay = value.trim().length() == 8;
+                    break;
+                case "DTEND":
+                    end = parseDateTime(value, params);
+                    break;
+                case "DURATION":
+                    duration = parseDuration(value.trim());
+                    break;
+                case "SUMMARY":
+                    summary = unescape(value);
+                    break;
+                case "COLOR":
+                case "X-APPLE-CALENDAR-COLOR":
+                    color = Color.web(value.trim());
+                    break;
+                case "RRULE":
+                    rrule = value;
+                    break;
+                case "EXDATE":
+                    for (String date : value.split(",")) {
+                        exceptions.add(parseDateTime(date, params).toLocalDate());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (DateTimeException | IllegalArgumentException e) {
+            // 無法解析的屬性值略過，事件其他部分照常匯入
+        }
+    }
+    
+    private Event buildEvent() {
+        if (start == null) {
+            return null;
+        }
+        LocalDate date = start.toLocalDate();
+        LocalTime time = start.toLocalTime();
+        Event event = null;
+        if (rrule != null) {
+            RecurrenceRule rule = parseRule(rrule);
+            if (rule != null) {
+                event = new RecurringEvent(date, time, summary, color, rule);
+            }
+        }
+        if (event == null) {
+            event = new Event(date, time, summary, color);
+        }
+        if (!allDay) {
+            if (duration != null) {
+                event.setDuration(duration);
+            } else if (end != null) {
+                event.setDuration(Duration.between(start, end));
+            }
+        }
+        return event;
+    }
+    
+    /**
+     * 解析DURATION的值，例如PT1H30M、P1D、P1W
+     */
+    private static Duration parseDuration(String value) {
+        boolean negative = value.startsWith("-");
+        String unsigned = value.replaceFirst("^[+-]", "");
+        Duration parsed = unsigned.endsWith("W")
+            ? Duration.ofDays(7L * Integer.parseInt(unsigned.substring(1, unsigned.length() - 1)))
+            : Duration.parse(unsigned);
+        return negative ? parsed.negated() : parsed;
+    }
+    
+    /**
+     * 將RRULE轉換為重複規則，頻率不支援時返回null，事件以單次事件匯入
+     */
+    private RecurrenceRule parseRule(String value) {
+        RecurrenceRule.Frequency frequency = null;
+        int interval = 1;
+        int count = 0;
+        LocalDate until = null;
+        try {
+            for (String part : value.split(";")) {
+                int equals = part.indexOf('=');
+                if (equals < 0) {
+                    continue;
+                }
+                String key = part.substring(0, equals).toUpperCase();
+                String partValue = part.substring(equals + 1);
+                if (key.equals("FREQ")) {
+                    frequency = RecurrenceRule.Frequency.valueOf(partValue.toUpperCase());
+                } else if (key.equals("INTERVAL")) {
+                    interval = Integer.parseInt(partValue);
+                } else if (key.equals("COUNT")) {
+                    count = Integer.parseInt(partValue);
+                } else if (key.equals("UNTIL")) {
+                    until = parseDateTime(partValue, "").toLocalDate();
+                }
+            }
+            return frequency == null ? null
+                : new RecurrenceRule(frequency, interval, count, until, exceptions);
+        } catch (DateTimeException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 解析日期或日期時間，UTC及TZID時間換算成系統時區的本地時間
+     */
+    private static LocalDateTime parseDateTime(String value, String params) {
+        value = value.trim();
+        if (value.length() == 8) {
+            return LocalDate.parse(value, DATE).atStartOfDay();
+        }
+        if (value.endsWith("Z")) {
+            return LocalDateTime.parse(value.substring(0, value.length() - 1), DATE_TIME)
+                .atOffset(ZoneOffset.UTC)
+                .atZoneSameInstant(ZoneId.systemDefault())
+                .toLocalDateTime();
+        }
+        LocalDateTime local = LocalDateTime.parse(value, DATE_TIME);
+        String zone = parameter(params, "TZID");
+        if (zone != null) {
+            return local.atZone(ZoneId.of(zone))
+                .withZoneSameInstant(ZoneId.systemDefault())
+                .toLocalDateTime();
+        }
+        return local;
+    }
+    
+    private static String parameter(String params, String name) {
+        for (String param : params.split(";")) {
+            int equals = param.indexOf('=');
+            if (equals > 0 && param.substring(0, equals).equalsIgnoreCase(name)) {
+                String value = param.substring(equals + 1);
+                return value.startsWith("\"") && value.endsWith("\"") && value.length() > 1
+                    ? value.substring(1, value.length() - 1)
+                    : value;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 還原TEXT值中的跳脫字元
+     */
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                result.append(next == 'n' || next == 'N' ? ' ' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
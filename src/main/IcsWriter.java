@@ -0,0 +1,120 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import javafx.scene.paint.Color;
+
+/**
+ * 逐一寫出VEVENT的iCalendar（.ics）寫入器，不保留已寫出的事件
+ *
+ * 時間以不帶時區的本地時間寫出，有持續時間時寫出DURATION，顏色寫入X-APPLE-CALENDAR-COLOR，
+ * 重複事件寫出RRULE和EXDATE，超過75位元組的行按規範折行。
+ */
+public class IcsWriter implements Closeable {
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    // 每行最多的位元組數（不含換行）
+    private static final int MAX_LINE_BYTES = 75;
+    
+    private final Writer writer;
+    private final String timestamp;
+    
+    public IcsWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        this.timestamp = LocalDateTime.now(ZoneOffset.UTC).format(DATE_TIME) + "Z";
+        writeLine("BEGIN:VCALENDAR");
+        writeLine("VERSION:2.0");
+        writeLine("PRODID:-//MonthCalendar//EN");
+    }
+    
+    /**
+     * 寫出一個事件
+     */
+    public void write(Event event) throws IOException {
+        writeLine("BEGIN:VEVENT");
+        writeLine("UID:" + event.getId() + "@monthcalendar");
+        writeLine("DTSTAMP:" + timestamp);
+        writeLine("DTSTART:" + LocalDateTime.of(event.getDate(), event.getTime()).format(DATE_TIME));
+        if (!event.getDuration().isZero()) {
+            writeLine("DURATION:" + event.getDuration());
+        }
+        writeLine("SUMMARY:" + escape(event.getDescription()));
+        writeLine("X-APPLE-CALENDAR-COLOR:" + toHex(event.getColor()));
+        if (event instanceof RecurringEvent) {
+            writeRule(((RecurringEvent) event).getRule());
+        }
+        writeLine("END:VEVENT");
+    }
+    
+    /**
+     * 寫出日曆結尾並關閉
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeLine("END:VCALENDAR");
+        } finally {
+            writer.close();
+        }
+    }
+    
+    private void writeRule(RecurrenceRule rule) throws IOException {
+        StringBuilder value = new StringBuilder("RRULE:FREQ=").append(rule.getFrequency());
+        if (rule.getInterval() != 1) {
+            value.append(";INTERVAL=").append(rule.getInterval());
+        }
+        if (rule.getCount() > 0) {
+            value.append(";COUNT=").append(rule.getCount());
+        }
+        if (rule.getUntil() != null) {
+            value.append(";UNTIL=").append(rule.getUntil().format(DATE));
+        }
+        writeLine(value.toString());
+        for (LocalDate exception : rule.getExceptions()) {
+            writeLine("EXDATE;VALUE=DATE:" + exception.format(DATE));
+        }
+    }
+    
+    /**
+     * 寫出一行，超過長度時在不拆開UTF-8字元的位置折行
+     */
+    private void writeLine(String line) throws IOException {
+        int lineBytes = 0;
+        for (int i = 0; i < line.length(); ) {
+            int codePoint = line.codePointAt(i);
+            int charCount = Character.charCount(codePoint);
+            int bytes = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (lineBytes + bytes > MAX_LINE_BYTES) {
+                writer.write("\r\n ");
+                lineBytes = 1;
+            }
+            writer.write(line, i, charCount);
+            lineBytes += bytes;
+            i += charCount;
+        }
+        writer.write("\r\n");
+    }
+    
+    /**
+     * 跳脫TEXT值中的特殊字元
+     */
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\")
+            .replace(";", "\\;")
+            .replace(",", "\\,")
+            .replace("\n", "\\n");
+    }
+    
+    private static String toHex(Color color) {
+        return String.format("#%02X%02X%02X",
+            (int) Math.round(color.getRed() * 255),
+            (int) Math.round(color.getGreen() * 255),
+            (int) Math.round(color.getBlue() * 255));
+    }
+}
@@ -0,0 +1,96 @@
+package main;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 以有序Map保存事件物件的存儲，適合一般規模的日曆；每天的事件按時間排序
+ */
+public class IndexedEventStore implements EventStore {
+    // 以epoch day為鍵的有序索引，支援日期範圍查詢
+    private NavigableMap<Long, DayEvents> eventIndex = new TreeMap<>();
+    // 記錄每個事件目前歸檔在哪一天的哪個時間，事件被原地修改後仍能找到舊的位置
+    private Map<Event, Filed> filedEvents = new HashMap<>();
+    
+    /**
+     * 事件歸檔時的日期和時間
+     */
+    private static final class Filed {
+        final long day;
+        final long time;
+        
+        Filed(long day, long time) {
+            this.day = day;
+            this.time = time;
+        }
+    }
+    
+    @Override
+    public void add(Event event) {
+        long day = event.getDate().toEpochDay();
+        eventIndex.computeIfAbsent(day, k -> new DayEvents()).insert(event);
+        filedEvents.put(event, new Filed(day, DayEvents.timeKey(event)));
+    }
+    
+    @Override
+    public void remove(Event event) {
+        Filed filed = filedEvents.remove(event);
+        if (filed == null) {
+            return;
+        }
+        DayEvents events = eventIndex.get(filed.day);
+        if (events != null) {
+            events.remove(event, filed.time);
+            // 空的日期從索引中刪除，讓範圍查詢只走訪有事件的日期
+            if (events.isEmpty()) {
+                eventIndex.remove(filed.day);
+            }
+        }
+    }
+    
+    @Override
+    public void update(Event event) {
+        Filed filed = filedEvents.get(event);
+        if (filed != null && (filed.day != event.getDate().toEpochDay()
+                || filed.time != DayEvents.timeKey(event))) {
+            remove(event);
+            add(event);
+        }
+    }
+    
+    @Override
+    public Long getFiledDay(Event event) {
+        Filed filed = filedEvents.get(event);
+        return filed != null ? filed.day : null;
+    }
+    
+    @Override
+    public List<Event> getEvents(long epochDay) {
+        List<Event> events = eventIndex.get(epochDay);
+        return events != null ? events : Collections.emptyList();
+    }
+    
+    @Override
+    public NavigableMap<Long, List<Event>> getEventsInRange(long fromDay, long toDay) {
+        return Collections.unmodifiableNavigableMap(eventIndex.subMap(fromDay, true, toDay, true));
+    }
+    
+    @Override
+    public Long getFirstDay() {
+        return eventIndex.isEmpty() ? null : eventIndex.firstKey();
+    }
+    
+    @Override
+    public Long getLastDay() {
+        return eventIndex.isEmpty() ? null : eventIndex.lastKey();
+    }
+    
+    @Override
+    public int size() {
+        return filedEvents.size();
+    }
+}
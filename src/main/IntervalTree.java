@@ -0,0 +1,89 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一天中事件時段的靜態區間樹，回答「哪些事件與某時段重疊」
+ *
+ * 事件按開始時間排成陣列，以陣列中點為根隱含一棵平衡二元樹，
+ * 每個節點記錄其子樹中最晚的結束時間，查詢時略過結束太早或開始太晚的子樹；
+ * 沒有重疊時只走訪O(log n)個節點，每個結果最多再多走訪一條O(log n)的路徑。
+ * 建立後不可修改；事件變更時由EventManager丟棄並在下次查詢時重建。
+ * 沒有持續時間的事件視為佔用一分鐘。
+ */
+public final class IntervalTree {
+    // 沒有持續時間的事件佔用的秒數
+    static final int MIN_SPAN_SECONDS = 60;
+    
+    private final Event[] events;
+    private final int[] starts;
+    private final int[] ends;
+    // 以該索引為根的子樹中最晚的結束時間
+    private final int[] maxEnds;
+    
+    /**
+     * 以按開始時間排序的事件建立
+     */
+    public IntervalTree(List<Event> sortedEvents) {
+        int size = sortedEvents.size();
+        events = sortedEvents.toArray(new Event[0]);
+        starts = new int[size];
+        ends = new int[size];
+        maxEnds = new int[size];
+        for (int i = 0; i < size; i++) {
+            starts[i] = events[i].getStartSecond();
+            ends[i] = endOf(events[i]);
+        }
+        computeMaxEnd(0, size - 1);
+    }
+    
+    /**
+     * 與[startSecond, endSecond)重疊的事件，按開始時間排序
+     */
+    public List<Event> overlapping(int startSecond, int endSecond) {
+        List<Event> result = new ArrayList<>();
+        collect(0, events.length - 1, startSecond, endSecond, result);
+        return result;
+    }
+    
+    public int size() {
+        return events.length;
+    }
+    
+    /**
+     * 事件佔用時段的結束秒數（不包含），沒有持續時間時為開始後一分鐘
+     */
+    static int endOf(Event event) {
+        return Math.max(event.getEndSecond(), event.getStartSecond() + MIN_SPAN_SECONDS);
+    }
+    
+    private int computeMaxEnd(int low, int high) {
+        if (low > high) {
+            return Integer.MIN_VALUE;
+        }
+        int mid = (low + high) >>> 1;
+        int max = Math.max(ends[mid], Math.max(computeMaxEnd(low, mid - 1), computeMaxEnd(mid + 1, high)));
+        maxEnds[mid] = max;
+        return max;
+    }
+    
+    private void collect(int low, int high, int startSecond, int endSecond, List<Event> result) {
+        if (low > high) {
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        // 子樹中所有事件都在查詢開始前結束
+        if (maxEnds[mid] <= startSecond) {
+            return;
+        }
+        collect(low, mid - 1, startSecond, endSecond, result);
+        if (starts[mid] < endSecond) {
+            if (ends[mid] > startSecond) {
+                result.add(events[mid]);
+            }
+            // 右子樹的事件開始得更晚，只有中點開始於查詢結束前時才可能重疊
+            collect(mid + 1, high, startSecond, endSecond, result);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * long鍵到int值的開放定址雜湊表，避免每個項目一個Map節點和裝箱物件；不是執行緒安全的
+ */
+public final class LongIntMap {
+    // 找不到鍵時get返回的值
+    public static final int MISSING = -1;
+    private static final long EMPTY = Long.MIN_VALUE;
+    
+    private long[] keys;
+    private int[] values;
+    private int count;
+    
+    /**
+     * 以指定的初始容量創建，容量會調整為2的冪次
+     */
+    public LongIntMap(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(16, initialCapacity - 1) << 1);
+        keys = newKeys(capacity);
+        values = new int[capacity];
+    }
+    
+    /**
+     * 獲取鍵對應的值，不存在時返回MISSING；鍵不可為Long.MIN_VALUE
+     */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return MISSING;
+    }
+    
+    public void put(long key, int value) {
+        if ((count + 1) * 4L > keys.length * 3L) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == EMPTY) {
+            keys[i] = key;
+            count++;
+        }
+        values[i] = value;
+    }
+    
+    public void remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        // 線性探測的刪除：把後面屬於此位置之前的項目往回移
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == EMPTY) {
+                break;
+            }
+            int home = slot(keys[j], mask);
+            boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!between) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        count--;
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    /**
+     * 估計佔用的堆積大小（位元組）
+     */
+    public long footprintBytes() {
+        return (long) keys.length * (8 + 4);
+    }
+    
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = newKeys(capacity);
+        values = new int[capacity];
+        count = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+    
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+    
+    private static long[] newKeys(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+}
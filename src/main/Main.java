@@ -7,17 +7,29 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 public class Main extends Application {
+    
+    private CalendarController controller;
 
     @Override
     public void start(Stage primaryStage) throws Exception {
         // 修正資源路徑，改用相對路徑
-        Parent root = FXMLLoader.load(getClass().getClassLoader().getResource("main/resources/calendar.fxml"));
+        FXMLLoader loader = new FXMLLoader(getClass().getClassLoader().getResource("main/resources/calendar.fxml"));
+        Parent root = loader.load();
+        controller = loader.getController();
         primaryStage.setTitle("CalendarApp");
         primaryStage.setScene(new Scene(root, 1200, 1000));
         primaryStage.show();
     }
+    
+    @Override
+    public void stop() {
+        // 結束前保存尚未寫入的事件修改
+        if (controller != null) {
+            controller.shutdown();
+        }
+    }
 
     public static void main(String[] args) {
         launch(args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+package main;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 多個按時間排序的事件列表的惰性k路合併，用於合併多個日曆同一天的事件
+ *
+ * 大小在創建時即可知道；元素在第一次存取時才以二元堆積合併到該位置，每個元素O(log k)，
+ * 只看前幾個事件（例如格子中放得下的標籤）時不需合併整天的事件。
+ * 來源列表在合併完成前不應被修改；本列表不可修改，也不是執行緒安全的。
+ */
+final class MergedEventList extends AbstractList<Event> implements RandomAccess {
+    private final List<List<Event>> sources;
+    private final int size;
+    private final Event[] merged;
+    private int mergedCount;
+    // 各來源下一個未合併的位置
+    private final int[] positions;
+    // 尚有事件的來源編號，按各自的下一個事件排成最小堆積
+    private final int[] heap;
+    private int heapSize;
+    
+    private MergedEventList(List<List<Event>> sources, int size) {
+        this.sources = sources;
+        this.size = size;
+        this.merged = new Event[size];
+        this.positions = new int[sources.size()];
+        this.heap = new int[sources.size()];
+        for (int source = 0; source < sources.size(); source++) {
+            if (!sources.get(source).isEmpty()) {
+                heap[heapSize] = source;
+                siftUp(heapSize++);
+            }
+        }
+    }
+    
+    /**
+     * 合併各來源；沒有來源時返回空列表，只有一個來源時直接返回它
+     */
+    static List<Event> of(List<List<Event>> sources) {
+        int size = 0;
+        int nonEmpty = 0;
+        List<Event> only = Collections.emptyList();
+        for (List<Event> source : sources) {
+            if (!source.isEmpty()) {
+                size += source.size();
+                nonEmpty++;
+                only = source;
+            }
+        }
+        return nonEmpty <= 1 ? only : new MergedEventList(sources, size);
+    }
+    
+    @Override
+    public Event get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        while (mergedCount <= index) {
+            mergeNext();
+        }
+        return merged[index];
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 取出堆頂來源的下一個事件，再把該來源放回堆積中的正確位置
+     */
+    private void mergeNext() {
+        int source = heap[0];
+        List<Event> events = sources.get(source);
+        merged[mergedCount++] = events.get(positions[source]++);
+        if (positions[source] == events.size()) {
+            heap[0] = heap[--heapSize];
+        }
+        if (heapSize > 0) {
+            siftDown(0);
+        }
+    }
+    
+    private void siftUp(int index) {
+        int source = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isBefore(source, heap[parent])) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = source;
+    }
+    
+    private void siftDown(int index) {
+        int source = heap[index];
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < heapSize && isBefore(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!isBefore(heap[child], source)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = source;
+    }
+    
+    /**
+     * 來源a的下一個事件是否排在來源b的之前；時間和編號都相同時先取編號較小的來源
+     */
+    private boolean isBefore(int a, int b) {
+        int order = DayEvents.BY_TIME.compare(
+            sources.get(a).get(positions[a]), sources.get(b).get(positions[b]));
+        return order < 0 || order == 0 && a < b;
+    }
+}
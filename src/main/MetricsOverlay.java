@@ -0,0 +1,89 @@
+package main;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.scene.control.Label;
+import javafx.stage.Popup;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+/**
+ * 顯示在視窗左上角的效能統計覆蓋層，每半秒更新一次；
+ * 顯示時啟用統計收集，隱藏時恢復原本的設定
+ */
+public class MetricsOverlay {
+    private static final Duration REFRESH_INTERVAL = Duration.millis(500);
+    
+    private final Popup popup = new Popup();
+    private final Label label = new Label();
+    private final Timeline refreshTimeline = new Timeline(new KeyFrame(REFRESH_INTERVAL, e -> refresh()));
+    // 顯示前統計是否已啟用
+    private boolean wasEnabled;
+    
+    public MetricsOverlay() {
+        label.getStyleClass().add("metrics-overlay");
+        label.getStylesheets().add(
+            MetricsOverlay.class.getResource("resources/styles.css").toExternalForm());
+        label.setMouseTransparent(true);
+        popup.getContent().add(label);
+        refreshTimeline.setCycleCount(Animation.INDEFINITE);
+    }
+    
+    /**
+     * 在指定視窗上顯示或隱藏覆蓋層
+     */
+    public void toggle(Window owner) {
+        if (popup.isShowing()) {
+            hide();
+        } else {
+            show(owner);
+        }
+    }
+    
+    private void show(Window owner) {
+        wasEnabled = CalendarMetrics.isEnabled();
+        CalendarMetrics.setEnabled(true);
+        refresh();
+        popup.show(owner, owner.getX() + 12, owner.getY() + 40);
+        refreshTimeline.play();
+    }
+    
+    private void hide() {
+        refreshTimeline.stop();
+        popup.hide();
+        CalendarMetrics.setEnabled(wasEnabled);
+    }
+    
+    private void refresh() {
+        StringBuilder text = new StringBuilder(String.format("%-12s %7s %9s %9s %9s %9s%n",
+            "", "count", "p50", "p99", "p99.9", "max"));
+        for (Histogram histogram : CalendarMetrics.getHistograms()) {
+            text.append(String.format("%-12s %7d %9s %9s %9s %9s%n",
+                histogram.getName(),
+                histogram.getCount(),
+                format(histogram, histogram.getP50()),
+                format(histogram, histogram.getP99()),
+                format(histogram, histogram.getP999()),
+                format(histogram, histogram.getMax())));
+        }
+        text.append("nodes created ").append(CalendarMetrics.getNodesCreated());
+        label.setText(text.toString());
+        
+        Window owner = popup.getOwnerWindow();
+        if (owner != null) {
+            popup.setX(owner.getX() + 12);
+            popup.setY(owner.getY() + 40);
+        }
+    }
+    
+    /**
+     * 時間以毫秒顯示，其他單位顯示原始數值
+     */
+    private static String format(Histogram histogram, long value) {
+        if ("ns".equals(histogram.getUnit())) {
+            return String.format("%.2fms", value / 1e6);
+        }
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,119 @@
+package main;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一個月份的不可變版面資料：每個格子的日期、今天的位置及按時間排序的事件，
+ * 可在背景執行緒預先建立，切換月份時只需綁定到格子
+ */
+public final class MonthModel {
+    // 月曆固定6行7列
+    public static final int CELL_COUNT = 42;
+    
+    private final YearMonth month;
+    private final LocalDate builtOn;
+    private final int firstDayOffset;
+    private final int rowCount;
+    private final int todayIndex;
+    private final String monthYearText;
+    private final LocalDate[] cellDates = new LocalDate[CELL_COUNT];
+    private final List<List<Event>> dayEvents;
+    
+    private MonthModel(YearMonth month, LocalDate today, List<List<Event>> monthEvents) {
+        this.month = month;
+        this.builtOn = today;
+        
+        // 第一天是星期幾（0=星期日, 1=星期一, ..., 6=星期六）
+        this.firstDayOffset = month.atDay(1).getDayOfWeek().getValue() % 7;
+        int daysInMonth = month.lengthOfMonth();
+        this.rowCount = (firstDayOffset + daysInMonth + 6) / 7;
+        this.monthYearText = DateNavigator.formatMonthYear(month);
+        
+        for (int day = 1; day <= daysInMonth; day++) {
+            cellDates[firstDayOffset + day - 1] = month.atDay(day);
+        }
+        this.todayIndex = YearMonth.from(today).equals(month)
+            ? firstDayOffset + today.getDayOfMonth() - 1
+            : -1;
+        
+        // EventManager返回的每天事件已按時間排序
+        this.dayEvents = List.copyOf(monthEvents);
+    }
+    
+    /**
+     * 從EventManager建立月份版面，可在任何執行緒調用
+     */
+    public static MonthModel build(YearMonth month, EventManager eventManager) {
+        return new MonthModel(month, LocalDate.now(), eventManager.getEventsForMonth(month));
+    }
+    
+    /**
+     * 只保留符合類別篩選的事件的版面，以每天的類別遮罩判斷，不符合的日期不走訪事件；
+     * 不篩選時返回本身
+     */
+    public MonthModel filtered(CategoryIndex categoryIndex, CategoryFilter filter) {
+        if (!filter.isActive()) {
+            return this;
+        }
+        long[] masks = categoryIndex.getMonthMasks(month);
+        List<List<Event>> filteredEvents = new ArrayList<>(dayEvents.size());
+        for (int i = 0; i < dayEvents.size(); i++) {
+            filteredEvents.add(categoryIndex.filter(dayEvents.get(i), masks[i], filter));
+        }
+        return new MonthModel(month, builtOn, filteredEvents);
+    }
+    
+    public YearMonth getMonth() {
+        return month;
+    }
+    
+    /**
+     * 建立版面時的日期，日期改變後今天的位置需要重新計算
+     */
+    public LocalDate getBuiltOn() {
+        return builtOn;
+    }
+    
+    /**
+     * 月份第一天所在的格子（0=星期日）
+     */
+    public int getFirstDayOffset() {
+        return firstDayOffset;
+    }
+    
+    /**
+     * 此月份需要的行數
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * 今天所在的格子，不在此月份時為-1
+     */
+    public int getTodayIndex() {
+        return todayIndex;
+    }
+    
+    public String getMonthYearText() {
+        return monthYearText;
+    }
+    
+    /**
+     * 格子的日期，月初前及月底後的格子為null
+     */
+    public LocalDate getCellDate(int index) {
+        return cellDates[index];
+    }
+    
+    /**
+     * 格子中的事件，按時間排序
+     */
+    public List<Event> getCellEvents(int index) {
+        LocalDate date = cellDates[index];
+        return date == null ? List.of() : dayEvents.get(date.getDayOfMonth() - 1);
+    }
+}
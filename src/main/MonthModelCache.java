@@ -0,0 +1,119 @@
+package main;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 月份版面的快取：在背景執行緒預先建立目前月份前後的MonthModel，
+ * 事件變更時使受影響月份失效；只應在JavaFX執行緒調用
+ */
+public class MonthModelCache implements EventChangeListener {
+    // 目前月份前後各預先建立幾個月
+    private static final int PREFETCH_RADIUS = 2;
+    // 最多保留的月份數
+    private static final int MAX_MODELS = 12;
+    
+    private final EventManager eventManager;
+    // 已建立或建立中的月份，按存取順序排列以淘汰最久未用的月份
+    private final Map<YearMonth, CompletableFuture<MonthModel>> models =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "month-model-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public MonthModelCache(EventManager eventManager) {
+        this.eventManager = eventManager;
+        eventManager.addEventChangeListener(this);
+    }
+    
+    /**
+     * 獲取月份版面；已預先建立時直接返回，建立中時等待完成，否則在目前執行緒建立
+     */
+    public MonthModel getModel(YearMonth month) {
+        CompletableFuture<MonthModel> future = models.get(month);
+        if (future != null) {
+            try {
+                MonthModel model = future.join();
+                if (model.getBuiltOn().equals(LocalDate.now())) {
+                    return model;
+                }
+            } catch (CompletionException e) {
+                System.err.println("預先建立 " + month + " 失敗，改為直接建立: " + e.getCause());
+            }
+        }
+        MonthModel model = MonthModel.build(month, eventManager);
+        put(month, CompletableFuture.completedFuture(model));
+        return model;
+    }
+    
+    /**
+     * 在背景建立指定月份前後尚未快取的月份
+     */
+    public void prefetchAround(YearMonth center) {
+        for (int offset = -PREFETCH_RADIUS; offset <= PREFETCH_RADIUS; offset++) {
+            YearMonth month = center.plusMonths(offset);
+            if (!models.containsKey(month)) {
+                put(month, CompletableFuture.supplyAsync(
+                    () -> MonthModel.build(month, eventManager), executor));
+            }
+        }
+    }
+    
+    /**
+     * 已建立或建立中的月份
+     */
+    public Set<YearMonth> getCachedMonths() {
+        return new HashSet<>(models.keySet());
+    }
+    
+    /**
+     * 使所有月份失效
+     */
+    public void invalidateAll() {
+        models.clear();
+    }
+    
+    /**
+     * 事件變更後移除受影響月份的版面，之後再次使用時重新建立；
+     * 重複事件改變時任何月份都可能受影響，全部失效
+     */
+    @Override
+    public void onEventChanged(EventChange change) {
+        if (change.isRecurrenceChanged()) {
+            invalidateAll();
+            return;
+        }
+        Set<YearMonth> affected = new HashSet<>();
+        for (LocalDate date : change.getAffectedDates()) {
+            affected.add(YearMonth.from(date));
+        }
+        models.keySet().removeAll(affected);
+    }
+    
+    /**
+     * 停止背景執行緒
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private void put(YearMonth month, CompletableFuture<MonthModel> future) {
+        models.put(month, future);
+        Iterator<YearMonth> eldest = models.keySet().iterator();
+        while (models.size() > MAX_MODELS && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+}
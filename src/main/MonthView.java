@@ -0,0 +1,32 @@
+package main;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import javafx.scene.layout.GridPane;
+
+/**
+ * 月曆格子區域的顯示方式，負責在星期標題下方顯示一個月份的日期和事件
+ */
+public interface MonthView {
+    
+    /**
+     * 將顯示節點加入日曆網格的第1至6行
+     */
+    void attach(GridPane calendarGrid);
+    
+    /**
+     * 顯示指定月份的版面
+     */
+    void render(MonthModel model);
+    
+    /**
+     * 日期是否在目前顯示的月份中
+     */
+    boolean isDisplayed(LocalDate date);
+    
+    /**
+     * 只更新一個日期的事件，events已按時間排序
+     */
+    void refreshDate(LocalDate date, List<Event> events);
+}
@@ -0,0 +1,369 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 以事件編號為鍵的持久化雜湊陣列映射樹（HAMT），不可修改且在版本間共用結構
+ *
+ * 每個節點以32位元的點陣圖標示存在的子項，子項陣列只保存存在的項目，每項是事件或下一層節點。
+ * 編號經過可逆的混合後每層取5位元，不同編號最多13層就會分開，不需要碰撞節點；
+ * 只剩一個事件的子節點併回上一層，因此同一組事件的樹形狀唯一。
+ * 修改只複製從根到該項的路徑（O(log n)），其餘節點與舊版本共用，舊版本永遠不變，
+ * 可在任何執行緒不加鎖地讀取；比較兩個版本時跳過共用的子樹。保存的事件應視為唯讀。
+ * 連續大量修改（例如批次匯入）時使用Editor，只在取出版本時才凍結節點。
+ */
+public final class PersistentEventMap {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    
+    public static final PersistentEventMap EMPTY = new PersistentEventMap(Node.EMPTY, 0);
+    
+    /**
+     * 接收兩個版本之間的差異
+     */
+    public interface DiffVisitor {
+        
+        /**
+         * 事件只在目標版本中
+         */
+        void added(Event event);
+        
+        /**
+         * 事件只在目前版本中
+         */
+        void removed(Event event);
+        
+        /**
+         * 事件在兩個版本中內容不同
+         */
+        void changed(Event from, Event to);
+    }
+    
+    private final Node root;
+    private final int size;
+    
+    private PersistentEventMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+    
+    /**
+     * 指定編號的事件，不存在時返回null
+     */
+    public Event get(long id) {
+        return root.get(mix(id), id, 0);
+    }
+    
+    /**
+     * 加入或取代事件後的新版本
+     */
+    public PersistentEventMap with(Event event) {
+        boolean exists = get(event.getId()) != null;
+        return new PersistentEventMap(root.put(null, mix(event.getId()), event, 0), exists ? size : size + 1);
+    }
+    
+    /**
+     * 移除事件後的新版本，事件不存在時返回本身
+     */
+    public PersistentEventMap without(long id) {
+        Node newRoot = root.remove(null, mix(id), id, 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentEventMap(newRoot != null ? newRoot : Node.EMPTY, size - 1);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 走訪所有事件，順序不固定
+     */
+    public void forEach(Consumer<Event> action) {
+        root.forEach(action);
+    }
+    
+    /**
+     * 所有事件的列表，順序不固定
+     */
+    public List<Event> values() {
+        List<Event> events = new ArrayList<>(size);
+        forEach(events::add);
+        return events;
+    }
+    
+    /**
+     * 列出從本版本到目標版本的差異，只走訪兩者不共用的子樹
+     */
+    public void diff(PersistentEventMap target, DiffVisitor visitor) {
+        diff(root, target.root, 0, visitor);
+    }
+    
+    private static void diff(Node from, Node to, int shift, DiffVisitor visitor) {
+        if (from == to) {
+            return;
+        }
+        int remaining = from.bitmap | to.bitmap;
+        while (remaining != 0) {
+            int bit = remaining & -remaining;
+            remaining ^= bit;
+            Object fromSlot = from.slot(bit);
+            Object toSlot = to.slot(bit);
+            if (fromSlot == toSlot) {
+                continue;
+            }
+            if (toSlot == null) {
+                forEach(fromSlot, visitor::removed);
+            } else if (fromSlot == null) {
+                forEach(toSlot, visitor::added);
+            } else if (fromSlot instanceof Event && toSlot instanceof Event
+                    && ((Event) fromSlot).getId() == ((Event) toSlot).getId()) {
+                visitor.changed((Event) fromSlot, (Event) toSlot);
+            } else {
+                // 其餘情況把單一事件視為下一層的節點再比較
+                diff(asNode(fromSlot, shift + BITS), asNode(toSlot, shift + BITS), shift + BITS, visitor);
+            }
+        }
+    }
+    
+    private static void forEach(Object slot, Consumer<Event> action) {
+        if (slot instanceof Node) {
+            ((Node) slot).forEach(action);
+        } else {
+            action.accept((Event) slot);
+        }
+    }
+    
+    private static Node asNode(Object slot, int shift) {
+        if (slot instanceof Node) {
+            return (Node) slot;
+        }
+        Event event = (Event) slot;
+        return Node.EMPTY.put(null, mix(event.getId()), event, shift);
+    }
+    
+    /**
+     * 將編號可逆地打散，使連續的編號均勻分布在各分支
+     */
+    private static long mix(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+    
+    /**
+     * 可原地修改的編輯器，用於連續的修改：第一次修改某個節點時複製它並預留空間，
+     * 之後直接修改自己建立的節點，省去每次修改都複製整條路徑；
+     * snapshot()之後那些節點不再修改，返回的版本保持不變。只能由一個執行緒使用（或由調用者同步）
+     */
+    public static final class Editor {
+        private Edit edit = new Edit();
+        private Node root;
+        private int size;
+        // 上次snapshot()之後沒有修改時直接返回同一版本
+        private PersistentEventMap snapshot;
+        
+        public Editor(PersistentEventMap base) {
+            this.root = base.root;
+            this.size = base.size;
+            this.snapshot = base;
+        }
+        
+        public void put(Event event) {
+            edit.added = false;
+            root = root.put(edit, mix(event.getId()), event, 0);
+            if (edit.added) {
+                size++;
+            }
+            snapshot = null;
+        }
+        
+        public void remove(long id) {
+            if (root.get(mix(id), id, 0) == null) {
+                return;
+            }
+            Node newRoot = root.remove(edit, mix(id), id, 0);
+            root = newRoot != null ? newRoot : Node.EMPTY;
+            size--;
+            snapshot = null;
+        }
+        
+        /**
+         * 目前內容的不可變版本
+         */
+        public PersistentEventMap snapshot() {
+            if (snapshot == null) {
+                edit = new Edit();
+                snapshot = new PersistentEventMap(root, size);
+            }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * 編輯器的修改權杖，同一權杖建立的節點可被原地修改；同時記錄最近一次put是否新增了事件
+     */
+    private static final class Edit {
+        boolean added;
+    }
+    
+    /**
+     * 樹的一個節點，子項為事件或下一層節點；edit不為null時屬於該編輯器，可被原地修改，
+     * 其子項陣列可能在尾端預留空位
+     */
+    private static final class Node {
+        static final Node EMPTY = new Node(0, new Object[0], null);
+        
+        int bitmap;
+        Object[] slots;
+        final Edit edit;
+        
+        Node(int bitmap, Object[] slots, Edit edit) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+            this.edit = edit;
+        }
+        
+        Event get(long hash, long id, int shift) {
+            Object slot = slot(bit(hash, shift));
+            if (slot instanceof Node) {
+                return ((Node) slot).get(hash, id, shift + BITS);
+            }
+            Event event = (Event) slot;
+            return event != null && event.getId() == id ? event : null;
+        }
+        
+        Node put(Edit edit, long hash, Event event, int shift) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                if (edit != null) {
+                    edit.added = true;
+                }
+                return withInsertedSlot(edit, bit, index, event);
+            }
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof Node) {
+                replacement = ((Node) slot).put(edit, hash, event, shift + BITS);
+            } else if (((Event) slot).getId() == event.getId()) {
+                replacement = event;
+            } else {
+                // 兩個事件在這一層相撞，往下一層分開
+                Event existing = (Event) slot;
+                replacement = EMPTY.put(edit, mix(existing.getId()), existing, shift + BITS)
+                    .put(edit, hash, event, shift + BITS);
+            }
+            return withSlot(edit, index, replacement);
+        }
+        
+        /**
+         * 移除後的節點；不存在時返回本身，節點變空時返回null
+         */
+        Node remove(Edit edit, long hash, long id, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object slot = slots[index];
+            if (slot instanceof Node) {
+                Node child = ((Node) slot).remove(edit, hash, id, shift + BITS);
+                if (child == null) {
+                    return withoutSlot(edit, bit, index);
+                }
+                // 只剩一個事件的子節點併回這一層
+                boolean single = child.count() == 1 && child.slots[0] instanceof Event;
+                return withSlot(edit, index, single ? child.slots[0] : child);
+            }
+            if (((Event) slot).getId() != id) {
+                return this;
+            }
+            return withoutSlot(edit, bit, index);
+        }
+        
+        void forEach(Consumer<Event> action) {
+            int count = count();
+            for (int i = 0; i < count; i++) {
+                PersistentEventMap.forEach(slots[i], action);
+            }
+        }
+        
+        /**
+         * 點陣圖位元對應的子項，不存在時返回null
+         */
+        Object slot(int bit) {
+            return (bitmap & bit) != 0 ? slots[index(bit)] : null;
+        }
+        
+        int count() {
+            return Integer.bitCount(bitmap);
+        }
+        
+        private boolean isOwnedBy(Edit edit) {
+            return edit != null && this.edit == edit;
+        }
+        
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+        
+        private Node withSlot(Edit edit, int index, Object slot) {
+            if (slots[index] == slot) {
+                return this;
+            }
+            if (isOwnedBy(edit)) {
+                slots[index] = slot;
+                return this;
+            }
+            Object[] newSlots = slots.clone();
+            newSlots[index] = slot;
+            return new Node(bitmap, newSlots, edit);
+        }
+        
+        private Node withInsertedSlot(Edit edit, int bit, int index, Object slot) {
+            int count = count();
+            if (isOwnedBy(edit) && count < slots.length) {
+                System.arraycopy(slots, index, slots, index + 1, count - index);
+                slots[index] = slot;
+                bitmap |= bit;
+                return this;
+            }
+            // 編輯器的節點加倍預留空間，之後的插入可以原地進行
+            int length = edit != null ? Math.min(1 << BITS, Math.max(4, count * 2)) : count + 1;
+            Object[] newSlots = new Object[length];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            newSlots[index] = slot;
+            System.arraycopy(slots, index, newSlots, index + 1, count - index);
+            if (isOwnedBy(edit)) {
+                bitmap |= bit;
+                slots = newSlots;
+                return this;
+            }
+            return new Node(bitmap | bit, newSlots, edit);
+        }
+        
+        private Node withoutSlot(Edit edit, int bit, int index) {
+            int count = count();
+            if (count == 1) {
+                return null;
+            }
+            if (isOwnedBy(edit)) {
+                System.arraycopy(slots, index + 1, slots, index, count - index - 1);
+                slots[count - 1] = null;
+                bitmap &= ~bit;
+                return this;
+            }
+            Object[] newSlots = new Object[count - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, count - index - 1);
+            return new Node(bitmap & ~bit, newSlots, edit);
+        }
+        
+        private static int bit(long hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+    }
+}
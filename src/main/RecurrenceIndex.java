@@ -0,0 +1,208 @@
+package main;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * EventManager中的重複事件：只保存規則，各次發生按月份展開並快取
+ *
+ * 記憶體與重複事件的數量成正比，與發生次數無關；只有顯示或預先載入的月份會被展開，
+ * 查詢單日時也展開整個月份。重複事件改變時不清空快取，只在已展開的月份中替換該事件的發生，
+ * 因此受影響的日期總是涵蓋所有正在顯示的日期。不是執行緒安全的，由EventManager的鎖保護。
+ */
+public class RecurrenceIndex {
+    // 最多快取的月份數，大於月份版面快取以免版面比展開結果保留得更久
+    private static final int MAX_CACHED_MONTHS = 24;
+    
+    /**
+     * 重複事件加入或上次修改時的起始日期和規則，事件被直接修改後仍能算出舊的發生日期
+     */
+    private static class Filed {
+        final LocalDate start;
+        final RecurrenceRule rule;
+        
+        Filed(RecurringEvent series) {
+            this.start = series.getDate();
+            this.rule = series.getRule();
+        }
+    }
+    
+    private final Map<RecurringEvent, Filed> series = new LinkedHashMap<>();
+    // 已展開的月份，索引i對應該月第i+1天；每天的列表不可修改，修補時整個替換
+    private final Map<YearMonth, List<List<Event>>> monthCache = new LinkedHashMap<>(16, 0.75f, true);
+    
+    public boolean contains(RecurringEvent event) {
+        return series.containsKey(event);
+    }
+    
+    /**
+     * 重複事件歸檔時的起始日期，未加入時為null
+     */
+    public LocalDate getFiledStart(RecurringEvent event) {
+        Filed filed = series.get(event);
+        return filed != null ? filed.start : null;
+    }
+    
+    /**
+     * 加入重複事件，並將已展開月份中受影響的日期加入affectedDays
+     */
+    public void add(RecurringEvent event, Set<Long> affectedDays) {
+        Filed filed = new Filed(event);
+        series.put(event, filed);
+        patchCachedMonths(event, null, filed, affectedDays);
+    }
+    
+    /**
+     * 刪除重複事件，並將已展開月份中受影響的日期加入affectedDays
+     */
+    public void remove(RecurringEvent event, Set<Long> affectedDays) {
+        Filed filed = series.remove(event);
+        if (filed != null) {
+            patchCachedMonths(event, filed, null, affectedDays);
+        }
+    }
+    
+    /**
+     * 以事件目前的起始日期和規則重新歸檔，新舊發生日期都算作受影響
+     */
+    public void update(RecurringEvent event, Set<Long> affectedDays) {
+        Filed oldFiled = series.get(event);
+        if (oldFiled == null) {
+            return;
+        }
+        Filed newFiled = new Filed(event);
+        series.put(event, newFiled);
+        patchCachedMonths(event, oldFiled, newFiled, affectedDays);
+    }
+    
+    /**
+     * 所有重複事件
+     */
+    public Collection<RecurringEvent> getSeries() {
+        return Collections.unmodifiableSet(series.keySet());
+    }
+    
+    public int size() {
+        return series.size();
+    }
+    
+    /**
+     * 月份中每一天的發生，索引i對應該月第i+1天；結果會被快取
+     */
+    public List<List<Event>> getMonth(YearMonth month) {
+        return Collections.unmodifiableList(expandedMonth(month));
+    }
+    
+    private List<List<Event>> expandedMonth(YearMonth month) {
+        List<List<Event>> days = monthCache.get(month);
+        if (days == null) {
+            days = expandMonth(month);
+            monthCache.put(month, days);
+            Iterator<YearMonth> eldest = monthCache.keySet().iterator();
+            while (monthCache.size() > MAX_CACHED_MONTHS && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return days;
+    }
+    
+    /**
+     * 某一天的發生；所在月份未展開時展開並快取，之後的修改才會通知到這一天
+     */
+    public List<Event> getDay(LocalDate date) {
+        if (series.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return expandedMonth(YearMonth.from(date)).get(date.getDayOfMonth() - 1);
+    }
+    
+    /**
+     * 日期範圍內（包含兩端）有發生的日期及其發生（每天按時間排序），不經過快取
+     */
+    public NavigableMap<LocalDate, List<Event>> getRange(LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, List<Event>> result = new TreeMap<>();
+        for (RecurringEvent event : series.keySet()) {
+            for (LocalDate date : event.getRule().occurrencesBetween(event.getDate(), from, to)) {
+                result.computeIfAbsent(date, k -> new ArrayList<>()).add(new EventOccurrence(event, date));
+            }
+        }
+        for (List<Event> events : result.values()) {
+            events.sort(DayEvents.BY_TIME);
+        }
+        return result;
+    }
+    
+    private List<List<Event>> expandMonth(YearMonth month) {
+        int daysInMonth = month.lengthOfMonth();
+        List<List<Event>> days = new ArrayList<>(
+            Collections.nCopies(daysInMonth, Collections.<Event>emptyList()));
+        for (Map.Entry<LocalDate, List<Event>> entry
+                : getRange(month.atDay(1), month.atEndOfMonth()).entrySet()) {
+            days.set(entry.getKey().getDayOfMonth() - 1, List.copyOf(entry.getValue()));
+        }
+        return days;
+    }
+    
+    /**
+     * 在已展開的月份中把重複事件舊歸檔的發生換成新歸檔的發生，並將這些日期加入affectedDays；
+     * 舊或新歸檔為null表示新增或刪除
+     */
+    private void patchCachedMonths(RecurringEvent event, Filed oldFiled, Filed newFiled, Set<Long> affectedDays) {
+        for (Map.Entry<YearMonth, List<List<Event>>> entry : monthCache.entrySet()) {
+            LocalDate first = entry.getKey().atDay(1);
+            LocalDate last = entry.getKey().atEndOfMonth();
+            List<List<Event>> days = entry.getValue();
+            if (oldFiled != null) {
+                for (LocalDate date : oldFiled.rule.occurrencesBetween(oldFiled.start, first, last)) {
+                    int index = date.getDayOfMonth() - 1;
+                    List<Event> remaining = new ArrayList<>(days.get(index));
+                    remaining.removeIf(e -> ((EventOccurrence) e).getSeries() == event);
+                    days.set(index, List.copyOf(remaining));
+                    affectedDays.add(date.toEpochDay());
+                }
+            }
+            if (newFiled != null) {
+                for (LocalDate date : newFiled.rule.occurrencesBetween(newFiled.start, first, last)) {
+                    int index = date.getDayOfMonth() - 1;
+                    List<Event> events = new ArrayList<>(days.get(index));
+                    events.add(new EventOccurrence(event, date));
+                    events.sort(DayEvents.BY_TIME);
+                    days.set(index, List.copyOf(events));
+                    affectedDays.add(date.toEpochDay());
+                }
+            }
+        }
+    }
+    
+    /**
+     * 將所有重複事件在已展開月份中的發生日期加入affectedDays，例如日曆顯示或隱藏時
+     */
+    public void collectCachedDates(Set<Long> affectedDays) {
+        for (Filed filed : series.values()) {
+            collectCachedDates(filed, affectedDays);
+        }
+    }
+    
+    /**
+     * 將已展開月份中的發生日期加入days
+     */
+    private void collectCachedDates(Filed filed, Set<Long> days) {
+        for (YearMonth month : monthCache.keySet()) {
+            for (LocalDate date : filed.rule.occurrencesBetween(
+                    filed.start, month.atDay(1), month.atEndOfMonth())) {
+                days.add(date.toEpochDay());
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package main;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 重複事件的不可變規則：頻率、間隔、次數或結束日期，以及被排除的日期
+ *
+ * 第n次發生在起始日期加上n個間隔，可直接算出任一日期範圍的第一次發生，
+ * 展開的成本只與範圍內的次數有關。每月及每年重複時，沒有該日的月份取該月最後一天。
+ * 被排除的日期仍計入次數上限。
+ */
+public final class RecurrenceRule {
+    /**
+     * 重複頻率
+     */
+    public enum Frequency {
+        DAILY(ChronoUnit.DAYS, "每天"),
+        WEEKLY(ChronoUnit.WEEKS, "每週"),
+        MONTHLY(ChronoUnit.MONTHS, "每月"),
+        YEARLY(ChronoUnit.YEARS, "每年");
+        
+        private final ChronoUnit unit;
+        private final String displayName;
+        
+        Frequency(ChronoUnit unit, String displayName) {
+            this.unit = unit;
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+    
+    private final Frequency frequency;
+    private final int interval;
+    // 最多發生的次數，0表示不限
+    private final int count;
+    // 最後可發生的日期（包含），null表示不限
+    private final LocalDate until;
+    private final Set<LocalDate> exceptions;
+    
+    public RecurrenceRule(Frequency frequency, int interval, int count, LocalDate until,
+            Set<LocalDate> exceptions) {
+        if (interval < 1 || count < 0) {
+            throw new IllegalArgumentException("間隔必須大於0且次數不可為負: " + interval + ", " + count);
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+        this.exceptions = Collections.unmodifiableSet(new TreeSet<>(exceptions));
+    }
+    
+    /**
+     * 每個間隔單位重複一次、不限次數的規則
+     */
+    public static RecurrenceRule of(Frequency frequency) {
+        return new RecurrenceRule(frequency, 1, 0, null, Collections.emptySet());
+    }
+    
+    /**
+     * 加上一個排除日期後的新規則
+     */
+    public RecurrenceRule withException(LocalDate date) {
+        Set<LocalDate> newExceptions = new TreeSet<>(exceptions);
+        newExceptions.add(date);
+        return new RecurrenceRule(frequency, interval, count, until, newExceptions);
+    }
+    
+    public Frequency getFrequency() {
+        return frequency;
+    }
+    
+    public int getInterval() {
+        return interval;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    public LocalDate getUntil() {
+        return until;
+    }
+    
+    public Set<LocalDate> getExceptions() {
+        return exceptions;
+    }
+    
+    /**
+     * 從start開始重複時，在from到to（包含兩端）之間發生的日期，按日期排序
+     */
+    public List<LocalDate> occurrencesBetween(LocalDate start, LocalDate from, LocalDate to) {
+        List<LocalDate> dates = new ArrayList<>();
+        LocalDate last = until != null && until.isBefore(to) ? until : to;
+        if (last.isBefore(start) || last.isBefore(from)) {
+            return dates;
+        }
+        
+        // 直接跳到範圍內的第一次；每月重複遇到月底截短時可能差一次，再往後補
+        long n = 0;
+        if (from.isAfter(start)) {
+            n = frequency.unit.between(start, from) / interval;
+        }
+        LocalDate date = occurrence(start, n);
+        while (date.isBefore(from)) {
+            date = occurrence(start, ++n);
+        }
+        
+        while (!date.isAfter(last) && (count == 0 || n < count)) {
+            if (!exceptions.contains(date)) {
+                dates.add(date);
+            }
+            date = occurrence(start, ++n);
+        }
+        return dates;
+    }
+    
+    /**
+     * 是否在指定日期發生
+     */
+    public boolean occursOn(LocalDate start, LocalDate date) {
+        return !occurrencesBetween(start, date, date).isEmpty();
+    }
+    
+    /**
+     * 第n次發生的日期
+     */
+    private LocalDate occurrence(LocalDate start, long n) {
+        return start.plus(n * interval, frequency.unit);
+    }
+    
+    @Override
+    public String toString() {
+        return interval == 1
+            ? frequency.getDisplayName()
+            : frequency.getDisplayName() + " x" + interval;
+    }
+}
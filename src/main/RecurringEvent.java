@@ -0,0 +1,51 @@
+package main;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import javafx.scene.paint.Color;
+
+/**
+ * 重複事件：以單一規則保存，日期為第一次發生的日期，
+ * 各次發生只在顯示時按需展開為EventOccurrence
+ */
+public class RecurringEvent extends Event {
+    private RecurrenceRule rule;
+    
+    public RecurringEvent(LocalDate date, LocalTime time, String description, Color color,
+            RecurrenceRule rule) {
+        super(date, time, description, color);
+        this.rule = rule;
+    }
+    
+    /**
+     * 以既有編號創建重複事件，供存儲層重建時使用
+     */
+    RecurringEvent(long id, LocalDate date, LocalTime time, String description, Color color,
+            RecurrenceRule rule) {
+        super(id, date, time, description, color);
+        this.rule = rule;
+    }
+    
+    public RecurrenceRule getRule() {
+        return rule;
+    }
+    
+    public void setRule(RecurrenceRule rule) {
+        this.rule = rule;
+    }
+    
+    @Override
+    RecurringEvent copy() {
+        RecurringEvent copy = new RecurringEvent(getId(), getDate(), getTime(), getDescription(), getColor(), rule);
+        copy.setDuration(getDuration());
+        copy.setCalendarId(getCalendarId());
+        copy.setReminder(getReminder());
+        return copy;
+    }
+    
+    @Override
+    public String toString() {
+        return super.toString() + " (" + rule + ")";
+    }
+}
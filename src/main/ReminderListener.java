@@ -0,0 +1,15 @@
+package main;
+
+import java.time.LocalDateTime;
+
+/**
+ * 接收事件提醒的介面，在界面執行緒調用
+ */
+@FunctionalInterface
+public interface ReminderListener {
+    
+    /**
+     * 事件（重複事件為其本身）將在start開始；missed表示提醒時間已過（例如電腦休眠期間）才補發
+     */
+    void reminderDue(Event event, LocalDateTime start, boolean missed);
+}
@@ -0,0 +1,557 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javafx.application.Platform;
+
+/**
+ * 事件提醒的排程器，作為EventMutationListener隨每次修改增量維護，由單一背景執行緒觸發
+ *
+ * 待觸發的提醒放在分層時間輪中：以秒為刻度，每層64格對應刻度的6個位元，共11層涵蓋整個long；
+ * 提醒按到期刻度與目前刻度最高的不同位元放在該層，每格是雙向鏈結串列，新增、修改和刪除都是O(1)。
+ * 每層以一個long標示有提醒的格子，執行緒直接跳到下一個有提醒的格子，
+ * 到達較高層的格子時才把其中的提醒分散到較低的層；空閒時每分鐘最多醒來一次檢查時鐘。
+ * 時鐘往前跳（例如電腦休眠後）時補發期間到期的提醒，但事件已開始超過MISSED_GRACE_MILLIS的不再提醒；
+ * 時鐘往回調時以新的時間重建時間輪。重複事件只排入下一次發生的提醒，觸發後再排入之後的一次。
+ *
+ * 每個事件記下已送出提醒的最晚一次發生，修改事件時不會再次提醒同一次發生；
+ * 只改了描述、顏色等不影響提醒的內容時保留原本的提醒。
+ * 已處理到的時間保存在狀態檔中，重新啟動時載入的事件若提醒時間不晚於此，表示上次執行時已提醒過。
+ * 分段存儲自行載入的事件不經過EventManager，由調用者在月份載入時以seed()交給排程器。
+ * 方法同步在排程器本身，修改可來自任何執行緒；提醒經由界面執行緒交給ReminderListener。
+ */
+public class ReminderScheduler implements EventMutationListener {
+    // 可選的提醒時間，編碼時代碼為索引加1，0表示不提醒
+    public static final List<Duration> PRESETS = List.of(
+        Duration.ZERO, Duration.ofMinutes(5), Duration.ofMinutes(10), Duration.ofMinutes(15),
+        Duration.ofMinutes(30), Duration.ofHours(1), Duration.ofHours(2),
+        Duration.ofDays(1), Duration.ofDays(2), Duration.ofDays(7));
+    
+    private static final long TICK_MILLIS = 1000;
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = (Long.SIZE + BITS - 1) / BITS;
+    // 沒有即將到期的提醒時最長的等待時間，也是發現時鐘跳動的最長延遲
+    private static final long MAX_IDLE_MILLIS = 60_000;
+    // 錯過的提醒在事件開始後多久內仍補發
+    private static final long MISSED_GRACE_MILLIS = 15 * 60_000;
+    // 比提醒時間晚多久才觸發視為補發
+    private static final long LATE_MILLIS = 60_000;
+    // 尋找重複事件下一次發生時最多往後找的年數
+    private static final int SEARCH_YEARS = 10;
+    
+    /**
+     * 一個待觸發的提醒，同時是時間輪格子中雙向鏈結串列的節點
+     */
+    private static final class Reminder {
+        // 修改了不影響提醒的內容時換成新的事件物件
+        Event event;
+        final LocalDateTime start;
+        final long startMillis;
+        final long dueMillis;
+        final long tick;
+        // 排入時事件影響提醒的內容
+        final LocalDate filedDate;
+        final LocalTime filedTime;
+        final Duration filedReminder;
+        final RecurrenceRule filedRule;
+        // 所在的層，-1表示已到期、等待觸發
+        int level = -1;
+        int slot;
+        Reminder previous;
+        Reminder next;
+        
+        Reminder(Event event, LocalDateTime start, long startMillis, long dueMillis) {
+            this.event = event;
+            this.start = start;
+            this.startMillis = startMillis;
+            this.dueMillis = dueMillis;
+            this.tick = Math.floorDiv(dueMillis + TICK_MILLIS - 1, TICK_MILLIS);
+            this.filedDate = event.getDate();
+            this.filedTime = event.getTime();
+            this.filedReminder = event.getReminder();
+            this.filedRule = event instanceof RecurringEvent ? ((RecurringEvent) event).getRule() : null;
+        }
+        
+        /**
+         * 事件影響提醒的內容（日期、時間、提醒時間和重複規則）是否與排入時相同
+         */
+        boolean matches(Event event) {
+            RecurrenceRule rule = event instanceof RecurringEvent ? ((RecurringEvent) event).getRule() : null;
+            return event.getDate().equals(filedDate) && event.getTime().equals(filedTime)
+                && event.getReminder().equals(filedReminder) && rule == filedRule;
+        }
+    }
+    
+    private final ReminderListener listener;
+    private final Clock clock;
+    private final Path stateFile;
+    private volatile Executor uiExecutor = Platform::runLater;
+    
+    // slots[層][格]是該格鏈結串列的第一個節點，occupied[層]標示非空的格子
+    private final Reminder[][] slots = new Reminder[LEVELS][SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    // 事件編號到其提醒，每個事件最多一個
+    private final Map<Long, Reminder> reminders = new HashMap<>();
+    // 已到期、等待觸發的提醒
+    private final Deque<Reminder> due = new ArrayDeque<>();
+    // 事件編號到已送出提醒的最晚一次發生的開始時間，該時間及之前的發生不再排入
+    private final Map<Long, Long> deliveredUntil = new HashMap<>();
+    // 上次執行時已處理到的時間，提醒時間不晚於此的已保存事件已提醒過
+    private final long restoredUntil;
+    // 本次已處理到的時間，結束時寫入狀態檔
+    private long processedUntil;
+    private long currentTick;
+    // 執行緒預定醒來的刻度，更早到期的提醒加入時喚醒它
+    private long wakeTick = Long.MAX_VALUE;
+    private Thread thread;
+    private boolean running;
+    
+    /**
+     * 創建排程器，已處理到的時間保存在stateFile中；stateFile為null時不保存，重新啟動後會再次提醒
+     */
+    public ReminderScheduler(ReminderListener listener, Path stateFile) {
+        this(listener, stateFile, Clock.systemDefaultZone());
+    }
+    
+    /**
+     * 使用指定的時鐘創建，例如測試時鐘跳動
+     */
+    public ReminderScheduler(ReminderListener listener, Path stateFile, Clock clock) {
+        this.listener = listener;
+        this.stateFile = stateFile;
+        this.clock = clock;
+        this.currentTick = Math.floorDiv(clock.millis(), TICK_MILLIS);
+        this.restoredUntil = readState();
+        this.processedUntil = restoredUntil;
+    }
+    
+    /**
+     * 設置把提醒交給界面執行緒的方式，預設為Platform.runLater
+     */
+    public void setUiExecutor(Executor uiExecutor) {
+        this.uiExecutor = uiExecutor;
+    }
+    
+    /**
+     * 啟動背景執行緒
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "reminder-scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * 停止背景執行緒並保存已處理到的時間，尚未觸發的提醒不再觸發
+     */
+    public synchronized void shutdown() {
+        running = false;
+        notifyAll();
+        saveState();
+    }
+    
+    /**
+     * 排入不經過EventManager載入的已保存事件，例如分段存儲載入的月份；已排入且內容未變的事件不受影響
+     */
+    public synchronized void seed(Collection<Event> events) {
+        for (Event event : events) {
+            if (event.getReminder() != null && !keepPending(event)) {
+                schedule(event, true);
+            }
+        }
+    }
+    
+    /**
+     * 待觸發的提醒數
+     */
+    public synchronized int getPendingCount() {
+        return reminders.size();
+    }
+    
+    /**
+     * 啟動前加入的是重新載入的已保存事件
+     */
+    @Override
+    public synchronized void eventAdded(Event event) {
+        schedule(event, !running);
+    }
+    
+    @Override
+    public synchronized void eventRemoved(Event event, LocalDate oldDate) {
+        cancel(event.getId());
+        deliveredUntil.remove(event.getId());
+    }
+    
+    @Override
+    public synchronized void eventUpdated(Event event, LocalDate oldDate) {
+        if (!keepPending(event)) {
+            schedule(event, false);
+        }
+    }
+    
+    /**
+     * 事件已有待觸發的提醒且影響提醒的內容未變時保留，只換成新的事件物件
+     */
+    private boolean keepPending(Event event) {
+        Reminder pending = reminders.get(event.getId());
+        if (pending == null || event.getReminder() == null || !pending.matches(event)) {
+            return false;
+        }
+        pending.event = event;
+        return true;
+    }
+    
+    /**
+     * 提醒時間的代碼，供存儲層以4個位元保存；不在PRESETS中的時間取最接近的一個
+     */
+    static int reminderCode(Duration reminder) {
+        if (reminder == null) {
+            return 0;
+        }
+        int closest = 0;
+        for (int i = 1; i < PRESETS.size(); i++) {
+            if (reminder.minus(PRESETS.get(i)).abs().compareTo(reminder.minus(PRESETS.get(closest)).abs()) < 0) {
+                closest = i;
+            }
+        }
+        return closest + 1;
+    }
+    
+    /**
+     * 代碼對應的提醒時間，0或未知的代碼表示不提醒
+     */
+    static Duration reminderOf(int code) {
+        return code > 0 && code <= PRESETS.size() ? PRESETS.get(code - 1) : null;
+    }
+    
+    /**
+     * 提醒時間的顯示文字
+     */
+    public static String describe(Duration reminder) {
+        if (reminder == null) {
+            return "不提醒";
+        }
+        if (reminder.isZero()) {
+            return "準時";
+        }
+        if (reminder.toMinutes() % (24 * 60) == 0) {
+            return reminder.toDays() + " 天前";
+        }
+        if (reminder.toMinutes() % 60 == 0) {
+            return reminder.toHours() + " 小時前";
+        }
+        return reminder.toMinutes() + " 分鐘前";
+    }
+    
+    /**
+     * 按事件目前的內容重新排入提醒；重複事件排入下一次仍需提醒的發生。
+     * persisted表示重新載入的已保存事件，上次執行時已處理過的發生不再提醒
+     */
+    private void schedule(Event event, boolean persisted) {
+        cancel(event.getId());
+        if (event.getReminder() == null) {
+            return;
+        }
+        long now = clock.millis();
+        LocalDateTime start;
+        if (event instanceof RecurringEvent) {
+            // 從昨天找起，跨午夜仍在補發期限內的發生不會被略過
+            LocalDate yesterday = LocalDate.now(clock).minusDays(1);
+            LocalDate from = event.getDate().isAfter(yesterday) ? event.getDate() : yesterday;
+            start = nextOccurrence((RecurringEvent) event, from, now, persisted);
+        } else {
+            start = event.getDate().atTime(event.getTime());
+            if (!isPending(event, toMillis(start), now, persisted)) {
+                start = null;
+            }
+        }
+        if (start != null) {
+            add(event, start);
+        }
+    }
+    
+    /**
+     * 開始於startMillis的發生是否仍需提醒：未錯過補發期限、未送出過，
+     * 已保存的事件還需在上次執行時尚未處理過；上次已處理過的記為已送出
+     */
+    private boolean isPending(Event event, long startMillis, long now, boolean persisted) {
+        if (startMillis + MISSED_GRACE_MILLIS < now
+                || startMillis <= deliveredUntil.getOrDefault(event.getId(), Long.MIN_VALUE)) {
+            return false;
+        }
+        if (persisted && startMillis - event.getReminder().toMillis() <= restoredUntil) {
+            deliveredUntil.merge(event.getId(), startMillis, Math::max);
+            return false;
+        }
+        return true;
+    }
+    
+    private void add(Event event, LocalDateTime start) {
+        long startMillis = toMillis(start);
+        Reminder reminder = new Reminder(event, start, startMillis, startMillis - event.getReminder().toMillis());
+        reminders.put(event.getId(), reminder);
+        insert(reminder);
+    }
+    
+    private void cancel(long eventId) {
+        Reminder reminder = reminders.remove(eventId);
+        if (reminder == null) {
+            return;
+        }
+        if (reminder.level >= 0) {
+            unlink(reminder);
+        } else {
+            due.remove(reminder);
+        }
+    }
+    
+    /**
+     * 放入時間輪中到期刻度與目前刻度最高的不同位元所在的層；已到期的直接等待觸發
+     */
+    private void insert(Reminder reminder) {
+        if (reminder.tick <= currentTick) {
+            reminder.level = -1;
+            due.add(reminder);
+            notifyAll();
+            return;
+        }
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(reminder.tick ^ currentTick)) / BITS;
+        int slot = (int) (reminder.tick >>> level * BITS) & MASK;
+        reminder.level = level;
+        reminder.slot = slot;
+        reminder.previous = null;
+        reminder.next = slots[level][slot];
+        if (reminder.next != null) {
+            reminder.next.previous = reminder;
+        }
+        slots[level][slot] = reminder;
+        occupied[level] |= 1L << slot;
+        if (reminder.tick < wakeTick) {
+            notifyAll();
+        }
+    }
+    
+    private void unlink(Reminder reminder) {
+        if (reminder.previous != null) {
+            reminder.previous.next = reminder.next;
+        } else {
+            slots[reminder.level][reminder.slot] = reminder.next;
+            if (reminder.next == null) {
+                occupied[reminder.level] &= ~(1L << reminder.slot);
+            }
+        }
+        if (reminder.next != null) {
+            reminder.next.previous = reminder.previous;
+        }
+        reminder.level = -1;
+        reminder.previous = null;
+        reminder.next = null;
+    }
+    
+    /**
+     * 下一個需要處理的刻度：各層目前位置之後第一個非空的格子開始的刻度，沒有時為Long.MAX_VALUE
+     */
+    private long nextTick() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            if (occupied[level] == 0) {
+                continue;
+            }
+            int shift = level * BITS;
+            int digit = (int) (currentTick >>> shift) & MASK;
+            long later = occupied[level] & (-2L << digit);
+            if (later == 0) {
+                continue;
+            }
+            int upper = shift + BITS;
+            long base = upper >= Long.SIZE ? 0 : currentTick >>> upper << upper;
+            next = Math.min(next, base | (long) Long.numberOfTrailingZeros(later) << shift);
+        }
+        return next;
+    }
+    
+    /**
+     * 把目前刻度推進到target，途經的高層格子分散到較低的層，到期的提醒移到due
+     */
+    private void advanceTo(long target) {
+        while (true) {
+            long next = nextTick();
+            if (next > target) {
+                currentTick = Math.max(currentTick, target);
+                return;
+            }
+            currentTick = next;
+            for (int level = LEVELS - 1; level >= 0; level--) {
+                int shift = level * BITS;
+                // 較低的位元都是0時才到達這一層的格子
+                if (level > 0 && (currentTick & ((1L << shift) - 1)) != 0) {
+                    continue;
+                }
+                int slot = (int) (currentTick >>> shift) & MASK;
+                Reminder reminder = slots[level][slot];
+                slots[level][slot] = null;
+                occupied[level] &= ~(1L << slot);
+                while (reminder != null) {
+                    Reminder following = reminder.next;
+                    reminder.previous = null;
+                    reminder.next = null;
+                    insert(reminder);
+                    reminder = following;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 時鐘往回調時以新的刻度重新放入所有提醒
+     */
+    private void rebuild(long tick) {
+        for (int level = 0; level < LEVELS; level++) {
+            Arrays.fill(slots[level], null);
+            occupied[level] = 0;
+        }
+        currentTick = tick;
+        for (Reminder reminder : reminders.values()) {
+            if (reminder.level >= 0) {
+                reminder.level = -1;
+                reminder.previous = null;
+                reminder.next = null;
+                insert(reminder);
+            }
+        }
+    }
+    
+    /**
+     * 觸發已到期的提醒：太久以前的事件不再提醒，重複事件排入下一次發生；返回是否送出了提醒
+     */
+    private boolean fireDue(long now) {
+        boolean delivered = false;
+        while (!due.isEmpty()) {
+            Reminder reminder = due.poll();
+            reminders.remove(reminder.event.getId());
+            if (reminder.startMillis + MISSED_GRACE_MILLIS >= now) {
+                Event event = reminder.event;
+                LocalDateTime start = reminder.start;
+                boolean missed = now - reminder.dueMillis > LATE_MILLIS;
+                uiExecutor.execute(() -> listener.reminderDue(event, start, missed));
+                deliveredUntil.merge(event.getId(), reminder.startMillis, Math::max);
+                delivered = true;
+            }
+            if (reminder.event instanceof RecurringEvent) {
+                RecurringEvent series = (RecurringEvent) reminder.event;
+                LocalDateTime next = nextOccurrence(series, reminder.start.toLocalDate().plusDays(1), now, false);
+                if (next != null) {
+                    add(series, next);
+                }
+            }
+        }
+        return delivered;
+    }
+    
+    /**
+     * 處理到目前時間為止到期的提醒，返回距離下一個提醒的毫秒數（最多MAX_IDLE_MILLIS）；需持有本物件的鎖
+     */
+    private long poll() {
+        long now = clock.millis();
+        long nowTick = Math.floorDiv(now, TICK_MILLIS);
+        if (nowTick < currentTick) {
+            rebuild(nowTick);
+        }
+        advanceTo(nowTick);
+        boolean delivered = fireDue(now);
+        processedUntil = Math.max(processedUntil, now);
+        if (delivered) {
+            saveState();
+        }
+        long next = nextTick();
+        wakeTick = next;
+        if (next == Long.MAX_VALUE) {
+            return MAX_IDLE_MILLIS;
+        }
+        return Math.max(1, Math.min(MAX_IDLE_MILLIS, next * TICK_MILLIS - now));
+    }
+    
+    private synchronized void run() {
+        while (running) {
+            long delay = poll();
+            if (!due.isEmpty()) {
+                continue;
+            }
+            try {
+                wait(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * 重複事件從from（包含）起第一次仍需提醒的發生，見isPending
+     */
+    private LocalDateTime nextOccurrence(RecurringEvent series, LocalDate from, long now, boolean persisted) {
+        LocalDate windowStart = from;
+        for (int i = 0; i < SEARCH_YEARS; i++) {
+            LocalDate windowEnd = windowStart.plusYears(1);
+            for (LocalDate date : series.getRule().occurrencesBetween(series.getDate(), windowStart, windowEnd)) {
+                LocalDateTime start = date.atTime(series.getTime());
+                if (isPending(series, toMillis(start), now, persisted)) {
+                    return start;
+                }
+            }
+            windowStart = windowEnd.plusDays(1);
+        }
+        return null;
+    }
+    
+    /**
+     * 讀取上次執行時已處理到的時間，沒有狀態檔時為Long.MIN_VALUE
+     */
+    private long readState() {
+        if (stateFile == null || !Files.exists(stateFile)) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return Long.parseLong(Files.readString(stateFile).trim());
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("讀取提醒狀態失敗: " + e.getMessage());
+            return Long.MIN_VALUE;
+        }
+    }
+    
+    private void saveState() {
+        if (stateFile == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(stateFile.getParent());
+            Files.writeString(stateFile, Long.toString(processedUntil));
+        } catch (IOException e) {
+            System.err.println("保存提醒狀態失敗: " + e.getMessage());
+        }
+    }
+    
+    private long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,336 @@
+package main;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * 事件描述的全文搜尋索引，作為EventMutationListener隨每次修改增量維護
+ *
+ * 描述切成小寫的英數字詞，中日韓文字每個字各為一詞。每個詞對應一個posting陣列，
+ * 內容是「行號+版本」打包成的long；事件描述改變或被刪除時只增加該行的版本，
+ * 舊的posting自然失效，失效項目多於有效項目時整體重建，修改的成本與posting長度無關。
+ * 查詢時各詞的有效行以位元集合求交集，最後一個詞（至少兩個字元）可作為前綴，
+ * 結果按完全符合的詞數優先、再按日期排序。
+ * 方法同步在索引本身，修改可來自任何執行緒。
+ * 只索引經過EventManager加入的事件，按月分段存儲中本次未載入過的月份不在索引內。
+ */
+public class SearchIndex implements EventMutationListener {
+    // 前綴查詢最少的字元數，避免單一字元展開成整個索引
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int INITIAL_CAPACITY = 1024;
+    // 最差的結果排在最前面：分數低、日期晚、行號大
+    private static final Comparator<long[]> WORST_FIRST = Comparator.<long[]>comparingLong(hit -> hit[0])
+        .thenComparing(Comparator.<long[]>comparingLong(hit -> -hit[1]))
+        .thenComparing(Comparator.<long[]>comparingLong(hit -> -hit[2]));
+    
+    /**
+     * 一筆搜尋結果
+     */
+    public static final class Hit {
+        private final long eventId;
+        private final LocalDate date;
+        private final String description;
+        
+        Hit(long eventId, LocalDate date, String description) {
+            this.eventId = eventId;
+            this.date = date;
+            this.description = description;
+        }
+        
+        public long getEventId() {
+            return eventId;
+        }
+        
+        public LocalDate getDate() {
+            return date;
+        }
+        
+        public String getDescription() {
+            return description;
+        }
+        
+        @Override
+        public String toString() {
+            return date + "  " + description;
+        }
+    }
+    
+    /**
+     * 一個詞的posting，只追加，失效項目在重建時清除
+     */
+    private static class Postings {
+        long[] entries = new long[4];
+        int size;
+        
+        void add(long entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+    }
+    
+    // 詞到posting，有序以支援前綴查詢
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    // 事件編號到行號
+    private final LongIntMap eventRows = new LongIntMap(INITIAL_CAPACITY);
+    // 每行的事件編號、日期、描述和目前版本
+    private long[] rowIds = new long[INITIAL_CAPACITY];
+    private int[] rowDays = new int[INITIAL_CAPACITY];
+    private String[] rowDescriptions = new String[INITIAL_CAPACITY];
+    private int[] rowVersions = new int[INITIAL_CAPACITY];
+    private int rowCount;
+    // 刪除後可重新使用的行
+    private int[] freeRows = new int[16];
+    private int freeRowCount;
+    
+    private long liveEntries;
+    private long staleEntries;
+    
+    @Override
+    public synchronized void eventAdded(Event event) {
+        index(event);
+    }
+    
+    @Override
+    public synchronized void eventRemoved(Event event, LocalDate oldDate) {
+        int row = eventRows.get(event.getId());
+        if (row == LongIntMap.MISSING) {
+            return;
+        }
+        retire(row);
+        eventRows.remove(event.getId());
+        rowDescriptions[row] = null;
+        if (freeRowCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeRowCount * 2);
+        }
+        freeRows[freeRowCount++] = row;
+        compactIfNeeded();
+    }
+    
+    @Override
+    public synchronized void eventUpdated(Event event, LocalDate oldDate) {
+        int row = eventRows.get(event.getId());
+        if (row == LongIntMap.MISSING) {
+            index(event);
+            return;
+        }
+        rowDays[row] = (int) event.getDate().toEpochDay();
+        if (!event.getDescription().equals(rowDescriptions[row])) {
+            retire(row);
+            rowDescriptions[row] = event.getDescription();
+            addPostings(row);
+            compactIfNeeded();
+        }
+    }
+    
+    /**
+     * 已索引的事件數
+     */
+    public synchronized int size() {
+        return eventRows.size();
+    }
+    
+    /**
+     * 搜尋描述中包含所有查詢詞的事件，最多返回limit筆
+     */
+    public synchronized List<Hit> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        // 查詢以空白結尾時最後一個詞已輸入完畢，不作為前綴
+        String last = terms.get(terms.size() - 1);
+        boolean prefix = !Character.isWhitespace(query.charAt(query.length() - 1))
+            && last.length() >= MIN_PREFIX_LENGTH;
+        List<String> exactTerms = prefix ? terms.subList(0, terms.size() - 1) : terms;
+        
+        // 以每個詞的有效行集合求交集，成本與posting長度成正比，不需逐一檢查描述
+        BitSet matches = null;
+        for (String term : exactTerms) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            BitSet rows = new BitSet(rowCount);
+            addLiveRows(list, rows);
+            matches = intersect(matches, rows);
+        }
+        BitSet exactLast = new BitSet(rowCount);
+        if (prefix) {
+            BitSet rows = new BitSet(rowCount);
+            for (Map.Entry<String, Postings> entry
+                    : postings.subMap(last, true, last + Character.MAX_VALUE, false).entrySet()) {
+                addLiveRows(entry.getValue(), entry.getKey().equals(last) ? exactLast : rows);
+            }
+            rows.or(exactLast);
+            matches = intersect(matches, rows);
+        }
+        
+        // 分數為完全符合的詞數，只保留最好的limit筆
+        PriorityQueue<long[]> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+            int score = exactTerms.size() + (exactLast.get(row) ? 1 : 0);
+            if (best.size() == limit) {
+                long[] worst = best.peek();
+                if (score < worst[0] || score == worst[0] && rowDays[row] >= worst[1]) {
+                    continue;
+                }
+            }
+            best.add(new long[] { score, rowDays[row], row });
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        
+        List<Hit> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            int row = (int) best.poll()[2];
+            hits.add(new Hit(rowIds[row], LocalDate.ofEpochDay(rowDays[row]), rowDescriptions[row]));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+    
+    /**
+     * 將posting中仍有效的行加入rows
+     */
+    private void addLiveRows(Postings list, BitSet rows) {
+        for (int i = 0; i < list.size; i++) {
+            long entry = list.entries[i];
+            int row = (int) (entry >>> 32);
+            if (rowVersions[row] == (int) entry && rowDescriptions[row] != null) {
+                rows.set(row);
+            }
+        }
+    }
+    
+    private static BitSet intersect(BitSet matches, BitSet rows) {
+        if (matches == null) {
+            return rows;
+        }
+        matches.and(rows);
+        return matches;
+    }
+    
+    private void index(Event event) {
+        int row;
+        if (freeRowCount > 0) {
+            row = freeRows[--freeRowCount];
+        } else {
+            row = rowCount++;
+            ensureCapacity(rowCount);
+        }
+        rowIds[row] = event.getId();
+        rowDays[row] = (int) event.getDate().toEpochDay();
+        rowDescriptions[row] = event.getDescription();
+        rowVersions[row]++;
+        eventRows.put(event.getId(), row);
+        addPostings(row);
+    }
+    
+    private void addPostings(int row) {
+        long entry = (long) row << 32 | (rowVersions[row] & 0xFFFFFFFFL);
+        for (String token : new LinkedHashSet<>(tokenize(rowDescriptions[row]))) {
+            postings.computeIfAbsent(token, k -> new Postings()).add(entry);
+            liveEntries++;
+        }
+    }
+    
+    /**
+     * 使行目前的posting失效
+     */
+    private void retire(int row) {
+        long tokens = new LinkedHashSet<>(tokenize(rowDescriptions[row])).size();
+        liveEntries -= tokens;
+        staleEntries += tokens;
+        rowVersions[row]++;
+    }
+    
+    /**
+     * 失效項目多於有效項目時，只保留有效項目重建所有posting
+     */
+    private void compactIfNeeded() {
+        if (staleEntries <= liveEntries + INITIAL_CAPACITY) {
+            return;
+        }
+        Iterator<Map.Entry<String, Postings>> iterator = postings.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Postings list = iterator.next().getValue();
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                long entry = list.entries[i];
+                int row = (int) (entry >>> 32);
+                if (rowVersions[row] == (int) entry && rowDescriptions[row] != null) {
+                    list.entries[kept++] = entry;
+                }
+            }
+            list.size = kept;
+            if (kept == 0) {
+                iterator.remove();
+            } else if (kept < list.entries.length / 4) {
+                list.entries = Arrays.copyOf(list.entries, Math.max(4, kept));
+            }
+        }
+        staleEntries = 0;
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (capacity > rowIds.length) {
+            int newLength = Math.max(capacity, rowIds.length * 2);
+            rowIds = Arrays.copyOf(rowIds, newLength);
+            rowDays = Arrays.copyOf(rowDays, newLength);
+            rowDescriptions = Arrays.copyOf(rowDescriptions, newLength);
+            rowVersions = Arrays.copyOf(rowVersions, newLength);
+        }
+    }
+    
+    /**
+     * 切成小寫的英數字詞，中日韓文字每個字各為一詞
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            int next = i + Character.charCount(codePoint);
+            if (isIdeographic(codePoint)) {
+                if (start >= 0) {
+                    tokens.add(text.substring(start, i).toLowerCase());
+                    start = -1;
+                }
+                tokens.add(text.substring(i, next));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+            i = next;
+        }
+        if (start >= 0) {
+            tokens.add(text.substring(start).toLowerCase());
+        }
+        return tokens;
+    }
+    
+    private static boolean isIdeographic(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
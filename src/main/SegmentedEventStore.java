@@ -0,0 +1,417 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 按月份分段保存在磁碟上的事件存儲
+ *
+ * 每個月份一個分段檔（yyyy-MM.seg），只有查詢或修改到該月份時才以記憶體映射讀入。
+ * 已載入的月份放在LRU中，估計大小超過預算時淘汰最久未用的月份，
+ * 被修改過的月份在淘汰或flush()時編碼後交給背景執行緒寫回磁碟。
+ * 啟動時不讀取任何分段，啟動時間和常駐記憶體與歷史資料量無關。
+ *
+ * 另以事件編號記下本次載入或加入過的事件所在的月份（每個事件約16位元組），
+ * 月份被淘汰後事件才被改了日期時，仍能找到並載入原本的月份。
+ */
+public class SegmentedEventStore implements EventStore {
+    private static final int MAGIC = 0x4D435331; // "MCS1"
+    // 每個事件在記憶體中的估計大小（物件、索引節點），不含描述內容
+    private static final int EVENT_OVERHEAD_BYTES = 160;
+    
+    private final Path directory;
+    private final long budgetBytes;
+    // 已載入的月份，按存取順序排列以實現LRU
+    private final LinkedHashMap<YearMonth, Segment> segments = new LinkedHashMap<>(16, 0.75f, true);
+    private long loadedBytes;
+    // 事件編號到歸檔的月份（見monthKey），淘汰月份時保留
+    private final LongIntMap filedMonths = new LongIntMap(1024);
+    // 已編碼但尚未寫入磁碟的月份，重新載入時優先使用
+    private final Map<YearMonth, byte[]> pendingWrites = new ConcurrentHashMap<>();
+    // 月份從磁碟載入時收到該月份的事件，例如排入提醒
+    private Consumer<List<Event>> loadListener;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "event-segment-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * 已載入的單一月份
+     */
+    private static class Segment {
+        final IndexedEventStore events = new IndexedEventStore();
+        long estimatedBytes;
+        boolean dirty;
+    }
+    
+    public SegmentedEventStore(Path directory, long budgetBytes) throws IOException {
+        this.directory = directory;
+        this.budgetBytes = budgetBytes;
+        Files.createDirectories(directory);
+    }
+    
+    /**
+     * 設置月份從磁碟載入時的回調，在持有存儲的鎖時調用；淘汰後再次載入時會再次調用
+     */
+    public void setLoadListener(Consumer<List<Event>> loadListener) {
+        this.loadListener = loadListener;
+    }
+    
+    @Override
+    public void add(Event event) {
+        YearMonth month = YearMonth.from(event.getDate());
+        Segment segment = segmentFor(month);
+        segment.events.add(event);
+        segment.dirty = true;
+        filedMonths.put(event.getId(), monthKey(month));
+        resize(segment, estimateBytes(event));
+    }
+    
+    @Override
+    public void remove(Event event) {
+        Long day = getFiledDay(event);
+        if (day == null) {
+            return;
+        }
+        Segment segment = segmentFor(YearMonth.from(LocalDate.ofEpochDay(day)));
+        segment.events.remove(event);
+        segment.dirty = true;
+        filedMonths.remove(event.getId());
+        resize(segment, -estimateBytes(event));
+    }
+    
+    @Override
+    public void update(Event event) {
+        Long day = getFiledDay(event);
+        if (day == null) {
+            return;
+        }
+        YearMonth oldMonth = YearMonth.from(LocalDate.ofEpochDay(day));
+        YearMonth newMonth = YearMonth.from(event.getDate());
+        if (oldMonth.equals(newMonth)) {
+            // 月份被淘汰後重新載入時存儲中是另一個物件，換成傳入的物件，否則寫回時仍是修改前的內容
+            Segment segment = segmentFor(oldMonth);
+            Event stored = storedInstance(segment, day, event);
+            segment.events.remove(event);
+            segment.events.add(event);
+            segment.dirty = true;
+            resize(segment, estimateBytes(event) - estimateBytes(stored != null ? stored : event));
+        } else {
+            remove(event);
+            add(event);
+        }
+    }
+    
+    @Override
+    public Long getFiledDay(Event event) {
+        int key = filedMonths.get(event.getId());
+        if (key != LongIntMap.MISSING) {
+            return segmentFor(monthOf(key)).events.getFiledDay(event);
+        }
+        // 未載入過的事件，按事件目前的日期載入後再查一次
+        YearMonth month = YearMonth.from(event.getDate());
+        if (segments.containsKey(month)) {
+            return null;
+        }
+        return segmentFor(month).events.getFiledDay(event);
+    }
+    
+    @Override
+    public List<Event> getEvents(long epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return segmentFor(YearMonth.from(date)).events.getEvents(epochDay);
+    }
+    
+    @Override
+    public NavigableMap<Long, List<Event>> getEventsInRange(long fromDay, long toDay) {
+        NavigableMap<Long, List<Event>> result = new TreeMap<>();
+        YearMonth last = YearMonth.from(LocalDate.ofEpochDay(toDay));
+        for (YearMonth month = YearMonth.from(LocalDate.ofEpochDay(fromDay));
+                !month.isAfter(last); month = month.plusMonths(1)) {
+            result.putAll(segmentFor(month).events.getEventsInRange(fromDay, toDay));
+        }
+        return result;
+    }
+    
+    /**
+     * 已載入、待寫入或有分段檔的最早月份的第一天
+     */
+    @Override
+    public Long getFirstDay() {
+        NavigableSet<YearMonth> months = knownMonths();
+        return months.isEmpty() ? null : months.first().atDay(1).toEpochDay();
+    }
+    
+    /**
+     * 已載入、待寫入或有分段檔的最晚月份的最後一天
+     */
+    @Override
+    public Long getLastDay() {
+        NavigableSet<YearMonth> months = knownMonths();
+        return months.isEmpty() ? null : months.last().atEndOfMonth().toEpochDay();
+    }
+    
+    /**
+     * 目前已載入月份中的事件數
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments.values()) {
+            size += segment.events.size();
+        }
+        return size;
+    }
+    
+    /**
+     * 已載入月份的估計大小（位元組）
+     */
+    public synchronized long getLoadedBytes() {
+        return loadedBytes;
+    }
+    
+    /**
+     * 將所有修改過的月份交給背景執行緒寫回磁碟；
+     * EventManager以存儲本身作為鎖，同步在this上即與其他執行緒的修改互斥
+     */
+    public synchronized void flush() {
+        for (Map.Entry<YearMonth, Segment> entry : segments.entrySet()) {
+            writeBack(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * 寫回所有修改並等待背景寫入完成
+     */
+    public void close() {
+        flush();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * 獲取月份的分段，未載入時從磁碟讀入並視需要淘汰其他月份
+     */
+    private Segment segmentFor(YearMonth month) {
+        Segment segment = segments.get(month);
+        if (segment != null) {
+            return segment;
+        }
+        segment = new Segment();
+        int key = monthKey(month);
+        List<Event> loaded = readSegment(month);
+        for (Event event : loaded) {
+            segment.events.add(event);
+            segment.estimatedBytes += estimateBytes(event);
+            filedMonths.put(event.getId(), key);
+        }
+        if (loadListener != null && !loaded.isEmpty()) {
+            loadListener.accept(loaded);
+        }
+        segments.put(month, segment);
+        loadedBytes += segment.estimatedBytes;
+        evictOverBudget(segment);
+        return segment;
+    }
+    
+    private void resize(Segment segment, long delta) {
+        segment.estimatedBytes += delta;
+        loadedBytes += delta;
+        evictOverBudget(segment);
+    }
+    
+    /**
+     * 淘汰最久未用的月份直到低於預算，正在使用的月份不會被淘汰
+     */
+    private void evictOverBudget(Segment inUse) {
+        Iterator<Map.Entry<YearMonth, Segment>> iterator = segments.entrySet().iterator();
+        while (loadedBytes > budgetBytes && iterator.hasNext()) {
+            Map.Entry<YearMonth, Segment> eldest = iterator.next();
+            if (eldest.getValue() == inUse) {
+                continue;
+            }
+            writeBack(eldest.getKey(), eldest.getValue());
+            loadedBytes -= eldest.getValue().estimatedBytes;
+            iterator.remove();
+        }
+    }
+    
+    /**
+     * 在目前執行緒編碼修改過的月份，再交給背景執行緒寫入
+     */
+    private void writeBack(YearMonth month, Segment segment) {
+        if (!segment.dirty) {
+            return;
+        }
+        segment.dirty = false;
+        
+        List<byte[]> records = new ArrayList<>();
+        int size = 8;
+        for (List<Event> day : segment.events.getEventsInRange(Long.MIN_VALUE, Long.MAX_VALUE).values()) {
+            for (Event event : day) {
+                byte[] record = EventCodec.encode(event);
+                records.add(record);
+                size += record.length;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(records.size());
+        for (byte[] record : records) {
+            buffer.put(record);
+        }
+        byte[] contents = buffer.array();
+        
+        pendingWrites.put(month, contents);
+        writer.execute(() -> {
+            try {
+                writeFile(month, contents);
+            } catch (IOException e) {
+                System.err.println("寫入月份分段 " + month + " 失敗: " + e.getMessage());
+            } finally {
+                // 之後若已有更新的內容排隊，保留較新的那份
+                pendingWrites.remove(month, contents);
+            }
+        });
+    }
+    
+    /**
+     * 原子地替換月份的分段檔；月份已沒有事件時刪除檔案
+     */
+    private void writeFile(YearMonth month, byte[] contents) throws IOException {
+        Path path = segmentPath(month);
+        if (ByteBuffer.wrap(contents).getInt(4) == 0) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(contents);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * 讀取月份的事件，優先使用尚未寫入磁碟的內容，否則以記憶體映射讀取分段檔
+     */
+    private List<Event> readSegment(YearMonth month) {
+        List<Event> events = new ArrayList<>();
+        byte[] pending = pendingWrites.get(month);
+        if (pending != null) {
+            decodeInto(ByteBuffer.wrap(pending), events);
+            return events;
+        }
+        
+        Path path = segmentPath(month);
+        if (!Files.exists(path)) {
+            return events;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            decodeInto(buffer, events);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("讀取月份分段 " + month + " 失敗: " + e.getMessage());
+        }
+        return events;
+    }
+    
+    private static void decodeInto(ByteBuffer buffer, List<Event> events) {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            return;
+        }
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            events.add(EventCodec.decode(buffer));
+        }
+    }
+    
+    /**
+     * 可能有事件的月份：已載入的非空月份、待寫入的月份及磁碟上的分段檔
+     */
+    private NavigableSet<YearMonth> knownMonths() {
+        NavigableSet<YearMonth> months = new TreeSet<>();
+        for (Map.Entry<YearMonth, Segment> entry : segments.entrySet()) {
+            if (entry.getValue().events.size() > 0) {
+                months.add(entry.getKey());
+            }
+        }
+        months.addAll(pendingWrites.keySet());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.seg")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    months.add(YearMonth.parse(name.substring(0, name.length() - ".seg".length())));
+                } catch (DateTimeParseException e) {
+                    // 不是月份分段檔
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("列出月份分段失敗: " + e.getMessage());
+        }
+        return months;
+    }
+    
+    /**
+     * 分段中與event編號相同的物件，找不到時為null
+     */
+    private static Event storedInstance(Segment segment, long day, Event event) {
+        for (Event stored : segment.events.getEvents(day)) {
+            if (stored.equals(event)) {
+                return stored;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 月份在filedMonths中的值：從西元0年1月起的月數
+     */
+    private static int monthKey(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+    
+    private static YearMonth monthOf(int key) {
+        return YearMonth.of(Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1);
+    }
+    
+    private Path segmentPath(YearMonth month) {
+        return directory.resolve(month + ".seg");
+    }
+    
+    private static long estimateBytes(Event event) {
+        return EVENT_OVERHEAD_BYTES + 2L * event.getDescription().length();
+    }
+}
@@ -0,0 +1,129 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.collections.ObservableListBase;
+
+/**
+ * 按時間排序的可觀察事件列表，供事件列表顯示選中日期的事件
+ *
+ * add插入到時間對應的位置，remove和indexOf以事件加入時的時間二分搜尋，
+ * 每次修改只發出該位置的變更，不需要重新排序整個列表。
+ * 事件被原地修改後應調用reposition移到新位置；不支援按索引插入或替換。
+ */
+public class SortedEventList extends ObservableListBase<Event> {
+    private final DayEvents events = new DayEvents();
+    // 每個事件加入時的時間，用來找到被原地修改的事件
+    private final Map<Event, Long> filedTimes = new HashMap<>();
+    
+    @Override
+    public Event get(int index) {
+        return events.get(index);
+    }
+    
+    @Override
+    public int size() {
+        return events.size();
+    }
+    
+    /**
+     * 將事件插入到其時間對應的位置；事件已在列表中時移到新位置
+     */
+    @Override
+    public boolean add(Event event) {
+        if (filedTimes.containsKey(event)) {
+            reposition(event);
+            return true;
+        }
+        int index = events.insert(event);
+        filedTimes.put(event, DayEvents.timeKey(event));
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+        return true;
+    }
+    
+    @Override
+    public boolean remove(Object object) {
+        int index = indexOf(object);
+        if (index < 0) {
+            return false;
+        }
+        Event removed = events.removeAt(index);
+        filedTimes.remove(removed);
+        beginChange();
+        nextRemove(index, removed);
+        endChange();
+        return true;
+    }
+    
+    @Override
+    public int indexOf(Object object) {
+        if (!(object instanceof Event)) {
+            return -1;
+        }
+        Long filedTime = filedTimes.get(object);
+        return filedTime != null ? events.indexOf((Event) object, filedTime) : -1;
+    }
+    
+    @Override
+    public boolean contains(Object object) {
+        return indexOf(object) >= 0;
+    }
+    
+    /**
+     * 事件內容修改後移到其新時間的位置；位置不變時發出替換通知讓顯示刷新
+     */
+    public void reposition(Event event) {
+        int oldIndex = indexOf(event);
+        if (oldIndex < 0) {
+            return;
+        }
+        Event old = events.removeAt(oldIndex);
+        int newIndex = events.insert(event);
+        filedTimes.put(event, DayEvents.timeKey(event));
+        beginChange();
+        if (newIndex == oldIndex) {
+            nextSet(newIndex, old);
+        } else {
+            nextRemove(oldIndex, old);
+            nextAdd(newIndex, newIndex + 1);
+        }
+        endChange();
+    }
+    
+    /**
+     * 以一組事件取代目前內容，排序一次後依序放入，只發出一個變更
+     */
+    @Override
+    public boolean setAll(Collection<? extends Event> newEvents) {
+        List<Event> removed = new ArrayList<>(events);
+        List<Event> sorted = new ArrayList<>(newEvents);
+        sorted.sort(DayEvents.BY_TIME);
+        events.clear();
+        filedTimes.clear();
+        for (Event event : sorted) {
+            // 已排序，每次都插入在尾端
+            events.insert(event);
+            filedTimes.put(event, DayEvents.timeKey(event));
+        }
+        beginChange();
+        if (!removed.isEmpty()) {
+            nextRemove(0, removed);
+        }
+        if (!events.isEmpty()) {
+            nextAdd(0, events.size());
+        }
+        endChange();
+        return true;
+    }
+    
+    @Override
+    public boolean setAll(Event... newEvents) {
+        return setAll(List.of(newEvents));
+    }
+}
@@ -0,0 +1,319 @@
+package main;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import javafx.geometry.Orientation;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * 週檢視和日檢視：左側為小時刻度，每天一欄，事件按起訖時間顯示為色塊，重疊的事件並排
+ *
+ * 只為捲動視窗內的小時列和事件建立節點：每次排版以區間樹查詢可見時段內的事件，
+ * 依序重新綁定已有的節點，用不到的節點隱藏留待之後重用，捲動時不創建也不刪除節點。
+ * 每天的欄位配置只在該日事件變更時重新計算。
+ */
+public class TimelineView extends Region {
+    private static final double HOUR_HEIGHT = 60;
+    private static final double TOTAL_HEIGHT = 24 * HOUR_HEIGHT;
+    private static final double AXIS_WIDTH = 52;
+    private static final double HEADER_HEIGHT = 28;
+    private static final double BLOCK_GAP = 1;
+    private static final double MIN_BLOCK_HEIGHT = 4;
+    // 色塊小於此尺寸時不顯示文字
+    private static final double MIN_TEXT_HEIGHT = 14;
+    private static final double MIN_TEXT_WIDTH = 24;
+    // 點擊空白處預填的時間以15分鐘為單位
+    private static final int CLICK_STEP_MINUTES = 15;
+    // 第一次顯示時捲動到的時間
+    private static final int INITIAL_HOUR = 8;
+    private static final DateTimeFormatter HEADER_FORMAT = DateTimeFormatter.ofPattern("EEE M/d", Locale.US);
+    
+    private final EventManager eventManager;
+    private final CalendarController controller;
+    private final Pane body = new Pane();
+    private final Rectangle bodyClip = new Rectangle();
+    private final ScrollBar scrollBar = new ScrollBar();
+    
+    // 每天一個的標題和分隔線
+    private final List<Label> dayHeaders = new ArrayList<>();
+    private final List<Region> dayDividers = new ArrayList<>();
+    // 可重用的小時列和事件色塊，使用中的排在前面，其餘隱藏
+    private final List<Label> hourRows = new ArrayList<>();
+    private final List<Label> blocks = new ArrayList<>();
+    
+    private LocalDate firstDate = LocalDate.now();
+    private int dayCount = 1;
+    // 顯示中各日期的欄位配置，該日事件變更時移除
+    private final Map<LocalDate, DayLayout> layouts = new HashMap<>();
+    
+    public TimelineView(EventManager eventManager, CalendarController controller) {
+        this.eventManager = eventManager;
+        this.controller = controller;
+        getStyleClass().add("timeline-view");
+        
+        body.getStyleClass().add("timeline-body");
+        body.setClip(bodyClip);
+        body.setOnMouseClicked(this::handleBodyClick);
+        body.addEventHandler(ScrollEvent.SCROLL, e -> {
+            scrollBar.setValue(clampScroll(scrollBar.getValue() - e.getDeltaY()));
+            e.consume();
+        });
+        
+        scrollBar.setOrientation(Orientation.VERTICAL);
+        scrollBar.setUnitIncrement(HOUR_HEIGHT / 4);
+        scrollBar.setBlockIncrement(HOUR_HEIGHT * 4);
+        scrollBar.setValue(INITIAL_HOUR * HOUR_HEIGHT);
+        scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> requestLayout());
+        
+        getChildren().addAll(body, scrollBar);
+        setDayCount(1);
+    }
+    
+    /**
+     * 從指定日期開始顯示若干天，週檢視為7天，日檢視為1天
+     */
+    public void show(LocalDate firstDate, int dayCount) {
+        this.firstDate = firstDate;
+        setDayCount(dayCount);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < dayCount; i++) {
+            LocalDate date = firstDate.plusDays(i);
+            Label header = dayHeaders.get(i);
+            header.setText(date.format(HEADER_FORMAT));
+            header.getStyleClass().remove("timeline-header-today");
+            if (date.equals(today)) {
+                header.getStyleClass().add("timeline-header-today");
+            }
+        }
+        layouts.clear();
+        requestLayout();
+    }
+    
+    /**
+     * 日期是否在目前顯示的範圍內
+     */
+    public boolean isDisplayed(LocalDate date) {
+        return !date.isBefore(firstDate) && date.isBefore(firstDate.plusDays(dayCount));
+    }
+    
+    /**
+     * 目前顯示的日期所在的月份
+     */
+    public Set<YearMonth> getDisplayedMonths() {
+        Set<YearMonth> months = new TreeSet<>();
+        months.add(YearMonth.from(firstDate));
+        months.add(YearMonth.from(firstDate.plusDays(dayCount - 1)));
+        return months;
+    }
+    
+    /**
+     * 重新讀取指定日期的事件，不在顯示範圍內的日期不處理
+     */
+    public void refreshDates(Collection<LocalDate> dates) {
+        boolean changed = false;
+        for (LocalDate date : dates) {
+            if (isDisplayed(date)) {
+                layouts.remove(date);
+                changed = true;
+            }
+        }
+        if (changed) {
+            requestLayout();
+        }
+    }
+    
+    @Override
+    protected double computePrefWidth(double height) {
+        return AXIS_WIDTH + 7 * 100;
+    }
+    
+    @Override
+    protected double computePrefHeight(double width) {
+        return HEADER_HEIGHT + 10 * HOUR_HEIGHT;
+    }
+    
+    @Override
+    protected void layoutChildren() {
+        double scrollWidth = scrollBar.prefWidth(-1);
+        double bodyWidth = Math.max(0, getWidth() - scrollWidth);
+        double bodyHeight = Math.max(0, getHeight() - HEADER_HEIGHT);
+        double dayWidth = Math.max(0, (bodyWidth - AXIS_WIDTH) / dayCount);
+        
+        scrollBar.setMax(Math.max(0, TOTAL_HEIGHT - bodyHeight));
+        scrollBar.setVisibleAmount(bodyHeight);
+        scrollBar.setValue(clampScroll(scrollBar.getValue()));
+        scrollBar.resizeRelocate(bodyWidth, HEADER_HEIGHT, scrollWidth, bodyHeight);
+        body.resizeRelocate(0, HEADER_HEIGHT, bodyWidth, bodyHeight);
+        bodyClip.setWidth(bodyWidth);
+        bodyClip.setHeight(bodyHeight);
+        
+        for (int i = 0; i < dayCount; i++) {
+            double x = AXIS_WIDTH + i * dayWidth;
+            dayHeaders.get(i).resizeRelocate(x, 0, dayWidth, HEADER_HEIGHT);
+            dayDividers.get(i).resizeRelocate(x, 0, 1, bodyHeight);
+        }
+        double top = scrollBar.getValue();
+        layoutHourRows(top, bodyWidth, bodyHeight);
+        layoutBlocks(top, bodyHeight, dayWidth);
+    }
+    
+    /**
+     * 只放置可見範圍內的小時列
+     */
+    private void layoutHourRows(double top, double bodyWidth, double bodyHeight) {
+        int firstHour = (int) (top / HOUR_HEIGHT);
+        int lastHour = Math.min(23, (int) ((top + bodyHeight) / HOUR_HEIGHT));
+        int used = 0;
+        for (int hour = firstHour; hour <= lastHour; hour++) {
+            Label row = reuse(hourRows, used++, this::createHourRow);
+            row.setText(String.format("%02d:00", hour));
+            row.resizeRelocate(0, hour * HOUR_HEIGHT - top, bodyWidth, HOUR_HEIGHT);
+        }
+        hideFrom(hourRows, used);
+    }
+    
+    /**
+     * 查詢每天與可見時段重疊的事件，依該日的欄位配置放置色塊
+     */
+    private void layoutBlocks(double top, double bodyHeight, double dayWidth) {
+        int startSecond = (int) Math.min(24 * 3600 - 1, top / HOUR_HEIGHT * 3600);
+        Duration visible = Duration.ofSeconds((long) Math.ceil(bodyHeight / HOUR_HEIGHT * 3600));
+        LocalTime visibleStart = LocalTime.ofSecondOfDay(startSecond);
+        int used = 0;
+        for (int day = 0; day < dayCount; day++) {
+            LocalDate date = firstDate.plusDays(day);
+            DayLayout layout = layouts.computeIfAbsent(date, eventManager::getDayLayout);
+            double dayX = AXIS_WIDTH + day * dayWidth;
+            for (Event event : eventManager.getOverlappingEvents(date, visibleStart, visible)) {
+                DayLayout.Slot slot = layout.getSlot(event);
+                if (slot == null) {
+                    // 配置尚未隨變更更新，下次排版時再顯示
+                    continue;
+                }
+                double columnWidth = dayWidth / slot.getColumnCount();
+                double y = event.getStartSecond() / 3600.0 * HOUR_HEIGHT - top;
+                double height = Math.max(MIN_BLOCK_HEIGHT,
+                    (IntervalTree.endOf(event) - event.getStartSecond()) / 3600.0 * HOUR_HEIGHT);
+                
+                Label block = reuse(blocks, used++, this::createBlock);
+                block.setUserData(event);
+                block.setBackground(EventPalette.chipBackground(event.getColor()));
+                boolean showText = height >= MIN_TEXT_HEIGHT && columnWidth >= MIN_TEXT_WIDTH;
+                block.setText(showText ? event.toString() : "");
+                block.resizeRelocate(dayX + slot.getColumn() * columnWidth, y,
+                    Math.max(1, columnWidth - BLOCK_GAP), height - BLOCK_GAP);
+            }
+        }
+        hideFrom(blocks, used);
+    }
+    
+    /**
+     * 點擊空白時段時以該日期和時間預填事件表單
+     */
+    private void handleBodyClick(MouseEvent e) {
+        if (e.getTarget() != body || controller == null) {
+            return;
+        }
+        double dayWidth = (body.getWidth() - AXIS_WIDTH) / dayCount;
+        int day = (int) Math.floor((e.getX() - AXIS_WIDTH) / dayWidth);
+        if (day < 0 || day >= dayCount) {
+            return;
+        }
+        int minute = (int) ((e.getY() + scrollBar.getValue()) / HOUR_HEIGHT * 60);
+        minute = Math.min(24 * 60 - CLICK_STEP_MINUTES, minute / CLICK_STEP_MINUTES * CLICK_STEP_MINUTES);
+        controller.prefillNewEvent(firstDate.plusDays(day), LocalTime.of(minute / 60, minute % 60));
+    }
+    
+    /**
+     * 調整每天的標題和分隔線數量
+     */
+    private void setDayCount(int dayCount) {
+        this.dayCount = dayCount;
+        while (dayHeaders.size() < dayCount) {
+            Label header = new Label();
+            header.getStyleClass().add("timeline-header");
+            dayHeaders.add(header);
+            getChildren().add(header);
+            
+            Region divider = new Region();
+            divider.getStyleClass().add("timeline-divider");
+            divider.setMouseTransparent(true);
+            dayDividers.add(divider);
+            body.getChildren().add(divider);
+        }
+        for (int i = 0; i < dayHeaders.size(); i++) {
+            dayHeaders.get(i).setVisible(i < dayCount);
+            dayDividers.get(i).setVisible(i < dayCount);
+        }
+    }
+    
+    private Label createHourRow() {
+        Label row = new Label();
+        row.getStyleClass().add("timeline-hour");
+        row.setMouseTransparent(true);
+        // 小時列在色塊和分隔線之下
+        body.getChildren().add(0, row);
+        return row;
+    }
+    
+    private Label createBlock() {
+        Label block = new Label();
+        block.getStyleClass().add("timeline-event");
+        block.setOnMouseClicked(e -> {
+            if (controller != null) {
+                controller.selectEventForEdit((Event) block.getUserData());
+            }
+            e.consume();
+        });
+        body.getChildren().add(block);
+        CalendarMetrics.countNodesCreated(1);
+        return block;
+    }
+    
+    /**
+     * 取得第index個可重用節點並設為可見，不足時創建
+     */
+    private static Label reuse(List<Label> pool, int index, Supplier<Label> factory) {
+        Label node = index < pool.size() ? pool.get(index) : null;
+        if (node == null) {
+            node = factory.get();
+            pool.add(node);
+        }
+        if (!node.isVisible()) {
+            node.setVisible(true);
+        }
+        return node;
+    }
+    
+    /**
+     * 隱藏從from開始未使用的節點
+     */
+    private static void hideFrom(List<Label> pool, int from) {
+        for (int i = from; i < pool.size() && pool.get(i).isVisible(); i++) {
+            pool.get(i).setVisible(false);
+        }
+    }
+    
+    private double clampScroll(double value) {
+        return Math.max(scrollBar.getMin(), Math.min(scrollBar.getMax(), value));
+    }
+}
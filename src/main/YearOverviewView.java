@@ -0,0 +1,261 @@
+package main;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.util.Collection;
+import java.util.Locale;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * 一年或連續多年的事件熱度圖：每年一列，每週一欄、每天一格，顏色深淺表示當天的事件數
+ *
+ * 每天的數量和各月、各年的總數都來自EventDensityIndex，繪製時不走訪Event物件；
+ * 以單一Canvas繪製，點擊某天時讓主檢視跳到該日期
+ */
+public class YearOverviewView extends Pane {
+    // 每一年上方年份及月份標題佔用的高度
+    private static final double YEAR_HEADER = 20;
+    private static final double MONTH_HEADER = 16;
+    private static final double YEAR_GAP = 12;
+    // 左側星期標籤的寬度
+    private static final double WEEKDAY_AREA = 24;
+    private static final double MAX_CELL = 16;
+    private static final double CELL_GAP = 2;
+    // 一年最多跨越的週數
+    private static final int WEEK_COLUMNS = 54;
+    
+    private static final Font YEAR_FONT = Font.font("Times New Roman", FontWeight.BOLD, 14);
+    private static final Font LABEL_FONT = Font.font(10);
+    private static final Color TEXT_COLOR = Color.web("#888");
+    private static final Color EMPTY_COLOR = Color.web("#ebedf0");
+    private static final Color TODAY_BORDER = Color.web("#93908a");
+    // 由淺到深的熱度顏色，按當天事件數相對於顯示範圍內最大值分級
+    private static final Color[] HEAT_COLORS = {
+        Color.web("#c6dbf7"), Color.web("#8fb5ef"), Color.web("#5a8de3"), Color.web("#2c5fb8")
+    };
+    
+    private final EventDensityIndex densityIndex;
+    private final CalendarController controller;
+    private final Canvas canvas = new Canvas();
+    private final Tooltip tooltip = new Tooltip();
+    private int firstYear;
+    private int yearCount;
+    // 每年每天的事件數，dailyCounts[y][d]對應firstYear+y年的第d+1天
+    private int[][] dailyCounts = new int[0][];
+    private int maxCount;
+    
+    public YearOverviewView(EventDensityIndex densityIndex, CalendarController controller) {
+        this.densityIndex = densityIndex;
+        this.controller = controller;
+        getChildren().add(canvas);
+        Tooltip.install(this, tooltip);
+        
+        setOnMouseClicked(e -> {
+            LocalDate date = dateAt(e.getX(), e.getY());
+            if (date != null) {
+                controller.jumpToDate(date);
+            }
+        });
+        setOnMouseMoved(this::updateTooltip);
+    }
+    
+    /**
+     * 顯示從firstYear開始連續yearCount年
+     */
+    public void show(int firstYear, int yearCount) {
+        boolean sizeChanged = yearCount != this.yearCount;
+        this.firstYear = firstYear;
+        this.yearCount = yearCount;
+        reload();
+        if (sizeChanged) {
+            requestLayout();
+        }
+    }
+    
+    /**
+     * 是否有日期落在目前顯示的年份中
+     */
+    public boolean isDisplayed(Collection<LocalDate> dates) {
+        for (LocalDate date : dates) {
+            if (date.getYear() >= firstYear && date.getYear() < firstYear + yearCount) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 事件變更後重新讀取計數；重複事件可能影響任何日期，由調用者決定是否需要
+     */
+    public void refresh() {
+        if (yearCount > 0) {
+            reload();
+        }
+    }
+    
+    @Override
+    protected double computePrefWidth(double height) {
+        return WEEKDAY_AREA + WEEK_COLUMNS * (MAX_CELL + CELL_GAP);
+    }
+    
+    @Override
+    protected double computePrefHeight(double width) {
+        return yearHeight(MAX_CELL) * Math.max(1, yearCount);
+    }
+    
+    @Override
+    protected void layoutChildren() {
+        if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+            canvas.setWidth(getWidth());
+            canvas.setHeight(getHeight());
+            redraw();
+        }
+    }
+    
+    private void reload() {
+        dailyCounts = new int[yearCount][];
+        maxCount = 0;
+        for (int y = 0; y < yearCount; y++) {
+            int year = firstYear + y;
+            dailyCounts[y] = densityIndex.getDailyCounts(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+            for (int count : dailyCounts[y]) {
+                maxCount = Math.max(maxCount, count);
+            }
+        }
+        redraw();
+    }
+    
+    private void redraw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        if (canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+            return;
+        }
+        for (int y = 0; y < yearCount; y++) {
+            drawYear(gc, y);
+        }
+    }
+    
+    /**
+     * 繪製一年：年份及總數、各月名稱及月總數、星期標籤和每天的格子
+     */
+    private void drawYear(GraphicsContext gc, int yearIndex) {
+        int year = firstYear + yearIndex;
+        double cell = cellSize();
+        double top = yearIndex * yearHeight(cell);
+        LocalDate first = LocalDate.of(year, 1, 1);
+        
+        gc.setTextBaseline(VPos.TOP);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setFont(YEAR_FONT);
+        gc.setFill(TEXT_COLOR);
+        gc.fillText(year + "  （" + densityIndex.countBetween(first, LocalDate.of(year, 12, 31)) + " 個事件）",
+            0, top);
+        
+        gc.setFont(LABEL_FONT);
+        for (Month month : Month.values()) {
+            LocalDate monthStart = LocalDate.of(year, month, 1);
+            long total = densityIndex.countBetween(monthStart, monthStart.plusMonths(1).minusDays(1));
+            gc.fillText(month.getDisplayName(TextStyle.SHORT, Locale.TRADITIONAL_CHINESE) + " " + total,
+                columnX(weekColumn(first, monthStart), cell), top + YEAR_HEADER);
+        }
+        String[] weekdays = {"日", "二", "四", "六"};
+        for (int i = 0; i < weekdays.length; i++) {
+            gc.fillText(weekdays[i], 0, rowY(top, i * 2, cell));
+        }
+        
+        LocalDate today = LocalDate.now();
+        int[] counts = dailyCounts[yearIndex];
+        for (int d = 0; d < counts.length; d++) {
+            LocalDate date = first.plusDays(d);
+            double x = columnX(weekColumn(first, date), cell);
+            double y = rowY(top, date.getDayOfWeek().getValue() % 7, cell);
+            gc.setFill(heatColor(counts[d]));
+            gc.fillRect(x, y, cell, cell);
+            if (date.equals(today)) {
+                gc.setStroke(TODAY_BORDER);
+                gc.strokeRect(x + 0.5, y + 0.5, cell - 1, cell - 1);
+            }
+        }
+    }
+    
+    private Color heatColor(int count) {
+        if (count == 0 || maxCount == 0) {
+            return EMPTY_COLOR;
+        }
+        int level = (int) Math.ceil((double) count * HEAT_COLORS.length / maxCount) - 1;
+        return HEAT_COLORS[Math.min(HEAT_COLORS.length - 1, level)];
+    }
+    
+    private void updateTooltip(MouseEvent e) {
+        LocalDate date = dateAt(e.getX(), e.getY());
+        if (date == null) {
+            tooltip.setText("");
+            return;
+        }
+        int count = dailyCounts[date.getYear() - firstYear][date.getDayOfYear() - 1];
+        tooltip.setText(date + "：" + count + " 個事件");
+    }
+    
+    /**
+     * 座標所在的日期，不在任何格子上時返回null
+     */
+    private LocalDate dateAt(double x, double y) {
+        if (yearCount == 0) {
+            return null;
+        }
+        double cell = cellSize();
+        int yearIndex = (int) (y / yearHeight(cell));
+        if (y < 0 || yearIndex >= yearCount) {
+            return null;
+        }
+        double gridY = y - yearIndex * yearHeight(cell) - YEAR_HEADER - MONTH_HEADER;
+        double gridX = x - WEEKDAY_AREA;
+        if (gridX < 0 || gridY < 0) {
+            return null;
+        }
+        int column = (int) (gridX / (cell + CELL_GAP));
+        int row = (int) (gridY / (cell + CELL_GAP));
+        if (row >= 7 || column >= WEEK_COLUMNS) {
+            return null;
+        }
+        LocalDate first = LocalDate.of(firstYear + yearIndex, 1, 1);
+        LocalDate date = first.minusDays(first.getDayOfWeek().getValue() % 7).plusDays(column * 7L + row);
+        return date.getYear() == first.getYear() ? date : null;
+    }
+    
+    /**
+     * 日期在該年的第幾週（從0開始），一週從星期日開始
+     */
+    private static int weekColumn(LocalDate yearStart, LocalDate date) {
+        return (date.getDayOfYear() - 1 + yearStart.getDayOfWeek().getValue() % 7) / 7;
+    }
+    
+    private double cellSize() {
+        double available = (canvas.getWidth() - WEEKDAY_AREA) / WEEK_COLUMNS - CELL_GAP;
+        return Math.max(4, Math.min(MAX_CELL, available));
+    }
+    
+    private static double yearHeight(double cell) {
+        return YEAR_HEADER + MONTH_HEADER + 7 * (cell + CELL_GAP) + YEAR_GAP;
+    }
+    
+    private static double columnX(int column, double cell) {
+        return WEEKDAY_AREA + column * (cell + CELL_GAP);
+    }
+    
+    private static double rowY(double top, int row, double cell) {
+        return top + YEAR_HEADER + MONTH_HEADER + row * (cell + CELL_GAP);
+    }
+}